@@ -1,10 +1,11 @@
 package templeengine.examples.asteroids;
 
 import javafx.geometry.BoundingBox;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import templeengine.src.core.*;
 
+import java.util.List;
+
 /**
  * The {@code Asteroid} is the actual main game program.
  *
@@ -31,6 +32,15 @@ public class AsteroidsGame extends GameCanvas {
      */
     private ImageView lose;
 
+    /**
+     * The pool of enemies.
+     */
+    private ObjectPool<Enemy> enemies;
+    /**
+     * The pool of bullets.
+     */
+    private ObjectPool<Bullet> bullets;
+
     /**
      * Constructs the game and starts the Temple engine.
      *
@@ -47,19 +57,35 @@ public class AsteroidsGame extends GameCanvas {
         Temple.enter(this);
     }
 
+    /**
+     * Lists the images and sounds of the game, decoded by the engine before load() is called.
+     *
+     * @return the assets of the manifest.
+     */
+    @Override
+    public List<String> getAssets() {
+
+        return AssetManager.readManifest("templeengine/examples/asteroids/res/asteroids.assets");
+    }
+
     /**
      * Called from the Temple engine once it has finished setting up. This is the starting point of your game.
      */
     @Override
     public void load() {
 
-        stage = new ImageView(new Image("templeengine/examples/asteroids/res/stage.jpg"));
+        stage = new ImageView(GameIO.loadImage("templeengine/examples/asteroids/res/stage.jpg"));
 
         pane.getChildren().add(stage);
 
         GameSound.playMusic("res/music.mp3", getClass());
         GameCamera.setBounds(new BoundingBox(0,0,3072 - 720, 1234 - 720));
 
+        enemies = new ObjectPool<>(Enemy.prefab()::instantiate, 16);
+        bullets = new ObjectPool<>(Bullet.prefab()::instantiate, 16);
+
+        subscribe(EnemyHit.class, this::onEnemyHit);
+
         reset();
     }
 
@@ -68,7 +94,7 @@ public class AsteroidsGame extends GameCanvas {
      */
     public void lose() {
 
-        lose = new ImageView(new Image("templeengine/examples/asteroids/res/lose.jpg"));
+        lose = new ImageView(GameIO.loadImage("templeengine/examples/asteroids/res/lose.jpg"));
 
         lose.setFitWidth(720);
         lose.setFitHeight(720);
@@ -109,10 +135,60 @@ public class AsteroidsGame extends GameCanvas {
      */
     public void addEnemy() {
 
+        Enemy enemy = enemies.obtain();
+
         if(Utilities.randInt(0, 1) == 1)
-            addObject(new Enemy("chun", 200, (double)Utilities.randInt(300,1000)));
+            enemy.spawn(200, (double)Utilities.randInt(300,1000));
         else
-            addObject(new Enemy("chun", 2800, (double)Utilities.randInt(300,1000)));
+            enemy.spawn(2800, (double)Utilities.randInt(300,1000));
+
+        addObject(enemy);
+    }
+
+    /**
+     * Adds a bullet.
+     *
+     * @param x starting position.
+     * @param y starting position.
+     * @param angle starting angle.
+     * @param parent the player who shot.
+     */
+    public void addBullet(double x, double y, double angle, Player parent) {
+
+        Bullet bullet = bullets.obtain();
+        bullet.fire(x, y, angle, parent);
+        addObject(bullet);
+    }
+
+    /**
+     * Handles a bullet hitting an enemy. Removes both, scores the shooter and spawns one or two new enemies.
+     *
+     * @param hit the event.
+     */
+    private void onEnemyHit(EnemyHit hit) {
+
+        switch(Utilities.randInt(0,2)) {
+
+            case 0:
+            case 1:
+
+                addEnemy();
+
+                break;
+
+            case 2:
+
+                addEnemy();
+                addEnemy();
+
+                break;
+        }
+
+        hit.getShooter().addScore();
+
+        removeObject(hit.getEnemy());
+        GameSound.playSound("res/hit.wav", getClass());
+        removeObject(hit.getBullet());
     }
 
     /**
@@ -1,7 +1,6 @@
 package templeengine.examples.asteroids;
 
 import javafx.geometry.BoundingBox;
-import javafx.scene.image.Image;
 import javafx.scene.shape.Shape;
 import templeengine.src.core.*;
 
@@ -20,39 +19,56 @@ public class Bullet extends GameObject {
     private Player parent;
 
     /**
-     * Constructs the bullet.
+     * Constructs a bare bullet. Bullets are built from the prefab by the pool of the game, and fired with fire().
+     */
+    public Bullet()
+    {
+        setExistanceBounds(new BoundingBox(-50,-50,3072, 1234));
+    }
+
+    /**
+     * Defines the bullet prefab. The image is loaded once and shared by every bullet.
+     *
+     * @return the prefab.
+     */
+    public static Prefab<Bullet> prefab()
+    {
+        return new Prefab<>(Bullet::new)
+                .name("bullet")
+                .image(GameIO.loadImage("templeengine/examples/asteroids/res/bullet.png"))
+                .fitSize(78, 150)
+                .rectangle(0, 0, 78, 150)
+                .flags(true, false, true)
+                .packed(true)
+                .parallelSafe(true);
+    }
+
+    /**
+     * Fires the bullet.
      *
-     * @param name name of the bullet.
      * @param x starting position.
      * @param y starting position.
      * @param angle starting angle.
      * @param parent of the bullet.
      */
-    public Bullet(String name, double x, double y, double angle, Player parent)
+    public void fire(double x, double y, double angle, Player parent)
     {
-        Image idle = new Image("templeengine/examples/asteroids/res/bullet.png");
-
-        this.setImage(idle);
-
-        this.setFitWidth(78);
-        this.setFitHeight(150);
-
-        this.setOpacity(1);
-
-        this.name = name;
         this.parent = parent;
 
         this.setAngle(angle);
         setVelocityForward(15);
         this.setAngle(angle + 90);
 
-        this.isTrigger = true;
-
-        addCollider(new CollisionRectangle(this, 0, 0, 78, 150));
-
         this.setXY(x, y);
+    }
 
-        setExistanceBounds(new BoundingBox(-50,-50,3072, 1234));
+    /**
+     * Called by the engine when the bullet is taken out of the pool.
+     */
+    @Override
+    public void onSpawn() {
+
+        this.isCollidable = true;
     }
 
     /**
@@ -68,31 +84,7 @@ public class Bullet extends GameObject {
 
             this.isCollidable = false;
 
-            if(Temple.getActiveGame() instanceof AsteroidsGame) {
-
-                switch(Utilities.randInt(0,2)) {
-
-                    case 0:
-                    case 1:
-
-                        ((AsteroidsGame) Temple.getActiveGame()).addEnemy();
-
-                        break;
-
-                    case 2:
-
-                        ((AsteroidsGame) Temple.getActiveGame()).addEnemy();
-                        ((AsteroidsGame) Temple.getActiveGame()).addEnemy();
-
-                        break;
-                }
-            }
-
-            parent.addScore();
-
-            Temple.getActiveGame().removeObject(hitObject);
-            GameSound.playSound("res/hit.wav", getClass());
-            Temple.getActiveGame().removeObject(this);
+            Temple.getActiveGame().post(new EnemyHit(this, (Enemy) hitObject, parent));
         }
     }
 }
@@ -1,6 +1,5 @@
 package templeengine.examples.asteroids;
 
-import javafx.scene.image.Image;
 import javafx.scene.shape.Shape;
 import templeengine.src.core.*;
 
@@ -14,36 +13,44 @@ import templeengine.src.core.*;
 public class Enemy extends GameObject {
 
     /**
-     * The idle animation.
+     * The last Wall this object hit.
      */
-    private Animation idle;
+    private Walls lastHit;
 
     /**
-     * The last Wall this object hit.
+     * Constructs a bare enemy. Enemies are built from the prefab by the pool of the game, and placed with spawn().
      */
-    private Walls lastHit;
+    public Enemy()
+    {
+        //setExistanceBounds(new BoundingBox(-100,-100,3072 + 100, 1234 + 100));
+    }
 
     /**
-     * Constructs the enemy.
+     * Defines the enemy prefab. The idle animation is loaded and split once, and shared by every enemy.
      *
-     * @param name name of the player.
-     * @param x starting position.
-     * @param y starting position.
+     * @return the prefab.
      */
-    public Enemy(String name, double x, double y)
+    public static Prefab<Enemy> prefab()
     {
-        idle = new Animation(new Image("templeengine/examples/asteroids/res/enemy_idle.png"), true);
+        Animation idle = new Animation(GameIO.loadImage("templeengine/examples/asteroids/res/enemy_idle.png"), true);
         idle.split(4,2,Utilities.randInt(20,60) / 8);
 
-        changeAnimation(idle);
-
-        this.setFitWidth(180 * 2);
-        this.setFitHeight(83 * 2);
-
-        this.setOpacity(1);
-
-        this.name = name;
+        return new Prefab<>(Enemy::new)
+                .name("chun")
+                .animation("idle", idle)
+                .fitSize(180 * 2, 83 * 2)
+                .circle(180 / 2 + 18, 83 / 2 - 12, 70)
+                .parallelSafe(true);
+    }
 
+    /**
+     * Places the enemy and sends it moving away from the side it spawned on.
+     *
+     * @param x starting position.
+     * @param y starting position.
+     */
+    public void spawn(double x, double y)
+    {
         if(x == 200)
             this.setVelocityX(Utilities.randInt(1,15));
         else
@@ -54,11 +61,17 @@ public class Enemy extends GameObject {
         else
             this.setVelocityY(Utilities.randInt(1,15));
 
-        addCollider(new CollisionCircle(this, 180 / 2 + 18, 83 / 2 - 12, 70));
-
         this.setXY(x, y);
+    }
 
-        //setExistanceBounds(new BoundingBox(-100,-100,3072 + 100, 1234 + 100));
+    /**
+     * Called by the engine when the enemy is taken out of the pool.
+     */
+    @Override
+    public void onSpawn() {
+
+        lastHit = null;
+        changeAnimation(getPrefab().getAnimation("idle"));
     }
 
     /**
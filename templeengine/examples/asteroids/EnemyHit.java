@@ -0,0 +1,60 @@
+package templeengine.examples.asteroids;
+
+/**
+ * The {@code EnemyHit} event is posted when a bullet hits an enemy.
+ *
+ * <p>
+ * The game handles the hit once the event is delivered, after the collision pass has finished,
+ * by removing both, scoring the shooter and spawning new enemies.
+ * </p>
+ */
+public class EnemyHit {
+
+    /**
+     * The bullet that hit.
+     */
+    private Bullet bullet;
+    /**
+     * The enemy that got hit.
+     */
+    private Enemy enemy;
+    /**
+     * The player who shot the bullet.
+     */
+    private Player shooter;
+
+    /**
+     * Constructs the event.
+     *
+     * @param bullet that hit.
+     * @param enemy that got hit.
+     * @param shooter who shot the bullet.
+     */
+    public EnemyHit(Bullet bullet, Enemy enemy, Player shooter) {
+
+        this.bullet = bullet;
+        this.enemy = enemy;
+        this.shooter = shooter;
+    }
+
+    /**
+     * Gets the bullet that hit.
+     *
+     * @return the bullet.
+     */
+    public Bullet getBullet() { return bullet; }
+
+    /**
+     * Gets the enemy that got hit.
+     *
+     * @return the enemy.
+     */
+    public Enemy getEnemy() { return enemy; }
+
+    /**
+     * Gets the player who shot the bullet.
+     *
+     * @return the shooter.
+     */
+    public Player getShooter() { return shooter; }
+}
@@ -1,14 +1,11 @@
 package templeengine.examples.asteroids;
 
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.paint.Paint;
 import javafx.scene.shape.Shape;
 import templeengine.src.core.*;
 
-import java.io.File;
-import java.io.IOException;
 
 /**
  * The {@code Player} is the character the user controls.
@@ -65,10 +62,10 @@ public class Player extends GameObject {
     {
         setSmooth(false);
 
-        idle = new Animation(new Image("templeengine/examples/asteroids/res/player_idle.png"), false);
+        idle = new Animation(GameIO.loadImage("templeengine/examples/asteroids/res/player_idle.png"), false);
         idle.split(1,1,1);
 
-        shoot = new Animation(new Image("templeengine/examples/asteroids/res/player_shoot.png"),true);
+        shoot = new Animation(GameIO.loadImage("templeengine/examples/asteroids/res/player_shoot.png"),true);
         shoot.split(2,1,1);
 
         changeAnimation(idle);
@@ -83,23 +80,7 @@ public class Player extends GameObject {
 
         addCollider(new CollisionCircle(this, 0, 0, 19 * 3));
 
-        File f = new File("./highscore.dat");
-        boolean created = false;
-
-        try {
-
-            if(!f.exists())
-                created = f.createNewFile();
-
-        } catch (IOException e) {
-
-            e.printStackTrace();
-        }
-
-        if(!created)
-            highScore = Integer.parseInt(GameIO.loadProperty("./highscore","highScore"));
-        else
-            highScore = 0;
+        highScore = Integer.parseInt(GameIO.openStore("./highscore").get("highScore", "0"));
 
         label = new Label("Score: " + score + " Highscore: " + highScore);
         label.setScaleX(3);
@@ -149,7 +130,7 @@ public class Player extends GameObject {
 
             changeAnimation(shoot);
 
-            game.addObject(new Bullet("yes", this.x, this.y, this.angle, this));
+            game.addBullet(this.x, this.y, this.angle, this);
             lastShot = GameTime.frameCount();
 
         } else if(!Input.isKeyPressed(KeyCode.SPACE)) {
@@ -179,7 +160,7 @@ public class Player extends GameObject {
             game.getPane().getChildren().remove(label);
 
             if(highScore >= score)
-                GameIO.saveProperty("./highscore","highScore",highScore + "");
+                GameIO.openStore("./highscore").put("highScore", highScore + "");
         }
 
         super.onCollision(intersection, hitObject);
@@ -0,0 +1,26 @@
+package templeengine.examples.benchmark;
+
+/**
+ * The {@code Main} class of the benchmarks.
+ *
+ * <p>
+ * The benchmarks run inside a game like any other, since building GameObjects needs the JavaFX toolkit and an active game.
+ * The results are printed out and the app closes once done.
+ * </p>
+ */
+public class Main {
+
+    /**
+     * The starting point of the benchmarks. Creates a new instance of the SpawnBenchmark,
+     * or of the SnapshotBenchmark when started with "snapshot".
+     *
+     * @param args the benchmark to run.
+     */
+    public static void main(String... args) {
+
+        if(args.length > 0 && args[0].equals("snapshot"))
+            new SnapshotBenchmark("Temple benchmark", 320, 240, 3072, 1234);
+        else
+            new SpawnBenchmark("Temple benchmark", 320, 240, 3072, 1234);
+    }
+}
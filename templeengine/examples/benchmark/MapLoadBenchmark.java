@@ -0,0 +1,132 @@
+package templeengine.examples.benchmark;
+
+import templeengine.src.core.GameIO;
+import templeengine.src.core.MapData;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * The {@code MapLoadBenchmark} measures how fast maps are read in the text and the binary formats.
+ *
+ * <p>
+ * A big map is generated and written as a .map file, a .bmap file and a compressed .bmap file, each of which
+ * is then read a few times untimed and a few times timed. The average read time and size of each file are printed out.
+ * Only the map data is read, no tiles are built, so the benchmark doesn't need a game and runs on its own main.
+ * </p>
+ */
+public class MapLoadBenchmark {
+
+    /**
+     * Width and height of the generated map in tiles.
+     */
+    private static final int SIZE = 1024;
+    /**
+     * Untimed reads before the timed ones.
+     */
+    private static final int WARMUP = 3;
+    /**
+     * Timed reads.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args not used.
+     * @throws IOException if the temporary files couldn't be made.
+     */
+    public static void main(String... args) throws IOException {
+
+        MapData data = generate();
+
+        File text = File.createTempFile("temple", ".map");
+        File binary = File.createTempFile("temple", ".bmap");
+        File compressed = File.createTempFile("temple-deflate", ".bmap");
+
+        GameIO.writeMap(text.getPath(), data, false);
+        GameIO.writeMap(binary.getPath(), data, false);
+        GameIO.writeMap(compressed.getPath(), data, true);
+
+        System.out.println("Map of " + SIZE + "x" + SIZE + " tiles");
+
+        double textTime = measure(text);
+
+        System.out.println("Text:              " + result(textTime, text, textTime));
+        System.out.println("Binary:            " + result(measure(binary), binary, textTime));
+        System.out.println("Binary compressed: " + result(measure(compressed), compressed, textTime));
+
+        text.delete();
+        binary.delete();
+        compressed.delete();
+    }
+
+    /**
+     * Generates a map, a noisy tile layer and a sparse collision layer.
+     *
+     * @return data of the map.
+     */
+    private static MapData generate() {
+
+        Random random = new Random(1);
+
+        int[] map = new int[SIZE * SIZE];
+        int[] collisionMap = new int[SIZE * SIZE];
+
+        for(int i = 0; i < map.length; i++) {
+
+            map[i] = 1 + random.nextInt(48);
+            collisionMap[i] = random.nextInt(8) == 0 ? 1 : 0;
+        }
+
+        return new MapData("res/tileset.png", SIZE, SIZE, 16, 16, 2, map, collisionMap);
+    }
+
+    /**
+     * Measures the average read time of a map file.
+     *
+     * @param file the map file.
+     * @return average milliseconds per read.
+     */
+    private static double measure(File file) {
+
+        for(int i = 0; i < WARMUP; i++) {
+            read(file);
+        }
+
+        long start = System.nanoTime();
+
+        for(int i = 0; i < ROUNDS; i++) {
+            read(file);
+        }
+
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+
+    /**
+     * Reads a map file, checking it came out whole.
+     *
+     * @param file the map file.
+     */
+    private static void read(File file) {
+
+        MapData data = GameIO.readMap(file.getPath());
+
+        if(data == null || data.getMap().length != SIZE * SIZE)
+            throw new IllegalStateException("failed to read " + file);
+    }
+
+    /**
+     * Formats the result of a file.
+     *
+     * @param millis average milliseconds per read.
+     * @param file the map file.
+     * @param baseline milliseconds per read of the text map.
+     * @return the formatted result.
+     */
+    private static String result(double millis, File file, double baseline) {
+
+        return String.format("%8.2f ms %8d KB (%.1fx)", millis, file.length() / 1024, baseline / millis);
+    }
+}
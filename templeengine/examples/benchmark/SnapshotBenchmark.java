@@ -0,0 +1,126 @@
+package templeengine.examples.benchmark;
+
+import javafx.application.Platform;
+import templeengine.examples.asteroids.Enemy;
+import templeengine.src.core.*;
+
+import java.util.concurrent.Future;
+
+/**
+ * The {@code SnapshotBenchmark} measures how fast a canvas can be saved with a {@link SaveGame}.
+ *
+ * <p>
+ * A canvas of enemies is saved in full, then a tenth of them are moved and it's saved again as a delta,
+ * and finally both are loaded back. The time the game thread is held up by each save is printed out
+ * separately from the time the whole save takes, since the writing happens on a thread of its own.
+ * </p>
+ */
+public class SnapshotBenchmark extends GameCanvas {
+
+    /**
+     * Objects saved.
+     */
+    private static final int OBJECTS = 10000;
+    /**
+     * Untimed saves before the timed ones.
+     */
+    private static final int WARMUP = 5;
+
+    /**
+     * Constructs the benchmark and starts the Temple engine.
+     *
+     * @param name of the benchmark.
+     * @param cameraWidth of the window.
+     * @param cameraHeight of the window.
+     * @param sceneWidth of the canvas.
+     * @param sceneHeight of the canvas.
+     */
+    public SnapshotBenchmark(String name, double cameraWidth, double cameraHeight, double sceneWidth, double sceneHeight) {
+
+        super(name, cameraWidth, cameraHeight, sceneWidth, sceneHeight);
+
+        Temple.enter(this);
+    }
+
+    /**
+     * Runs the benchmark, prints the results and closes the app.
+     */
+    @Override
+    public void load() {
+
+        Prefab<Enemy> prefab = Enemy.prefab();
+
+        for(int i = 0; i < OBJECTS; i++) {
+
+            Enemy enemy = prefab.instantiate();
+            addObject(enemy);
+            enemy.setXY(Utilities.randInt(0, 3000), Utilities.randInt(0, 1200));
+            enemy.spawn(200, 0);
+        }
+
+        update();
+
+        SaveGame saves = new SaveGame(this, System.getProperty("java.io.tmpdir") + "/temple-benchmark");
+        saves.register(Enemy.class, prefab::instantiate);
+        saves.setFullEvery(1);
+
+        try {
+
+            for(int i = 0; i < WARMUP; i++) {
+                saves.save().get();
+            }
+
+            long start = System.nanoTime();
+            Future<?> full = saves.save();
+            long captured = System.nanoTime();
+            full.get();
+            long written = System.nanoTime();
+
+            print("Full save", captured - start, written - start);
+
+            saves.setFullEvery(10);
+
+            int moved = 0;
+
+            for(int i = 0; i < getObjectRegistry().size(); i += 10) {
+
+                GameObject o = getObjectRegistry().get(i);
+                o.setXY(o.getX2() + 1, o.getY2());
+                moved++;
+            }
+
+            start = System.nanoTime();
+            Future<?> delta = saves.save();
+            captured = System.nanoTime();
+            delta.get();
+            written = System.nanoTime();
+
+            print("Delta save (" + moved + " moved)", captured - start, written - start);
+
+            start = System.nanoTime();
+            saves.load();
+            update();
+
+            System.out.println("Load: " + String.format("%.2f", (System.nanoTime() - start) / 1e6) + " ms, " + getObjectRegistry().size() + " objects");
+
+        } catch (Exception e) {
+
+            e.printStackTrace();
+        }
+
+        Platform.exit();
+    }
+
+    /**
+     * Prints the times of a save.
+     *
+     * @param name of the save.
+     * @param held nanoseconds the game thread was held up.
+     * @param total nanoseconds until the save was on disk.
+     */
+    private static void print(String name, long held, long total) {
+
+        System.out.println(name + ": " + String.format("%.2f", held / 1e6) + " ms on the game thread, "
+                + String.format("%.2f", total / 1e6) + " ms until on disk");
+    }
+}
@@ -0,0 +1,126 @@
+package templeengine.examples.benchmark;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import templeengine.examples.asteroids.Enemy;
+import templeengine.src.core.*;
+
+import java.util.function.Supplier;
+
+/**
+ * The {@code SpawnBenchmark} measures how fast GameObjects can be built.
+ *
+ * <p>
+ * The same enemy is built two ways: with a constructor doing all the work, the way objects were built before prefabs,
+ * and from a {@link Prefab}. Each way runs a few warmup rounds first and is then timed, and the spawns per second
+ * of both are printed out.
+ * </p>
+ */
+public class SpawnBenchmark extends GameCanvas {
+
+    /**
+     * Objects built per round.
+     */
+    private static final int SPAWNS = 2000;
+    /**
+     * Untimed rounds before the timed one.
+     */
+    private static final int WARMUP = 3;
+
+    /**
+     * Constructs the benchmark and starts the Temple engine.
+     *
+     * @param name of the benchmark.
+     * @param cameraWidth of the window.
+     * @param cameraHeight of the window.
+     * @param sceneWidth of the canvas.
+     * @param sceneHeight of the canvas.
+     */
+    public SpawnBenchmark(String name, double cameraWidth, double cameraHeight, double sceneWidth, double sceneHeight) {
+
+        super(name, cameraWidth, cameraHeight, sceneWidth, sceneHeight);
+
+        Temple.enter(this);
+    }
+
+    /**
+     * Runs the benchmarks, prints the results and closes the app.
+     */
+    @Override
+    public void load() {
+
+        Prefab<Enemy> prefab = Enemy.prefab();
+
+        double constructed = measure(ConstructedEnemy::new);
+        double prefabbed = measure(prefab::instantiate);
+
+        System.out.println("Constructor: " + (int) constructed + " spawns/s");
+        System.out.println("Prefab:      " + (int) prefabbed + " spawns/s (" + String.format("%.1f", prefabbed / constructed) + "x)");
+
+        Platform.exit();
+    }
+
+    /**
+     * Measures the spawns per second of a way of building objects.
+     *
+     * @param builder builds an object.
+     * @return spawns per second of the timed round.
+     */
+    private double measure(Supplier<? extends GameObject> builder) {
+
+        for(int i = 0; i < WARMUP; i++) {
+            round(builder);
+        }
+
+        long start = System.nanoTime();
+
+        round(builder);
+
+        return SPAWNS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Builds a round of objects, then throws them away.
+     *
+     * @param builder builds an object.
+     */
+    private void round(Supplier<? extends GameObject> builder) {
+
+        GameObject last = null;
+
+        for(int i = 0; i < SPAWNS; i++) {
+            last = builder.get();
+        }
+
+        if(last == null)
+            throw new IllegalStateException();
+
+        clearObjects();
+        fixedUpdate();
+    }
+
+    /**
+     * An enemy built the way it was before prefabs, loading and splitting its animation in the constructor.
+     */
+    private static class ConstructedEnemy extends GameObject {
+
+        /**
+         * Constructs the enemy.
+         */
+        ConstructedEnemy() {
+
+            //decoded on every construction, GameIO.loadImage would hand out the image cached by the AssetManager
+            Animation idle = new Animation(new Image("templeengine/examples/asteroids/res/enemy_idle.png"), true);
+            idle.split(4,2,Utilities.randInt(20,60) / 8);
+
+            changeAnimation(idle);
+
+            this.setFitWidth(180 * 2);
+            this.setFitHeight(83 * 2);
+
+            this.name = "chun";
+
+            addCollider(new CollisionCircle(this, 180 / 2 + 18, 83 / 2 - 12, 70));
+        }
+    }
+}
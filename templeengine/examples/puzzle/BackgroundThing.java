@@ -1,7 +1,7 @@
 package templeengine.examples.puzzle;
 
-import javafx.scene.image.Image;
 import templeengine.src.core.Animation;
+import templeengine.src.core.GameIO;
 import templeengine.src.core.GameObject;
 
 /**
@@ -27,7 +27,7 @@ public class BackgroundThing extends GameObject {
 
         this.name = name;
 
-        idle = new Animation(new Image("templeengine/examples/puzzle/res/backgroundthing.png"),true);
+        idle = new Animation(GameIO.loadImage("templeengine/examples/puzzle/res/backgroundthing.png"),true);
         idle.split(9,1,60 / 9);
 
         changeAnimation(idle);
@@ -3,6 +3,7 @@ package templeengine.examples.puzzle;
 import javafx.scene.shape.Shape;
 import templeengine.src.core.CollisionRectangle;
 import templeengine.src.core.GameObject;
+import templeengine.src.core.Temple;
 
 /**
  * The {@code EndTrigger} is the ending block in the game.
@@ -41,7 +42,7 @@ public class EndTrigger extends GameObject {
 
         if(hitObject instanceof Player) {
 
-            ((Player) hitObject).loadNext();
+            Temple.getActiveGame().post(new LevelComplete((Player) hitObject));
             this.isCollidable = false;
         }
     }
@@ -0,0 +1,30 @@
+package templeengine.examples.puzzle;
+
+/**
+ * The {@code LevelComplete} event is posted when the player reaches the end of the level.
+ *
+ * <p>
+ * The game loads the next level once the event is delivered, after the collision pass has finished.
+ * </p>
+ */
+public class LevelComplete {
+
+    /**
+     * The player who reached the end.
+     */
+    private Player player;
+
+    /**
+     * Constructs the event.
+     *
+     * @param player who reached the end.
+     */
+    public LevelComplete(Player player) { this.player = player; }
+
+    /**
+     * Gets the player who reached the end.
+     *
+     * @return the player.
+     */
+    public Player getPlayer() { return player; }
+}
@@ -1,6 +1,5 @@
 package templeengine.examples.puzzle;
 
-import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.shape.Shape;
 import templeengine.src.core.*;
@@ -34,20 +33,14 @@ public class Player extends GameObject {
      */
     private Animation idle;
 
-    /**
-     * The game itself.
-     */
-    private PuzzleGame game;
-
     /**
      * Constructs the player.
      *
      * @param name name of the player.
-     * @param game to call for a reset once hitting the end.
      */
-    public Player(String name, PuzzleGame game)
+    public Player(String name)
     {
-        idle = new Animation(new Image("templeengine/examples/puzzle/res/player.png"),true);
+        idle = new Animation(GameIO.loadImage("templeengine/examples/puzzle/res/player.png"),true);
         idle.split(2,2,60 / 4);
 
         changeAnimation(idle);
@@ -58,7 +51,6 @@ public class Player extends GameObject {
         this.setOpacity(1);
 
         this.name = name;
-        this.game = game;
 
         addCollider(new CollisionRectangle(this, 0, 0, 64, 64));
     }
@@ -135,12 +127,4 @@ public class Player extends GameObject {
 
         super.update();
     }
-
-    /**
-     * Calls for the game to load the next map.
-     */
-    public void loadNext() {
-
-        game.loadNext();
-    }
 }
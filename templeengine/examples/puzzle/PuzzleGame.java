@@ -16,14 +16,15 @@ import templeengine.src.core.*;
  * This puzzle example game intends to showcase the TileMap feature, along with the usual collisions, sounds, etc.
  * The game starts by loading the TileMap from the level1.map and putting a few extra things, like triggers on the side
  * to reset the game if you hit them, and the end tile to go to the next level.
+ * The next level is always built in the background while the current one is played, so switching levels doesn't hitch.
  * </p>
  */
 public class PuzzleGame extends GameCanvas {
 
     /**
-     * The map of the game.
+     * The next level, being built in the background.
      */
-    private TileMap map;
+    private ScenePreload nextLevel;
     /**
      * The next level number.
      */
@@ -52,16 +53,27 @@ public class PuzzleGame extends GameCanvas {
     public void load() {
 
         GameSound.playMusic("res/tubes.mp3", getClass());
+        subscribe(LevelComplete.class, complete -> loadNext());
         loadNext();
     }
 
     /**
-     * Loads the next map according to next variable.
+     * Swaps in the next level and starts building the one after it.
      */
     public void loadNext() {
 
-        map = null;
-        clearObjects();
+        if(nextLevel == null)
+            nextLevel = preload(this::buildNext);
+
+        swapIn(nextLevel);
+
+        nextLevel = preload(this::buildNext);
+    }
+
+    /**
+     * Builds the next level according to next variable. Run in the background by a preload.
+     */
+    private void buildNext() {
 
         BackgroundThing thing = new BackgroundThing("thing");
         addObject(thing);
@@ -69,9 +81,9 @@ public class PuzzleGame extends GameCanvas {
         addObject(thing = new BackgroundThing("thing"));
         TileMap.setPositionRelativeToMap(thing, 3, 7, 32, 32, 2.0);
 
-        map = GameIO.loadMap("res/maps/level" + next,16,16, getClass());
+        TileMap map = GameIO.loadMap("res/maps/level" + next,16,16, getClass());
 
-        Player player = new Player("GOD", this);
+        Player player = new Player("GOD");
         EndTrigger end = new EndTrigger("DEVIL", 64, 64);
 
         switch(next) {
@@ -96,15 +108,17 @@ public class PuzzleGame extends GameCanvas {
 
         addObject(player);
         addObject(end);
-        addDeathBoundaries();
+        addDeathBoundaries(map);
 
         next++;
     }
 
     /**
      * Adds triggers to the sides.
+     *
+     * @param map the map of the level.
      */
-    private void addDeathBoundaries() {
+    private void addDeathBoundaries(TileMap map) {
 
         DeathTrigger death = new DeathTrigger("DEATH1",640, 64);
         addObject(death);
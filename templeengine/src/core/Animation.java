@@ -49,6 +49,8 @@ public class Animation {
         frameData = new ArrayList<>();
         this.spriteSheet = spriteSheet;
         this.isLooping = isLooping;
+
+        HotReload.track(this);
     }
 
     /**
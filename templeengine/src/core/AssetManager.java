@@ -0,0 +1,552 @@
+package templeengine.src.core;
+
+import javafx.scene.image.Image;
+import javafx.scene.media.AudioClip;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code AssetManager} decodes the images and sounds of the game ahead of time, in parallel, and keeps them ready.
+ *
+ * <p>
+ * Without it every image is decoded where it's first used, on the JavaFX thread, which holds up a frame for each.
+ * A preload takes a list of assets, usually read from a manifest file of a level, and decodes them on a pool of worker threads,
+ * one per core, while the game keeps running. Its progress can be read every frame to draw a loading bar.
+ * Once decoded the assets are kept by their URL, and {@code GameIO.loadImage()} and {@code GameSound.playSound()} hand out
+ * the decoded ones instead of decoding them again.
+ * </p>
+ *
+ * <p>
+ * Images are .png, .jpg, .jpeg, .gif and .bmp files, sounds are .wav, .mp3, .aiff and .m4a files played as {@link AudioClip}s.
+ * Paths are classpath locations like those of {@code GameIO.loadImage()}, or full URLs.
+ * Assets of a mounted {@link AssetPack} are served from the pack instead of the classpath.
+ * </p>
+ *
+ * <p>
+ * A manifest lists one asset per line, lines starting with # being comments:
+ * </p>
+ * <pre><code>
+ * # level 2
+ * templeengine/examples/asteroids/res/stage.jpg
+ * templeengine/examples/asteroids/res/hit.wav
+ * </code></pre>
+ *
+ * <p>
+ * The assets of the first level are listed by overriding {@code getAssets()} of the canvas, and the engine calls {@code load()}
+ * only once they're all decoded. Later levels can be preloaded while the current one is played:
+ * </p>
+ * <pre><code>
+ * AssetManager.Load assets = AssetManager.preload(AssetManager.readManifest("templeengine/examples/asteroids/res/level2.assets"));
+ *
+ * //every frame of the loading screen
+ * bar.setWidth(assets.getProgress() * 200);
+ * </code></pre>
+ */
+public class AssetManager {
+
+    /**
+     * The decoded images by URL.
+     */
+    private static final ConcurrentHashMap<String, Image> images = new ConcurrentHashMap<>();
+    /**
+     * The decoded sounds by URL.
+     */
+    private static final ConcurrentHashMap<String, AudioClip> sounds = new ConcurrentHashMap<>();
+
+    /**
+     * Key prefix of assets served from a mounted pack.
+     */
+    private static final String PACKED = "pack:";
+
+    /**
+     * The mounted packs, searched in the order mounted.
+     */
+    private static final CopyOnWriteArrayList<AssetPack> packs = new CopyOnWriteArrayList<>();
+
+    /**
+     * The worker threads, started on the first preload.
+     */
+    private static ExecutorService workers;
+
+    /**
+     * Decodes assets in parallel. Assets already decoded are counted as done right away.
+     *
+     * @param urls the assets.
+     * @return the progress of the preload.
+     */
+    public static Load preload(Collection<String> urls) {
+
+        Load load = new Load(urls.size());
+
+        for (String url : urls) {
+
+            if(isLoaded(url)) {
+
+                load.done(null);
+                continue;
+            }
+
+            getWorkers().execute(() -> {
+
+                try {
+
+                    if(isSound(url))
+                        getSound(url);
+                    else
+                        getImage(url);
+
+                    load.done(null);
+
+                } catch (RuntimeException e) {
+
+                    e.printStackTrace();
+                    load.done(url);
+                }
+            });
+        }
+
+        return load;
+    }
+
+    /**
+     * Reads a manifest file of assets, one per line. Empty lines and lines starting with # are skipped.
+     *
+     * @param url the classpath location of the manifest.
+     * @return the assets listed.
+     */
+    public static List<String> readManifest(String url) {
+
+        ArrayList<String> assets = new ArrayList<>();
+
+        try {
+
+            InputStream in = AssetManager.class.getClassLoader().getResourceAsStream(url);
+
+            if(in == null)
+                throw new FileNotFoundException(url);
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+
+            while((line = reader.readLine()) != null) {
+
+                line = line.trim();
+
+                if(!line.isEmpty() && !line.startsWith("#"))
+                    assets.add(line);
+            }
+
+            reader.close();
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+
+        return assets;
+    }
+
+    /**
+     * Gets an image, decoding it on the calling thread if it hasn't been decoded yet.
+     *
+     * @param url the classpath location or URL of the image.
+     * @return the image.
+     */
+    public static Image getImage(String url) {
+
+        String key = resolve(url);
+        Image image = images.get(key);
+
+        if(image != null)
+            return image;
+
+        TempleEvents.ImageLoad event = new TempleEvents.ImageLoad();
+        event.begin();
+
+        image = key.startsWith(PACKED) ? new Image(openPacked(key.substring(PACKED.length()))) : new Image(key);
+
+        if(image.isError())
+            throw new IllegalArgumentException("couldn't load " + url, image.getException());
+
+        GameIO.commitImageLoad(event, url, image);
+
+        //two threads decoding the same image both end up with the one stored first
+        Image stored = images.putIfAbsent(key, image);
+
+        return stored != null ? stored : image;
+    }
+
+    /**
+     * Gets a sound, loading it on the calling thread if it hasn't been loaded yet.
+     *
+     * @param url the classpath location or URL of the sound.
+     * @return the sound.
+     */
+    public static AudioClip getSound(String url) {
+
+        return sounds.computeIfAbsent(resolve(url), key -> new AudioClip(key.startsWith(PACKED) ? extractPacked(key.substring(PACKED.length())) : key));
+    }
+
+    /**
+     * Mounts a pack. Assets found in the pack are served from it rather than from the classpath.
+     *
+     * @param pack the pack.
+     */
+    public static void mount(AssetPack pack) { packs.add(pack); }
+
+    /**
+     * Unmounts a pack. Assets already decoded from it are kept.
+     *
+     * @param pack the pack.
+     */
+    public static void unmount(AssetPack pack) { packs.remove(pack); }
+
+    /**
+     * Gets the data of an asset from the mounted packs.
+     *
+     * @param path the classpath location of the asset.
+     * @return the data, null if no pack has the asset.
+     */
+    static ByteBuffer getPacked(String path) {
+
+        for (AssetPack pack : packs) {
+
+            ByteBuffer data = pack.get(path);
+
+            if(data != null)
+                return data;
+        }
+
+        return null;
+    }
+
+    /**
+     * Opens a stream over an asset of the mounted packs.
+     *
+     * @param path the classpath location of the asset.
+     * @return the stream, null if no pack has the asset.
+     */
+    static InputStream openPacked(String path) {
+
+        for (AssetPack pack : packs) {
+
+            InputStream in = pack.openStream(path);
+
+            if(in != null)
+                return in;
+        }
+
+        return null;
+    }
+
+    /**
+     * Extracts an asset of the mounted packs into a temporary file.
+     *
+     * @param path the classpath location of the asset.
+     * @return the URL of the file.
+     */
+    private static String extractPacked(String path) {
+
+        try {
+
+            for (AssetPack pack : packs) {
+
+                Path file = pack.extract(path);
+
+                if(file != null)
+                    return file.toUri().toString();
+            }
+
+        } catch (IOException e) {
+
+            throw new UncheckedIOException(e);
+        }
+
+        throw new IllegalArgumentException(path + " not found");
+    }
+
+    /**
+     * Turns a path relative to a class file into a classpath location, like {@code getResource()} of the class does.
+     *
+     * @param fileName the path relative to the class file, or absolute starting with /.
+     * @param c the class.
+     * @return the classpath location.
+     */
+    static String locate(String fileName, Class<?> c) {
+
+        if(fileName.startsWith("/"))
+            return fileName.substring(1);
+
+        String name = c.getName();
+        int dot = name.lastIndexOf('.');
+
+        return dot < 0 ? fileName : name.substring(0, dot).replace('.', '/') + "/" + fileName;
+    }
+
+    /**
+     * Replaces a decoded image, like when its file has changed.
+     *
+     * @param url the classpath location or URL of the image.
+     * @param image the new image.
+     */
+    static void replaceImage(String url, Image image) { images.put(resolve(url), image); }
+
+    /**
+     * Gets an image only if it's already decoded.
+     *
+     * @param url the classpath location or URL of the image.
+     * @return the image, null if it isn't decoded.
+     */
+    public static Image getLoadedImage(String url) { return images.get(resolve(url)); }
+
+    /**
+     * Checks whether an asset is decoded.
+     *
+     * @param url the classpath location or URL of the asset.
+     * @return true if it is, false if it isn't or doesn't exist.
+     */
+    public static boolean isLoaded(String url) {
+
+        try {
+
+            String key = resolve(url);
+
+            return images.containsKey(key) || sounds.containsKey(key);
+
+        } catch (IllegalArgumentException e) {
+
+            return false;
+        }
+    }
+
+    /**
+     * Forgets an asset, letting it be collected once nothing uses it anymore.
+     *
+     * @param url the classpath location or URL of the asset.
+     */
+    public static void unload(String url) {
+
+        String key = resolve(url);
+
+        images.remove(key);
+        sounds.remove(key);
+    }
+
+    /**
+     * Forgets every asset.
+     */
+    public static void clear() {
+
+        images.clear();
+        sounds.clear();
+    }
+
+    /**
+     * Turns a classpath location into a URL, the key the asset is kept by. Assets of a mounted pack get a key of their own.
+     *
+     * @param url the classpath location or URL.
+     * @return the URL.
+     */
+    static String resolve(String url) {
+
+        if(url.contains(":"))
+            return url;
+
+        String path = url.startsWith("/") ? url.substring(1) : url;
+
+        for (AssetPack pack : packs) {
+
+            if(pack.contains(path))
+                return PACKED + path;
+        }
+
+        URL resource = AssetManager.class.getClassLoader().getResource(path);
+
+        if(resource == null)
+            throw new IllegalArgumentException(url + " not found");
+
+        return resource.toString();
+    }
+
+    /**
+     * Checks whether an asset is a sound by its ending.
+     *
+     * @param url of the asset.
+     * @return true for sounds.
+     */
+    private static boolean isSound(String url) {
+
+        String lower = url.toLowerCase();
+
+        return lower.endsWith(".wav") || lower.endsWith(".mp3") || lower.endsWith(".aiff") || lower.endsWith(".m4a");
+    }
+
+    /**
+     * Gets the worker threads, starting them if needed.
+     *
+     * @return the workers.
+     */
+    private static synchronized ExecutorService getWorkers() {
+
+        if(workers == null) {
+
+            AtomicInteger count = new AtomicInteger();
+
+            workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()), r -> {
+
+                Thread thread = new Thread(r, "Temple assets " + count.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        return workers;
+    }
+
+    /**
+     * The progress of a preload.
+     */
+    public static class Load {
+
+        /**
+         * Amount of assets preloaded.
+         */
+        private int total;
+        /**
+         * Amount of assets done, failed ones included.
+         */
+        private AtomicInteger done = new AtomicInteger();
+        /**
+         * Opens once every asset is done.
+         */
+        private CountDownLatch latch;
+        /**
+         * The assets that failed to load.
+         */
+        private List<String> failures = new ArrayList<>();
+        /**
+         * Run once every asset is done.
+         */
+        private Runnable onDone;
+
+        /**
+         * Constructs the progress of a preload.
+         *
+         * @param total amount of assets.
+         */
+        Load(int total) {
+
+            this.total = total;
+            this.latch = new CountDownLatch(total);
+        }
+
+        /**
+         * Marks an asset done. Called by the workers.
+         *
+         * @param failure the asset if it failed, null if it loaded.
+         */
+        void done(String failure) {
+
+            Runnable run = null;
+
+            synchronized (this) {
+
+                if(failure != null)
+                    failures.add(failure);
+
+                if(done.incrementAndGet() == total)
+                    run = onDone;
+            }
+
+            latch.countDown();
+
+            if(run != null)
+                run.run();
+        }
+
+        /**
+         * Sets code to run once every asset is done. The code runs on the worker finishing last,
+         * or right away if the preload is already done.
+         *
+         * @param onDone the code.
+         */
+        public void onDone(Runnable onDone) {
+
+            synchronized (this) {
+
+                if(done.get() < total) {
+
+                    this.onDone = onDone;
+                    return;
+                }
+            }
+
+            onDone.run();
+        }
+
+        /**
+         * Waits until every asset is done.
+         */
+        public void await() {
+
+            try {
+
+                latch.await();
+
+            } catch (InterruptedException e) {
+
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Gets how far the preload is.
+         *
+         * @return from 0 to 1.
+         */
+        public double getProgress() { return total == 0 ? 1 : (double) done.get() / total; }
+        /**
+         * Checks whether every asset is done.
+         *
+         * @return true if done.
+         */
+        public boolean isDone() { return done.get() == total; }
+        /**
+         * Gets the amount of assets done.
+         *
+         * @return assets done, failed ones included.
+         */
+        public int getLoaded() { return done.get(); }
+        /**
+         * Gets the amount of assets preloaded.
+         *
+         * @return amount of assets.
+         */
+        public int getTotal() { return total; }
+        /**
+         * Gets the assets that failed to load.
+         *
+         * @return the failures.
+         */
+        public synchronized List<String> getFailures() { return new ArrayList<>(failures); }
+    }
+}
@@ -0,0 +1,349 @@
+package templeengine.src.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The {@code AssetPack} serves the resources of the game out of a single packed file, built by {@link AssetPacker}.
+ *
+ * <p>
+ * Loose resources cost a lookup and a stream of their own each, which adds up at startup, and even more inside a .jar.
+ * A pack is opened once and memory-mapped whole, and an asset is found by a binary search over the hashes of the index,
+ * straight in the mapped file, without reading anything into memory first. Assets are handed out as slices of the mapping,
+ * so uncompressed ones are never copied, only compressed ones get inflated into a buffer of their own.
+ * </p>
+ *
+ * <p>
+ * Packs are mounted into the {@link AssetManager}, after which images, sounds and maps are looked up from the pack first
+ * and from the classpath only if the pack doesn't have them. Paths are classpath locations, like
+ * "templeengine/examples/asteroids/res/stage.jpg". A pack can also be mounted when starting the game with -Dtemple.pack=file.
+ * </p>
+ * <pre><code>
+ * AssetManager.mount(AssetPack.open(Paths.get("asteroids.pak")));
+ * </code></pre>
+ *
+ * <p>
+ * The format, little-endian: the magic "TPAK", a version byte, 3 padding bytes, the amount of assets and 4 more padding bytes,
+ * then an index entry of 32 bytes per asset sorted by hash: the 64-bit FNV-1a hash of the path, the offset and the stored length
+ * of the data, its length uncompressed, flags and 4 padding bytes. The data of the assets comes after the index.
+ * </p>
+ */
+public class AssetPack {
+
+    /**
+     * The magic number, "TPAK".
+     */
+    static final int MAGIC = 0x4B415054;
+    /**
+     * The version of the format.
+     */
+    static final byte VERSION = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    static final int HEADER = 16;
+    /**
+     * Size of an index entry in bytes.
+     */
+    static final int ENTRY = 32;
+    /**
+     * Flag of data compressed with Deflate.
+     */
+    static final int DEFLATE = 1;
+
+    /**
+     * The pack file.
+     */
+    private Path path;
+    /**
+     * The whole file, mapped.
+     */
+    private MappedByteBuffer buffer;
+    /**
+     * Amount of assets.
+     */
+    private int count;
+
+    /**
+     * Assets extracted into temporary files, by path.
+     */
+    private HashMap<String, Path> extracted = new HashMap<>();
+
+    /**
+     * Constructs a pack over a mapped file.
+     *
+     * @param path the file.
+     * @param buffer the mapped file.
+     * @param count amount of assets.
+     */
+    private AssetPack(Path path, MappedByteBuffer buffer, int count) {
+
+        this.path = path;
+        this.buffer = buffer;
+        this.count = count;
+    }
+
+    /**
+     * Opens a pack, mapping the file.
+     *
+     * @param path the pack file.
+     * @return the pack.
+     * @throws IOException if the file couldn't be read or isn't a pack.
+     */
+    public static AssetPack open(Path path) throws IOException {
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+        //the mapping stays valid after the channel closes
+        channel.close();
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if(buffer.limit() < HEADER || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION)
+            throw new IOException(path + " is not an asset pack");
+
+        int count = buffer.getInt(8);
+
+        if(count < 0 || HEADER + (long) count * ENTRY > buffer.limit())
+            throw new IOException(path + " is corrupt");
+
+        return new AssetPack(path, buffer, count);
+    }
+
+    /**
+     * Checks whether the pack has an asset.
+     *
+     * @param path the classpath location of the asset.
+     * @return true if it does.
+     */
+    public boolean contains(String path) { return find(hash(path)) >= 0; }
+
+    /**
+     * Gets the data of an asset. Uncompressed assets are a read-only slice of the mapped file, compressed ones are inflated.
+     *
+     * @param path the classpath location of the asset.
+     * @return the data, null if the pack doesn't have the asset.
+     */
+    public ByteBuffer get(String path) {
+
+        int entry = find(hash(path));
+
+        if(entry < 0)
+            return null;
+
+        int at = HEADER + entry * ENTRY;
+        int offset = (int) buffer.getLong(at + 8);
+        int length = buffer.getInt(at + 16);
+        int size = buffer.getInt(at + 20);
+        int flags = buffer.getInt(at + 24);
+
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset).limit(offset + length);
+        data = data.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+
+        if((flags & DEFLATE) == 0)
+            return data;
+
+        Inflater inflater = new Inflater();
+        ByteBuffer inflated = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] in = new byte[length];
+
+        data.get(in);
+        inflater.setInput(in);
+
+        try {
+
+            int read = inflater.inflate(inflated.array());
+
+            if(read != size || !inflater.finished())
+                throw new IllegalStateException(path + " is corrupt in " + this.path + ", inflated " + read + " of " + size + " bytes");
+
+        } catch (DataFormatException e) {
+
+            throw new IllegalStateException(path + " is corrupt in " + this.path, e);
+
+        } finally {
+
+            inflater.end();
+        }
+
+        return inflated;
+    }
+
+    /**
+     * Opens a stream over the data of an asset, for loaders taking streams like {@code new Image()}.
+     *
+     * @param path the classpath location of the asset.
+     * @return the stream, null if the pack doesn't have the asset.
+     */
+    public InputStream openStream(String path) {
+
+        ByteBuffer data = get(path);
+
+        return data == null ? null : new BufferStream(data);
+    }
+
+    /**
+     * Extracts an asset into a temporary file, once, for loaders only taking URLs like {@code AudioClip}.
+     *
+     * @param path the classpath location of the asset.
+     * @return the file, null if the pack doesn't have the asset.
+     * @throws IOException if the file couldn't be written.
+     */
+    public synchronized Path extract(String path) throws IOException {
+
+        Path file = extracted.get(path);
+
+        if(file != null)
+            return file;
+
+        ByteBuffer data = get(path);
+
+        if(data == null)
+            return null;
+
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        file = Files.createTempFile("temple", name);
+        file.toFile().deleteOnExit();
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+
+        while(data.hasRemaining()) {
+            channel.write(data);
+        }
+
+        channel.close();
+        extracted.put(path, file);
+
+        return file;
+    }
+
+    /**
+     * Finds the index entry of a hash with a binary search over the mapped index.
+     *
+     * @param hash hash of the path.
+     * @return index of the entry, -1 if there is none.
+     */
+    private int find(long hash) {
+
+        int low = 0;
+        int high = count - 1;
+
+        while(low <= high) {
+
+            int mid = (low + high) >>> 1;
+            long h = buffer.getLong(HEADER + mid * ENTRY);
+
+            if(h < hash)
+                low = mid + 1;
+            else if(h > hash)
+                high = mid - 1;
+            else
+                return mid;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Hashes a path with 64-bit FNV-1a over its UTF-8 bytes. A leading / is ignored.
+     *
+     * @param path the classpath location.
+     * @return the hash.
+     */
+    static long hash(String path) {
+
+        if(path.startsWith("/"))
+            path = path.substring(1);
+
+        long hash = 0xcbf29ce484222325L;
+
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Gets the amount of assets in the pack.
+     *
+     * @return amount of assets.
+     */
+    public int size() { return count; }
+
+    /**
+     * Gets the pack file.
+     *
+     * @return the file.
+     */
+    public Path getPath() { return path; }
+
+    /**
+     * A stream over a buffer, reading it without copying it first.
+     */
+    private static class BufferStream extends InputStream {
+
+        /**
+         * The buffer read.
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * Constructs a stream over a buffer.
+         *
+         * @param buffer the buffer, read from its position to its limit.
+         */
+        BufferStream(ByteBuffer buffer) { this.buffer = buffer; }
+
+        /**
+         * Reads a byte.
+         *
+         * @return the byte, -1 at the end.
+         */
+        @Override
+        public int read() { return buffer.hasRemaining() ? buffer.get() & 0xFF : -1; }
+
+        /**
+         * Reads bytes.
+         *
+         * @param bytes read into.
+         * @param offset where in the array to start.
+         * @param length most bytes to read.
+         * @return bytes read, -1 at the end.
+         */
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+
+            if(!buffer.hasRemaining())
+                return -1;
+
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+
+            return length;
+        }
+
+        /**
+         * Gets the bytes left.
+         *
+         * @return bytes left.
+         */
+        @Override
+        public int available() { return buffer.remaining(); }
+    }
+}
@@ -0,0 +1,261 @@
+package templeengine.src.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * The {@code AssetPacker} builds an {@link AssetPack} out of the res directories of a source tree.
+ *
+ * <p>
+ * Every file inside a directory named res is packed under its path relative to the source root, which is its classpath location.
+ * Assets that squeeze well, like maps and sounds, are compressed with Deflate, while images and music that are compressed
+ * already are stored as they are, so they can be handed out straight from the mapped pack.
+ * </p>
+ *
+ * <p>
+ * The packer runs from the command line, with the pack to write and the source root:
+ * </p>
+ * <pre><code>
+ * java templeengine.src.core.AssetPacker asteroids.pak .
+ * </code></pre>
+ */
+public class AssetPacker {
+
+    /**
+     * Endings of files compressed already, stored without compressing again.
+     * Binary maps compress their layers themselves, and are parsed straight from the mapped pack.
+     */
+    private static final String[] STORED = {".png", ".jpg", ".jpeg", ".gif", ".mp3", ".m4a", ".pak", ".bmap"};
+
+    /**
+     * Packs the res directories of a source tree from the command line.
+     *
+     * @param args the pack to write and the source root.
+     */
+    public static void main(String... args) {
+
+        if(args.length != 2) {
+
+            System.out.println("usage: AssetPacker <pack> <source root>");
+            return;
+        }
+
+        try {
+
+            int count = pack(Paths.get(args[1]), Paths.get(args[0]));
+
+            System.out.println("packed " + count + " assets into " + args[0]);
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Packs every file inside a directory named res of a source tree.
+     *
+     * @param root the source root, paths inside the pack are relative to it.
+     * @param pack the pack to write.
+     * @return amount of assets packed.
+     * @throws IOException if the files couldn't be read or the pack written, or two paths hash the same.
+     */
+    public static int pack(Path root, Path pack) throws IOException {
+
+        List<Path> files;
+
+        try (Stream<Path> walk = Files.walk(root)) {
+
+            files = walk.filter(Files::isRegularFile)
+                    .filter(f -> isResource(root.relativize(f)))
+                    .collect(Collectors.toList());
+        }
+
+        return pack(root, files, pack);
+    }
+
+    /**
+     * Packs files.
+     *
+     * @param root the source root, paths inside the pack are relative to it.
+     * @param files the files.
+     * @param pack the pack to write.
+     * @return amount of assets packed.
+     * @throws IOException if the files couldn't be read or the pack written, or two paths hash the same.
+     */
+    public static int pack(Path root, List<Path> files, Path pack) throws IOException {
+
+        ArrayList<Asset> assets = new ArrayList<>();
+        HashMap<Long, String> paths = new HashMap<>();
+
+        for (Path file : files) {
+
+            String path = root.relativize(file).toString().replace('\\', '/');
+            long hash = AssetPack.hash(path);
+
+            if(paths.containsKey(hash))
+                throw new IOException(path + " and " + paths.get(hash) + " hash the same, rename one");
+
+            paths.put(hash, path);
+            assets.add(new Asset(path, hash, Files.readAllBytes(file)));
+        }
+
+        assets.sort(Comparator.comparingLong(a -> a.hash));
+
+        long offset = AssetPack.HEADER + (long) assets.size() * AssetPack.ENTRY;
+        ByteBuffer index = ByteBuffer.allocate(AssetPack.HEADER + assets.size() * AssetPack.ENTRY).order(ByteOrder.LITTLE_ENDIAN);
+
+        index.putInt(AssetPack.MAGIC);
+        index.put(AssetPack.VERSION);
+        index.put(new byte[3]);
+        index.putInt(assets.size());
+        index.putInt(0);
+
+        for (Asset asset : assets) {
+
+            asset.compress();
+
+            index.putLong(asset.hash);
+            index.putLong(offset);
+            index.putInt(asset.stored.length);
+            index.putInt(asset.data.length);
+            index.putInt(asset.flags);
+            index.putInt(0);
+
+            offset += asset.stored.length;
+        }
+
+        index.flip();
+
+        Path temp = pack.resolveSibling(pack.getFileName() + ".tmp");
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        write(channel, index);
+
+        for (Asset asset : assets) {
+            write(channel, ByteBuffer.wrap(asset.stored));
+        }
+
+        channel.force(true);
+        channel.close();
+
+        Files.move(temp, pack, StandardCopyOption.REPLACE_EXISTING);
+
+        return assets.size();
+    }
+
+    /**
+     * Checks whether a file is inside a directory named res.
+     *
+     * @param path the path of the file relative to the source root.
+     * @return true if it is.
+     */
+    private static boolean isResource(Path path) {
+
+        for(int i = 0; i < path.getNameCount() - 1; i++) {
+
+            if(path.getName(i).toString().equals("res"))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes a whole buffer.
+     *
+     * @param channel the channel.
+     * @param buffer the buffer.
+     * @throws IOException if it couldn't be written.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * An asset being packed.
+     */
+    private static class Asset {
+
+        /**
+         * The classpath location.
+         */
+        private String path;
+        /**
+         * Hash of the path.
+         */
+        private long hash;
+        /**
+         * The data of the file.
+         */
+        private byte[] data;
+        /**
+         * The data as stored in the pack.
+         */
+        private byte[] stored;
+        /**
+         * Flags of the stored data.
+         */
+        private int flags = 0;
+
+        /**
+         * Constructs an asset.
+         *
+         * @param path the classpath location.
+         * @param hash hash of the path.
+         * @param data the data of the file.
+         */
+        Asset(String path, long hash, byte[] data) {
+
+            this.path = path;
+            this.hash = hash;
+            this.data = data;
+            this.stored = data;
+        }
+
+        /**
+         * Compresses the data, unless it's compressed already or doesn't get at least a tenth smaller.
+         */
+        void compress() {
+
+            String lower = path.toLowerCase();
+
+            for (String ending : STORED) {
+
+                if(lower.endsWith(ending))
+                    return;
+            }
+
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            byte[] out = new byte[data.length + 64];
+
+            deflater.setInput(data);
+            deflater.finish();
+
+            int length = deflater.deflate(out);
+            boolean finished = deflater.finished();
+
+            deflater.end();
+
+            if(finished && length < data.length * 0.9) {
+
+                stored = new byte[length];
+                System.arraycopy(out, 0, stored, 0, length);
+                flags = AssetPack.DEFLATE;
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package templeengine.src.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The {@code BinaryMapFormat} reads and writes the binary .bmap format described in {@link MapData}.
+ *
+ * <p>
+ * Reading works straight off a {@link ByteBuffer}, usually a memory-mapped file, and copies the layers into
+ * int arrays in bulk, so there is no text to parse and nothing to throw away afterwards.
+ * </p>
+ */
+class BinaryMapFormat {
+
+    /**
+     * The magic number, "TMAP".
+     */
+    static final int MAGIC = 0x544D4150;
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Layer type of the image locations.
+     */
+    private static final int LAYER_TILES = 0;
+    /**
+     * Layer type of the collisions.
+     */
+    private static final int LAYER_COLLISIONS = 1;
+    /**
+     * Layer type of named layers.
+     */
+    private static final int LAYER_NAMED = 2;
+
+    /**
+     * Layer flag for values stored as 16-bit shorts.
+     */
+    static final int SHORTS = 1;
+    /**
+     * Layer flag for deflate compressed layer data.
+     */
+    static final int DEFLATE = 1 << 1;
+    /**
+     * Most that deflate can shrink data by, which bounds how many cells the bytes of a map can hold.
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    /**
+     * Reads map data from a buffer.
+     * Every size read from the buffer is checked against what's left of it, so truncated or corrupt maps throw an IOException.
+     *
+     * @param buffer the buffer, positioned at the start of the map.
+     * @return the map data.
+     * @throws IOException if the buffer doesn't hold a valid map.
+     */
+    static MapData read(ByteBuffer buffer) throws IOException {
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if(buffer.remaining() < 7 || buffer.getInt() != MAGIC)
+            throw new IOException("not a binary map");
+
+        int version = buffer.get() & 0xFF;
+
+        if(version != VERSION)
+            throw new IOException("unsupported binary map version " + version);
+
+        byte[] urlBytes = new byte[buffer.getShort() & 0xFFFF];
+
+        //the url, the sizes, the scale and the layer count
+        require(buffer, urlBytes.length + 16 + 8 + 1);
+        buffer.get(urlBytes);
+
+        String url = new String(urlBytes, StandardCharsets.UTF_8);
+        int mapWidth = buffer.getInt();
+        int mapHeight = buffer.getInt();
+        int tileWidth = buffer.getInt();
+        int tileHeight = buffer.getInt();
+        double scale = buffer.getDouble();
+
+        long cells = (long) mapWidth * mapHeight;
+
+        //cells are read as ints, so the byte size of a layer has to fit an int, and at least 2 bytes of a cell have to be there
+        if(mapWidth <= 0 || mapHeight <= 0 || tileWidth <= 0 || tileHeight <= 0 || cells > Integer.MAX_VALUE / 4
+                || cells * 2 > (long) buffer.remaining() * MAX_DEFLATE_RATIO)
+            throw new IOException("corrupt binary map size " + mapWidth + "x" + mapHeight + " of " + tileWidth + "x" + tileHeight + " tiles");
+
+        int[] map = new int[mapWidth * mapHeight];
+        int[] collisionMap = new int[mapWidth * mapHeight];
+
+        MapData data = new MapData(url, mapWidth, mapHeight, tileWidth, tileHeight, scale, map, collisionMap);
+
+        int layers = buffer.get() & 0xFF;
+
+        for(int i = 0; i < layers; i++) {
+
+            require(buffer, 6);
+
+            int type = buffer.get() & 0xFF;
+            int flags = buffer.get() & 0xFF;
+            int length = buffer.getInt();
+
+            if(length < 0)
+                throw new IOException("corrupt binary map layer length " + length);
+
+            require(buffer, length);
+
+            ByteBuffer layer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+            layer.limit(length);
+            buffer.position(buffer.position() + length);
+
+            if(type == LAYER_TILES) {
+
+                readLayer(values(layer, flags, map.length), flags, map);
+
+            } else if(type == LAYER_COLLISIONS) {
+
+                readLayer(values(layer, flags, map.length), flags, collisionMap);
+
+            } else if(type == LAYER_NAMED) {
+
+                require(layer, 2);
+
+                byte[] name = new byte[layer.getShort() & 0xFFFF];
+
+                require(layer, name.length + 4 + 8);
+                layer.get(name);
+
+                int drawOrder = layer.getInt();
+                double parallax = layer.getDouble();
+                int[] tiles = new int[map.length];
+
+                readLayer(values(layer.slice().order(ByteOrder.LITTLE_ENDIAN), flags, map.length), flags, tiles);
+
+                String layerName = new String(name, StandardCharsets.UTF_8);
+
+                if(!TileMap.isLayerName(layerName))
+                    throw new IOException("corrupt binary map layer name " + layerName);
+
+                data.addLayer(new MapData.Layer(layerName, drawOrder, parallax, tiles));
+            }
+        }
+
+        return data;
+    }
+
+    /**
+     * Writes map data into bytes.
+     *
+     * @param data the map data.
+     * @param compress whether to deflate the layers.
+     * @return the bytes of the map.
+     */
+    static byte[] write(MapData data, boolean compress) {
+
+        byte[] url = (data.getUrl() == null ? "" : data.getUrl()).getBytes(StandardCharsets.UTF_8);
+        byte[][] layers = new byte[2 + data.getLayers().size()][];
+        int length = 0;
+
+        layers[0] = layer(LAYER_TILES, new byte[0], data.getMap(), compress);
+        layers[1] = layer(LAYER_COLLISIONS, new byte[0], data.getCollisionMap(), compress);
+
+        for(int i = 0; i < data.getLayers().size(); i++) {
+
+            MapData.Layer named = data.getLayers().get(i);
+            byte[] name = named.getName().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer meta = ByteBuffer.allocate(2 + name.length + 4 + 8).order(ByteOrder.LITTLE_ENDIAN);
+
+            meta.putShort((short) name.length);
+            meta.put(name);
+            meta.putInt(named.getDrawOrder());
+            meta.putDouble(named.getParallax());
+
+            layers[i + 2] = layer(LAYER_NAMED, meta.array(), named.getTiles(), compress);
+        }
+
+        for (byte[] layer : layers) {
+            length += layer.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + 2 + url.length + 16 + 8 + 1 + length).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putShort((short) url.length);
+        buffer.put(url);
+        buffer.putInt(data.getMapWidth());
+        buffer.putInt(data.getMapHeight());
+        buffer.putInt(data.getTileWidth());
+        buffer.putInt(data.getTileHeight());
+        buffer.putDouble(data.getScale());
+        buffer.put((byte) layers.length);
+
+        for (byte[] layer : layers) {
+            buffer.put(layer);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Checks that a buffer has enough bytes left.
+     *
+     * @param buffer the buffer.
+     * @param bytes amount of bytes needed.
+     * @throws IOException if the buffer has less.
+     */
+    private static void require(ByteBuffer buffer, int bytes) throws IOException {
+
+        if(buffer.remaining() < bytes)
+            throw new IOException("truncated binary map, " + bytes + " bytes needed but " + buffer.remaining() + " left");
+    }
+
+    /**
+     * Copies the values of a layer into an array.
+     *
+     * @param data the layer data.
+     * @param flags of the layer.
+     * @param values array to copy into.
+     * @throws IOException if the layer has less values than the map has cells.
+     */
+    private static void readLayer(ByteBuffer data, int flags, int[] values) throws IOException {
+
+        require(data, values.length * ((flags & SHORTS) != 0 ? 2 : 4));
+
+        if((flags & SHORTS) != 0) {
+
+            ShortBuffer shorts = data.asShortBuffer();
+
+            for(int i = 0; i < values.length; i++) {
+                values[i] = shorts.get(i);
+            }
+
+        } else {
+
+            IntBuffer ints = data.asIntBuffer();
+            ints.get(values);
+        }
+    }
+
+    /**
+     * Gets the values of a layer, decompressing them if needed.
+     *
+     * @param data the values as stored.
+     * @param flags of the layer.
+     * @param count amount of values.
+     * @return the values.
+     * @throws IOException if the layer is corrupt.
+     */
+    private static ByteBuffer values(ByteBuffer data, int flags, int count) throws IOException {
+
+        if((flags & DEFLATE) != 0)
+            return inflate(data, count * ((flags & SHORTS) != 0 ? 2 : 4));
+
+        return data;
+    }
+
+    /**
+     * Encodes a layer with its 6 byte header.
+     * Values are stored as shorts when all of them fit.
+     *
+     * @param type type of the layer.
+     * @param meta bytes before the values, not compressed.
+     * @param values the values of the layer.
+     * @param compress whether to deflate the values.
+     * @return the encoded layer.
+     */
+    private static byte[] layer(int type, byte[] meta, int[] values, boolean compress) {
+
+        boolean shorts = true;
+
+        for (int value : values) {
+
+            if(value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                shorts = false;
+                break;
+            }
+        }
+
+        ByteBuffer raw = ByteBuffer.allocate(values.length * (shorts ? 2 : 4)).order(ByteOrder.LITTLE_ENDIAN);
+
+        if(shorts) {
+
+            for (int value : values) {
+                raw.putShort((short) value);
+            }
+
+        } else {
+
+            raw.asIntBuffer().put(values);
+        }
+
+        byte[] data = compress ? deflate(raw.array()) : raw.array();
+
+        ByteBuffer layer = ByteBuffer.allocate(6 + meta.length + data.length).order(ByteOrder.LITTLE_ENDIAN);
+
+        layer.put((byte) type);
+        layer.put((byte) ((shorts ? SHORTS : 0) | (compress ? DEFLATE : 0)));
+        layer.putInt(meta.length + data.length);
+        layer.put(meta);
+        layer.put(data);
+
+        return layer.array();
+    }
+
+    /**
+     * Compresses bytes with deflate.
+     *
+     * @param raw the bytes.
+     * @return compressed bytes.
+     */
+    private static byte[] deflate(byte[] raw) {
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 16);
+        byte[] chunk = new byte[8192];
+
+        while(!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+
+        deflater.end();
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompresses a deflated layer.
+     *
+     * @param data the compressed layer.
+     * @param size size of the layer once decompressed.
+     * @return decompressed layer.
+     * @throws IOException if the layer is corrupt.
+     */
+    private static ByteBuffer inflate(ByteBuffer data, int size) throws IOException {
+
+        byte[] compressed = new byte[data.remaining()];
+        data.get(compressed);
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+
+        byte[] raw = new byte[size];
+
+        try {
+
+            int read = 0;
+
+            while(read < size && !inflater.finished()) {
+
+                int n = inflater.inflate(raw, read, size - read);
+
+                if(n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+
+                read += n;
+            }
+
+            if(read < size)
+                throw new IOException("truncated binary map layer, " + read + " of " + size + " bytes");
+
+        } catch (DataFormatException e) {
+
+            throw new IOException("corrupt binary map layer", e);
+
+        } finally {
+
+            inflater.end();
+        }
+
+        return ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,138 @@
+package templeengine.src.core;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * The {@code CollisionBaker} merges the solid cells of a collision map into as few rectangles as it can.
+ *
+ * <p>
+ * The merging is greedy: cells are gone through row by row, and each solid cell not yet covered starts a rectangle
+ * that is first grown right as far as the row stays solid, then down as far as every cell under it stays solid.
+ * That doesn't always find the fewest rectangles possible, but it comes close on level shaped maps and runs in linear time.
+ * A wall 40 tiles long becomes a single collider instead of 40.
+ * </p>
+ *
+ * <p>
+ * Rectangles never cross the edges of the region baked, which is what lets a {@link TileMap} rebake only the block
+ * around a changed cell.
+ * </p>
+ */
+class CollisionBaker {
+
+    /**
+     * Reused marks of the cells already covered by a rectangle.
+     */
+    private boolean[] covered = new boolean[0];
+    /**
+     * The rectangles baked, 4 values each: column, row, width and height in cells.
+     */
+    private int[] rectangles = new int[64];
+    /**
+     * Amount of rectangles baked.
+     */
+    private int count = 0;
+
+    /**
+     * Bakes a region of a collision map.
+     *
+     * @param collisions gets the collision of a cell by column and row, non-zero is solid.
+     * @param x0 first column of the region.
+     * @param y0 first row of the region.
+     * @param width width of the region in cells.
+     * @param height height of the region in cells.
+     * @return amount of rectangles baked, read them with {@code getRectangles()}.
+     */
+    int bake(IntBinaryOperator collisions, int x0, int y0, int width, int height) {
+
+        if(covered.length < width * height)
+            covered = new boolean[width * height];
+
+        for(int i = 0; i < width * height; i++) {
+            covered[i] = collisions.applyAsInt(x0 + i % width, y0 + i / width) == 0;
+        }
+
+        count = 0;
+
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+
+                if(covered[y * width + x])
+                    continue;
+
+                int w = 1;
+
+                while(x + w < width && !covered[y * width + x + w]) {
+                    w++;
+                }
+
+                int h = 1;
+
+                while(y + h < height && isRowFree(x, y + h, w, width)) {
+                    h++;
+                }
+
+                for(int ry = y; ry < y + h; ry++) {
+                    for(int rx = x; rx < x + w; rx++) {
+                        covered[ry * width + rx] = true;
+                    }
+                }
+
+                add(x0 + x, y0 + y, w, h);
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Checks whether a row of cells is solid and not yet covered.
+     *
+     * @param x first column.
+     * @param y the row.
+     * @param w amount of cells.
+     * @param width width of the region.
+     * @return true if every cell is free to cover.
+     */
+    private boolean isRowFree(int x, int y, int w, int width) {
+
+        for(int i = 0; i < w; i++) {
+
+            if(covered[y * width + x + i])
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Adds a rectangle.
+     *
+     * @param x column.
+     * @param y row.
+     * @param w width in cells.
+     * @param h height in cells.
+     */
+    private void add(int x, int y, int w, int h) {
+
+        if(count * 4 + 4 > rectangles.length) {
+
+            int[] grown = new int[rectangles.length * 2];
+            System.arraycopy(rectangles, 0, grown, 0, rectangles.length);
+            rectangles = grown;
+        }
+
+        rectangles[count * 4] = x;
+        rectangles[count * 4 + 1] = y;
+        rectangles[count * 4 + 2] = w;
+        rectangles[count * 4 + 3] = h;
+
+        count++;
+    }
+
+    /**
+     * Gets the rectangles of the last bake, 4 values each: column, row, width and height in cells.
+     *
+     * @return the rectangles, valid until the next bake.
+     */
+    int[] getRectangles() { return rectangles; }
+}
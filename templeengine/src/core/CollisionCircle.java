@@ -1,6 +1,5 @@
 package templeengine.src.core;
 
-import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Shape;
 
@@ -36,6 +35,11 @@ public class CollisionCircle extends Circle implements CollisionInterface {
      */
     private GameObject parent;
 
+    /**
+     * Slot of the collider in the registry of the canvas, -1 if not added.
+     */
+    private int registrySlot = -1;
+
     /**
      * Constructs the collider.
      *
@@ -56,11 +60,6 @@ public class CollisionCircle extends Circle implements CollisionInterface {
         setOriginX(originX + radius);
         setOriginY(originY + radius);
 
-        if(Temple.debug) {
-            setFill(new Color(0, 0, 1 ,0.5));
-            Temple.getActiveGame().getPane().getChildren().addAll(this);
-        }
-
         this.parent = parent;
     }
 
@@ -144,6 +143,12 @@ public class CollisionCircle extends Circle implements CollisionInterface {
     @Override
     public double getCWidth() { return getRadius(); }
 
+    /**
+     * Draws the collider with {@link DebugDraw}.
+     */
+    @Override
+    public void debugDraw() { DebugDraw.circle(getCenterX(), getCenterY(), getRadius(), DEBUG_COLOR); }
+
     /**
      * Gets the shape of the collider.
      *
@@ -159,4 +164,20 @@ public class CollisionCircle extends Circle implements CollisionInterface {
      */
     @Override
     public GameObject getParentObject() { return parent; }
+
+    /**
+     * Gets the registry slot of the collider.
+     *
+     * @return slot, -1 if not added to the canvas.
+     */
+    @Override
+    public int getRegistrySlot() { return registrySlot; }
+
+    /**
+     * Sets the registry slot of the collider. Only called by {@link EntityRegistry}.
+     *
+     * @param slot the slot.
+     */
+    @Override
+    public void setRegistrySlot(int slot) { registrySlot = slot; }
 }
@@ -1,5 +1,6 @@
 package templeengine.src.core;
 
+import javafx.scene.paint.Color;
 import javafx.scene.shape.Shape;
 
 /**
@@ -7,9 +8,15 @@ import javafx.scene.shape.Shape;
  *
  * <p>
  * Classes that implement this interface can be added as colliders for GameObjects.
+ * Colliders are kept in an {@link EntityRegistry}, so implementations also have to store their registry slot.
  * </p>
  */
-public interface CollisionInterface {
+public interface CollisionInterface extends Registered {
+
+    /**
+     * The color colliders are drawn with when Temple.debug = true.
+     */
+    Color DEBUG_COLOR = Color.rgb(0, 0, 255, 0.8);
 
     /**
      * Gets the origin x of the collider.
@@ -87,5 +94,11 @@ public interface CollisionInterface {
      * @return parent .
      */
     public GameObject getParentObject();
-}
 
+    /**
+     * Draws the collider with {@link DebugDraw}. Called by the engine every fixed update when Temple.debug = true.
+     *
+     * By default draws the bounding rectangle of the collider.
+     */
+    public default void debugDraw() { DebugDraw.rect(getCX(), getCY(), getCWidth(), getCHeight(), DEBUG_COLOR); }
+}
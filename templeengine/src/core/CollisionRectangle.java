@@ -1,6 +1,5 @@
 package templeengine.src.core;
 
-import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
 
@@ -36,6 +35,11 @@ public class CollisionRectangle extends Rectangle implements CollisionInterface
      */
     private GameObject parent;
 
+    /**
+     * Slot of the collider in the registry of the canvas, -1 if not added.
+     */
+    private int registrySlot = -1;
+
     /**
      * Constructs the collider.
      *
@@ -54,11 +58,6 @@ public class CollisionRectangle extends Rectangle implements CollisionInterface
         setOriginX(originX);
         setOriginY(originY);
 
-        if(Temple.debug) {
-            setFill(new Color(0, 0, 1 ,0.5));
-            Temple.getActiveGame().getPane().getChildren().addAll(this);
-        }
-
         this.parent = parent;
     }
 
@@ -142,6 +141,12 @@ public class CollisionRectangle extends Rectangle implements CollisionInterface
     @Override
     public double getCWidth() { return getWidth(); }
 
+    /**
+     * Draws the collider with {@link DebugDraw}.
+     */
+    @Override
+    public void debugDraw() { DebugDraw.rect(getX(), getY(), getWidth(), getHeight(), getRotate(), DEBUG_COLOR); }
+
     /**
      * Gets the shape of the collider.
      *
@@ -157,4 +162,20 @@ public class CollisionRectangle extends Rectangle implements CollisionInterface
      */
     @Override
     public GameObject getParentObject() { return parent; }
+
+    /**
+     * Gets the registry slot of the collider.
+     *
+     * @return slot, -1 if not added to the canvas.
+     */
+    @Override
+    public int getRegistrySlot() { return registrySlot; }
+
+    /**
+     * Sets the registry slot of the collider. Only called by {@link EntityRegistry}.
+     *
+     * @param slot the slot.
+     */
+    @Override
+    public void setRegistrySlot(int slot) { registrySlot = slot; }
 }
@@ -0,0 +1,244 @@
+package templeengine.src.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code CommandBuffer} captures the changes parallel-safe objects make to the scene while they update on other threads.
+ *
+ * <p>
+ * Every chunk of the parallel update phase gets its own buffer, set as the buffer of the thread running the chunk.
+ * Adding and removing objects and colliders, and posting events, is recorded into the buffer instead of touching the canvas,
+ * and the node changes GameObjects make to themselves (position, rotation, animation frame) are marked to be done later,
+ * since the JavaFX scene graph can only be changed from the JavaFX thread.
+ * Once the phase is over the canvas applies the buffers on its own thread in chunk order, so the result is
+ * the same no matter which threads ran which chunks.
+ * </p>
+ *
+ * <p>
+ * A {@link ScenePreload} uses a buffer the same way, capturing everything a level adds while being built in the background.
+ * </p>
+ */
+class CommandBuffer {
+
+    /**
+     * Node position needs to be set.
+     */
+    static final int SYNC_TRANSLATE = 1;
+    /**
+     * Node rotation needs to be set.
+     */
+    static final int SYNC_ROTATE = 1 << 1;
+    /**
+     * Node image and viewport need to be set.
+     */
+    static final int SYNC_FRAME = 1 << 2;
+
+    /**
+     * Command adding an object.
+     */
+    private static final byte ADD_OBJECT = 0;
+    /**
+     * Command removing an object.
+     */
+    private static final byte REMOVE_OBJECT = 1;
+    /**
+     * Command adding a collider.
+     */
+    private static final byte ADD_COLLIDER = 2;
+    /**
+     * Command removing a collider.
+     */
+    private static final byte REMOVE_COLLIDER = 3;
+    /**
+     * Command adding a TileMap to the maps updated by the canvas.
+     */
+    private static final byte ADD_TILE_MAP = 4;
+    /**
+     * Command posting an event to a bus.
+     */
+    private static final byte POST = 5;
+
+    /**
+     * Amount of parallel phases and preloads running. Keeps the thread check off the normal path.
+     */
+    private static final AtomicInteger active = new AtomicInteger();
+    /**
+     * The buffer of each worker thread, null outside of a chunk.
+     */
+    private static final ThreadLocal<CommandBuffer> current = new ThreadLocal<>();
+
+    /**
+     * Recorded commands.
+     */
+    private byte[] commands = new byte[16];
+    /**
+     * Targets of the recorded commands.
+     */
+    private Object[] targets = new Object[16];
+    /**
+     * Amount of recorded commands.
+     */
+    private int size = 0;
+    /**
+     * Objects waiting for their nodes to be synced.
+     */
+    private ArrayList<GameObject> syncs = new ArrayList<>();
+
+    /**
+     * Marks the start of a parallel phase or preload.
+     */
+    static void begin() { active.incrementAndGet(); }
+
+    /**
+     * Marks the end of a parallel phase or preload.
+     */
+    static void end() { active.decrementAndGet(); }
+
+    /**
+     * Sets the buffer of the current thread.
+     *
+     * @param buffer the buffer, null to clear it.
+     */
+    static void setCurrent(CommandBuffer buffer) {
+
+        if(buffer == null)
+            current.remove();
+        else
+            current.set(buffer);
+    }
+
+    /**
+     * Gets the buffer of the current thread.
+     *
+     * @return the buffer, null if the thread isn't running a parallel chunk.
+     */
+    private static CommandBuffer current() { return active.get() > 0 ? current.get() : null; }
+
+    /**
+     * Records adding an object, if called from a parallel chunk.
+     *
+     * @param o the object.
+     * @return true if recorded, false if the caller should add it right away.
+     */
+    static boolean addObject(GameObject o) { return record(ADD_OBJECT, o); }
+    /**
+     * Records removing an object, if called from a parallel chunk.
+     *
+     * @param o the object.
+     * @return true if recorded, false if the caller should remove it right away.
+     */
+    static boolean removeObject(GameObject o) { return record(REMOVE_OBJECT, o); }
+    /**
+     * Records adding a collider, if called from a parallel chunk.
+     *
+     * @param c the collider.
+     * @return true if recorded, false if the caller should add it right away.
+     */
+    static boolean addCollider(CollisionInterface c) { return record(ADD_COLLIDER, c); }
+    /**
+     * Records removing a collider, if called from a parallel chunk.
+     *
+     * @param c the collider.
+     * @return true if recorded, false if the caller should remove it right away.
+     */
+    static boolean removeCollider(CollisionInterface c) { return record(REMOVE_COLLIDER, c); }
+    /**
+     * Records adding a TileMap to the maps updated by the canvas, if called from a parallel chunk or a preload.
+     *
+     * @param map the map.
+     * @return true if recorded, false if the caller should add it right away.
+     */
+    static boolean addTileMap(TileMap map) { return record(ADD_TILE_MAP, map); }
+    /**
+     * Records posting an event, if called from a parallel chunk or a preload.
+     *
+     * @param bus the bus posted to.
+     * @param event the event.
+     * @return true if recorded, false if the caller should post it right away.
+     */
+    static boolean post(EventBus bus, Object event) { return current() != null && record(POST, new Object[] {bus, event}); }
+
+    /**
+     * Marks the node of an object to be synced later, if called from a parallel chunk.
+     *
+     * @param o the object.
+     * @param bits SYNC bits of what needs syncing.
+     * @return true if deferred, false if the caller should change the node right away.
+     */
+    static boolean defer(GameObject o, int bits) {
+
+        CommandBuffer buffer = current();
+
+        if(buffer == null)
+            return false;
+
+        if(o.getPendingSync() == 0)
+            buffer.syncs.add(o);
+
+        o.setPendingSync(o.getPendingSync() | bits);
+
+        return true;
+    }
+
+    /**
+     * Records a command into the buffer of the current thread.
+     *
+     * @param command the command.
+     * @param target the target of the command.
+     * @return true if recorded.
+     */
+    private static boolean record(byte command, Object target) {
+
+        CommandBuffer buffer = current();
+
+        if(buffer == null)
+            return false;
+
+        if(buffer.size == buffer.commands.length) {
+            buffer.commands = Arrays.copyOf(buffer.commands, buffer.size * 2);
+            buffer.targets = Arrays.copyOf(buffer.targets, buffer.size * 2);
+        }
+
+        buffer.commands[buffer.size] = command;
+        buffer.targets[buffer.size++] = target;
+
+        return true;
+    }
+
+    /**
+     * Syncs the deferred nodes and applies the recorded commands to a canvas, then empties the buffer.
+     * Has to be called on the JavaFX thread once the phase is over.
+     *
+     * @param canvas the canvas.
+     */
+    void apply(GameCanvas canvas) {
+
+        for (GameObject o : syncs) {
+
+            int bits = o.getPendingSync();
+
+            o.setPendingSync(0);
+            o.syncNode(bits);
+        }
+
+        syncs.clear();
+
+        for(int i = 0; i < size; i++) {
+
+            switch (commands[i]) {
+                case ADD_OBJECT: canvas.addObject((GameObject) targets[i]); break;
+                case REMOVE_OBJECT: canvas.removeObject((GameObject) targets[i]); break;
+                case ADD_COLLIDER: canvas.addCollider((CollisionInterface) targets[i]); break;
+                case REMOVE_COLLIDER: canvas.removeCollider((CollisionInterface) targets[i]); break;
+                case ADD_TILE_MAP: canvas.addTileMap((TileMap) targets[i]); break;
+                case POST: ((EventBus) ((Object[]) targets[i])[0]).post(((Object[]) targets[i])[1]); break;
+            }
+
+            targets[i] = null;
+        }
+
+        size = 0;
+    }
+}
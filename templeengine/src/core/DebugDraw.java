@@ -0,0 +1,280 @@
+package templeengine.src.core;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+/**
+ * The {@code DebugDraw} is an immediate mode way of drawing debug shapes on top of the game.
+ *
+ * <p>
+ * Calls made while {@code Temple.debug} is on get recorded into a reusable buffer of commands,
+ * which the {@link DebugOverlay} then rasterizes onto its canvas once per pulse. Nothing is added to the scene,
+ * so drawing a few thousand shapes costs a few thousand canvas calls instead of a few thousand nodes.
+ * With debug off every call returns right away.
+ * </p>
+ *
+ * <p>
+ * The buffer is cleared at the start of every fixed update, so shapes have to be drawn again each tick.
+ * Coordinates are in world space, same as the positions of GameObjects.
+ * </p>
+ *
+ * <p>
+ * Example code of drawing the velocity of a GameObject:
+ * </p>
+ * <pre><code>
+ * //inside a GameObject class method
+ * DebugDraw.line(x, y, x + velocityX * 10, y + velocityY * 10, Color.RED);
+ * </code></pre>
+ */
+public final class DebugDraw {
+
+    /**
+     * Command for a line.
+     */
+    private static final byte LINE = 0;
+    /**
+     * Command for a rectangle outline.
+     */
+    private static final byte RECT = 1;
+    /**
+     * Command for a filled rectangle.
+     */
+    private static final byte FILL_RECT = 2;
+    /**
+     * Command for a circle outline.
+     */
+    private static final byte CIRCLE = 3;
+    /**
+     * Command for a filled circle.
+     */
+    private static final byte FILL_CIRCLE = 4;
+    /**
+     * Command for text.
+     */
+    private static final byte TEXT = 5;
+
+    /**
+     * Numbers stored per command.
+     */
+    private static final int STRIDE = 5;
+
+    /**
+     * The recorded commands.
+     */
+    private static byte[] commands = new byte[256];
+    /**
+     * The numbers of the commands, STRIDE per command.
+     */
+    private static double[] values = new double[256 * STRIDE];
+    /**
+     * The colors of the commands.
+     */
+    private static Color[] colors = new Color[256];
+    /**
+     * The strings of the text commands.
+     */
+    private static String[] texts = new String[256];
+    /**
+     * Amount of commands recorded.
+     */
+    private static int size = 0;
+
+    /**
+     * No instances, everything is static.
+     */
+    private DebugDraw() {}
+
+    /**
+     * Draws a line.
+     *
+     * @param x1 start x.
+     * @param y1 start y.
+     * @param x2 end x.
+     * @param y2 end y.
+     * @param color of the line.
+     */
+    public static void line(double x1, double y1, double x2, double y2, Color color) { record(LINE, x1, y1, x2, y2, 0, color, null); }
+
+    /**
+     * Draws the outline of a rectangle.
+     *
+     * @param x of the rectangle.
+     * @param y of the rectangle.
+     * @param width of the rectangle.
+     * @param height of the rectangle.
+     * @param color of the outline.
+     */
+    public static void rect(double x, double y, double width, double height, Color color) { record(RECT, x, y, width, height, 0, color, null); }
+
+    /**
+     * Draws the outline of a rectangle rotated around its center.
+     *
+     * @param x of the rectangle.
+     * @param y of the rectangle.
+     * @param width of the rectangle.
+     * @param height of the rectangle.
+     * @param rotation in degrees, positive for clockwise.
+     * @param color of the outline.
+     */
+    public static void rect(double x, double y, double width, double height, double rotation, Color color) { record(RECT, x, y, width, height, rotation, color, null); }
+
+    /**
+     * Draws a filled rectangle.
+     *
+     * @param x of the rectangle.
+     * @param y of the rectangle.
+     * @param width of the rectangle.
+     * @param height of the rectangle.
+     * @param color of the fill.
+     */
+    public static void fillRect(double x, double y, double width, double height, Color color) { record(FILL_RECT, x, y, width, height, 0, color, null); }
+
+    /**
+     * Draws the outline of a circle.
+     *
+     * @param centerX of the circle.
+     * @param centerY of the circle.
+     * @param radius of the circle.
+     * @param color of the outline.
+     */
+    public static void circle(double centerX, double centerY, double radius, Color color) { record(CIRCLE, centerX, centerY, radius, 0, 0, color, null); }
+
+    /**
+     * Draws a filled circle.
+     *
+     * @param centerX of the circle.
+     * @param centerY of the circle.
+     * @param radius of the circle.
+     * @param color of the fill.
+     */
+    public static void fillCircle(double centerX, double centerY, double radius, Color color) { record(FILL_CIRCLE, centerX, centerY, radius, 0, 0, color, null); }
+
+    /**
+     * Draws text.
+     *
+     * @param text to draw.
+     * @param x of the baseline start.
+     * @param y of the baseline.
+     * @param color of the text.
+     */
+    public static void text(String text, double x, double y, Color color) { record(TEXT, x, y, 0, 0, 0, color, text); }
+
+    /**
+     * Gets the amount of commands recorded.
+     *
+     * @return command count.
+     */
+    public static int size() { return size; }
+
+    /**
+     * Clears the recorded commands. Called by the engine at the start of every fixed update.
+     */
+    public static void clear() {
+
+        Arrays.fill(texts, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Records a command, growing the buffers if needed.
+     *
+     * @param command the command.
+     * @param a first number.
+     * @param b second number.
+     * @param c third number.
+     * @param d fourth number.
+     * @param e fifth number.
+     * @param color of the command.
+     * @param text of the command, null if not text.
+     */
+    private static void record(byte command, double a, double b, double c, double d, double e, Color color, String text) {
+
+        if(!Temple.debug)
+            return;
+
+        if(size == commands.length) {
+
+            commands = Arrays.copyOf(commands, size * 2);
+            values = Arrays.copyOf(values, size * 2 * STRIDE);
+            colors = Arrays.copyOf(colors, size * 2);
+            texts = Arrays.copyOf(texts, size * 2);
+        }
+
+        int i = size * STRIDE;
+
+        commands[size] = command;
+        values[i] = a;
+        values[i + 1] = b;
+        values[i + 2] = c;
+        values[i + 3] = d;
+        values[i + 4] = e;
+        colors[size] = color;
+        texts[size] = text;
+
+        size++;
+    }
+
+    /**
+     * Rasterizes the recorded commands. The commands are kept until the next clear.
+     *
+     * @param g the graphics to draw with.
+     * @param offsetX world x of the left edge of the graphics.
+     * @param offsetY world y of the top edge of the graphics.
+     */
+    static void rasterize(GraphicsContext g, double offsetX, double offsetY) {
+
+        g.setLineWidth(1);
+
+        for(int n = 0; n < size; n++) {
+
+            int i = n * STRIDE;
+            double a = values[i] - offsetX;
+            double b = values[i + 1] - offsetY;
+
+            g.setStroke(colors[n]);
+            g.setFill(colors[n]);
+
+            switch(commands[n]) {
+
+                case LINE:
+                    g.strokeLine(a, b, values[i + 2] - offsetX, values[i + 3] - offsetY);
+                    break;
+
+                case RECT:
+
+                    if(values[i + 4] != 0) {
+
+                        g.save();
+                        g.translate(a + values[i + 2] / 2, b + values[i + 3] / 2);
+                        g.rotate(values[i + 4]);
+                        g.strokeRect(-values[i + 2] / 2, -values[i + 3] / 2, values[i + 2], values[i + 3]);
+                        g.restore();
+
+                    } else {
+
+                        g.strokeRect(a, b, values[i + 2], values[i + 3]);
+                    }
+
+                    break;
+
+                case FILL_RECT:
+                    g.fillRect(a, b, values[i + 2], values[i + 3]);
+                    break;
+
+                case CIRCLE:
+                    g.strokeOval(a - values[i + 2], b - values[i + 2], values[i + 2] * 2, values[i + 2] * 2);
+                    break;
+
+                case FILL_CIRCLE:
+                    g.fillOval(a - values[i + 2], b - values[i + 2], values[i + 2] * 2, values[i + 2] * 2);
+                    break;
+
+                case TEXT:
+                    g.fillText(texts[n], a, b);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package templeengine.src.core;
+
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The {@code DebugOverlay} draws the performance numbers of the engine on top of the game when {@code Temple.debug} is on.
+ *
+ * <p>
+ * Everything is drawn on a single {@link Canvas} that follows the camera, so the overlay adds one node to the scene
+ * no matter how much is going on in the game. The shapes recorded with {@link DebugDraw} are rasterized on the same canvas,
+ * under the performance panel. The metrics are kept in ring buffers and sampled once per pulse,
+ * the text is only refreshed a few times a second.
+ * </p>
+ *
+ * <p>
+ * The overlay shows the FPS, tick time with a sparkline of the recent ticks, object and collider counts,
+ * QuadTree quadrant count and depth, collider pairs tested per tick, used heap and the allocation rate of the game thread.
+ * </p>
+ */
+public class DebugOverlay {
+
+    /**
+     * Amount of samples kept in the ring buffers.
+     */
+    private static final int SAMPLES = 120;
+    /**
+     * Pulses between text refreshes.
+     */
+    private static final int TEXT_INTERVAL = 15;
+    /**
+     * Width of the panel.
+     */
+    private static final double PANEL_WIDTH = 230;
+    /**
+     * Height of the sparkline.
+     */
+    private static final double GRAPH_HEIGHT = 40;
+    /**
+     * Tick time the sparkline tops out at, 60fps worth of nanoseconds.
+     */
+    private static final double GRAPH_MAX_NANOS = 1e9 / 60;
+
+    /**
+     * The canvas the overlay is drawn on.
+     */
+    private Canvas canvas;
+    /**
+     * Graphics of the canvas.
+     */
+    private GraphicsContext graphics;
+
+    /**
+     * Ring buffer of tick durations.
+     */
+    private long[] tickNanos = new long[SAMPLES];
+    /**
+     * Ring buffer of pulse times, for the fps.
+     */
+    private long[] pulseTimes = new long[SAMPLES];
+    /**
+     * Next index to write in the ring buffers.
+     */
+    private int head;
+    /**
+     * Amount of samples written, capped at SAMPLES.
+     */
+    private int count;
+
+    /**
+     * Thread bean for reading allocated bytes, null if the JVM doesn't support it.
+     */
+    private com.sun.management.ThreadMXBean threadBean;
+    /**
+     * Allocated bytes of the game thread at the last text refresh.
+     */
+    private long lastAllocated = -1;
+    /**
+     * Time of the last text refresh.
+     */
+    private long lastRefresh;
+    /**
+     * Pulses since the last text refresh.
+     */
+    private int pulses;
+
+    /**
+     * The cached lines of text.
+     */
+    private String[] lines = new String[0];
+
+    /**
+     * Constructs the overlay with the size of the camera.
+     *
+     * @param width of the camera.
+     * @param height of the camera.
+     */
+    public DebugOverlay(double width, double height) {
+
+        canvas = new Canvas(width, height);
+        canvas.setMouseTransparent(true);
+        graphics = canvas.getGraphicsContext2D();
+        graphics.setFont(Font.font("Monospaced", 12));
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if(bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+    }
+
+    /**
+     * Gets the canvas of the overlay, to be added on top of the game.
+     *
+     * @return the canvas.
+     */
+    public Canvas getCanvas() { return canvas; }
+
+    /**
+     * Samples the metrics of the game and draws the overlay. Called by the engine once per pulse.
+     *
+     * @param game the game to sample.
+     */
+    public void render(GameCanvas game) {
+
+        canvas.setVisible(Temple.debug);
+
+        if(!Temple.debug)
+            return;
+
+        long now = System.nanoTime();
+
+        tickNanos[head] = game.getStats().getTickNanos();
+        pulseTimes[head] = now;
+        head = (head + 1) % SAMPLES;
+        count = Math.min(count + 1, SAMPLES);
+
+        if(GameCamera.getCamera() != null) {
+            canvas.setTranslateX(GameCamera.getCamera().getTranslateX());
+            canvas.setTranslateY(GameCamera.getCamera().getTranslateY());
+        }
+
+        if(++pulses >= TEXT_INTERVAL || lines.length == 0)
+            refreshText(game, now);
+
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        DebugDraw.rasterize(graphics, canvas.getTranslateX(), canvas.getTranslateY());
+
+        drawPanel();
+    }
+
+    /**
+     * Rebuilds the cached lines of text.
+     *
+     * @param game the game to sample.
+     * @param now the time of the pulse.
+     */
+    private void refreshText(GameCanvas game, long now) {
+
+        TickStats stats = game.getStats();
+        Runtime runtime = Runtime.getRuntime();
+
+        long heap = runtime.totalMemory() - runtime.freeMemory();
+        String allocation = "n/a";
+
+        if(threadBean != null) {
+
+            long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+            if(lastAllocated >= 0 && now > lastRefresh)
+                allocation = (long) ((allocated - lastAllocated) / ((now - lastRefresh) / 1e9) / 1024) + " KB/s";
+
+            lastAllocated = allocated;
+        }
+
+        lastRefresh = now;
+        pulses = 0;
+
+        lines = new String[] {
+                "FPS        " + fps(),
+                "Tick       " + String.format("%.2f ms (max %.2f)", latestTick() / 1e6, maxTick() / 1e6),
+                "Objects    " + stats.getObjectCount(),
+                "Colliders  " + stats.getColliderCount(),
+                "Quads      " + game.getQuadTree().getNodeCount() + " depth " + game.getQuadTree().getDepth(),
+                "Pair tests " + stats.getPairTests(),
+                "Heap       " + (heap / (1024 * 1024)) + " MB",
+                "Alloc      " + allocation
+        };
+    }
+
+    /**
+     * Draws the panel with the cached text and the tick sparkline.
+     */
+    private void drawPanel() {
+
+        double textHeight = lines.length * 14 + 8;
+
+        graphics.setFill(Color.rgb(0, 0, 0, 0.6));
+        graphics.fillRect(4, 4, PANEL_WIDTH, textHeight + GRAPH_HEIGHT + 8);
+
+        graphics.setFill(Color.LIME);
+
+        for(int i = 0; i < lines.length; i++) {
+            graphics.fillText(lines[i], 10, 18 + i * 14);
+        }
+
+        double graphY = 4 + textHeight + GRAPH_HEIGHT;
+        double step = (PANEL_WIDTH - 12) / (SAMPLES - 1);
+
+        graphics.setStroke(Color.YELLOW);
+        graphics.setLineWidth(1);
+        graphics.beginPath();
+
+        for(int i = 0; i < count; i++) {
+
+            int index = (head - count + i + SAMPLES) % SAMPLES;
+            double value = Math.min(tickNanos[index] / GRAPH_MAX_NANOS, 1) * GRAPH_HEIGHT;
+
+            if(i == 0)
+                graphics.moveTo(10 + i * step, graphY - value);
+            else
+                graphics.lineTo(10 + i * step, graphY - value);
+        }
+
+        graphics.stroke();
+    }
+
+    /**
+     * Counts the pulses in the last second.
+     *
+     * @return frames per second.
+     */
+    private int fps() {
+
+        long newest = pulseTimes[(head - 1 + SAMPLES) % SAMPLES];
+        int frames = 0;
+
+        for(int i = 1; i <= count; i++) {
+
+            if(newest - pulseTimes[(head - i + SAMPLES) % SAMPLES] > 1e9)
+                break;
+
+            frames++;
+        }
+
+        return frames;
+    }
+
+    /**
+     * Gets the latest tick duration.
+     *
+     * @return duration in nanoseconds.
+     */
+    private long latestTick() { return tickNanos[(head - 1 + SAMPLES) % SAMPLES]; }
+
+    /**
+     * Gets the longest tick duration in the ring buffer.
+     *
+     * @return duration in nanoseconds.
+     */
+    private long maxTick() {
+
+        long max = 0;
+
+        for(int i = 0; i < count; i++) {
+            max = Math.max(max, tickNanos[i]);
+        }
+
+        return max;
+    }
+}
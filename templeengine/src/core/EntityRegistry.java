@@ -0,0 +1,222 @@
+package templeengine.src.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The {@code EntityRegistry} keeps the objects and colliders of a {@link GameCanvas} with constant time adding and removing.
+ *
+ * <p>
+ * Entries are packed into a dense array which is what gets iterated every tick. Removing an entry moves the last entry
+ * into its place, so the order of the dense array changes as things get removed.
+ * Every entry also gets a slot, which stays the same for as long as the entry is registered and is stored in the entry itself.
+ * The slot is what lets the registry find an entry without searching for it.
+ * </p>
+ *
+ * <p>
+ * Slots get reused after their entry is removed, so each slot also has a generation which goes up on every removal.
+ * A handle combines the two, and resolving a handle of a removed entry gives null even if its slot has been reused.
+ * Handles are the safe way of keeping a reference to something that may get removed.
+ * </p>
+ *
+ * <pre><code>
+ * long handle = registry.getHandle(enemy);
+ * //later on
+ * Enemy enemy = registry.resolve(handle); //null if the enemy was removed
+ * </code></pre>
+ *
+ * @param <T> type of the entries.
+ */
+public class EntityRegistry<T extends Registered> {
+
+    /**
+     * The entries, packed.
+     */
+    private Object[] dense = new Object[64];
+    /**
+     * Slot of each packed entry.
+     */
+    private int[] denseSlots = new int[64];
+    /**
+     * Packed index of each slot, -1 for free slots.
+     */
+    private int[] slotIndices = new int[64];
+    /**
+     * Generation of each slot.
+     */
+    private int[] generations = new int[64];
+    /**
+     * Free slots waiting reuse.
+     */
+    private int[] freeSlots = new int[64];
+
+    /**
+     * Amount of entries.
+     */
+    private int size = 0;
+    /**
+     * Amount of slots handed out.
+     */
+    private int slotCount = 0;
+    /**
+     * Amount of free slots.
+     */
+    private int freeCount = 0;
+
+    /**
+     * Adds an entry.
+     *
+     * @param entry the entry to add.
+     * @return true if added, false if it was already registered.
+     */
+    public boolean add(T entry) {
+
+        if(contains(entry))
+            return false;
+
+        int slot;
+
+        if(freeCount > 0) {
+
+            slot = freeSlots[--freeCount];
+
+        } else {
+
+            if(slotCount == slotIndices.length) {
+
+                slotIndices = Arrays.copyOf(slotIndices, slotCount * 2);
+                generations = Arrays.copyOf(generations, slotCount * 2);
+                freeSlots = Arrays.copyOf(freeSlots, slotCount * 2);
+            }
+
+            slot = slotCount++;
+        }
+
+        if(size == dense.length) {
+
+            dense = Arrays.copyOf(dense, size * 2);
+            denseSlots = Arrays.copyOf(denseSlots, size * 2);
+        }
+
+        dense[size] = entry;
+        denseSlots[size] = slot;
+        slotIndices[slot] = size;
+        entry.setRegistrySlot(slot);
+
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Removes an entry, moving the last entry into its place.
+     *
+     * @param entry the entry to remove.
+     * @return true if removed, false if it wasn't registered.
+     */
+    public boolean remove(T entry) {
+
+        if(!contains(entry))
+            return false;
+
+        int slot = entry.getRegistrySlot();
+        int index = slotIndices[slot];
+        int last = --size;
+
+        dense[index] = dense[last];
+        denseSlots[index] = denseSlots[last];
+        slotIndices[denseSlots[index]] = index;
+
+        dense[last] = null;
+        slotIndices[slot] = -1;
+        generations[slot]++;
+        freeSlots[freeCount++] = slot;
+
+        entry.setRegistrySlot(-1);
+
+        return true;
+    }
+
+    /**
+     * Checks whether an entry is in this registry.
+     *
+     * @param entry the entry to check.
+     * @return true if registered here.
+     */
+    public boolean contains(T entry) {
+
+        int slot = entry.getRegistrySlot();
+
+        return slot >= 0 && slot < slotCount && slotIndices[slot] >= 0 && dense[slotIndices[slot]] == entry;
+    }
+
+    /**
+     * Gets an entry by its packed index.
+     *
+     * @param index from 0 to size() - 1.
+     * @return the entry.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) { return (T) dense[index]; }
+
+    /**
+     * Gets the packed index of an entry. The index changes when other entries get removed.
+     *
+     * @param entry the entry.
+     * @return packed index, -1 if not registered.
+     */
+    public int indexOf(T entry) { return contains(entry) ? slotIndices[entry.getRegistrySlot()] : -1; }
+
+    /**
+     * Gets the amount of entries.
+     *
+     * @return size.
+     */
+    public int size() { return size; }
+
+    /**
+     * Gets a handle to an entry.
+     *
+     * @param entry the entry.
+     * @return the handle, -1 if not registered.
+     */
+    public long getHandle(T entry) {
+
+        if(!contains(entry))
+            return -1;
+
+        int slot = entry.getRegistrySlot();
+
+        return ((long) generations[slot] << 32) | slot;
+    }
+
+    /**
+     * Resolves a handle back into its entry.
+     *
+     * @param handle the handle.
+     * @return the entry, null if it has been removed since getting the handle.
+     */
+    @SuppressWarnings("unchecked")
+    public T resolve(long handle) {
+
+        int slot = (int) handle;
+
+        if(handle < 0 || slot >= slotCount || slotIndices[slot] < 0 || generations[slot] != (int) (handle >>> 32))
+            return null;
+
+        return (T) dense[slotIndices[slot]];
+    }
+
+    /**
+     * Adds every entry to a collection.
+     *
+     * @param collection the collection to add to.
+     */
+    @SuppressWarnings("unchecked")
+    public void copyTo(Collection<? super T> collection) {
+
+        for(int i = 0; i < size; i++) {
+            collection.add((T) dense[i]);
+        }
+    }
+}
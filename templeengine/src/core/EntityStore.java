@@ -0,0 +1,295 @@
+package templeengine.src.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The {@code EntityStore} keeps the hot simulation data of packed GameObjects in flat arrays.
+ *
+ * <p>
+ * GameObjects are big {@link javafx.scene.image.ImageView}s spread all over the heap, so moving thousands of them
+ * means jumping all over memory. A packed GameObject keeps its position, velocity and angle in the store of its canvas
+ * instead, one primitive array per value, and the GameObject itself becomes a view onto its index in the arrays.
+ * Moving every packed object is then a single linear loop, and {@link EntitySystem}s can run over the arrays the same way.
+ * The colliders of packed objects are aligned in a single pass over the arrays too, once every object has updated,
+ * instead of by each object as it moves.
+ * </p>
+ *
+ * <p>
+ * Objects are packed by calling {@code setPacked(true)} before adding them to the canvas. While in the store,
+ * the position, velocity and angle of a packed object must be accessed through the getters and setters of GameObject,
+ * since its own fields only get written back once it leaves the canvas.
+ * </p>
+ *
+ * <p>
+ * The flags of the objects are kept in the store as a bitset per flag, refreshed from the objects at the start of every
+ * fixed update, before the systems run.
+ * Removing an object moves the last object into its place, so indices aren't stable across removals.
+ * </p>
+ */
+public class EntityStore {
+
+    /**
+     * X positions.
+     */
+    double[] x = new double[64];
+    /**
+     * Y positions.
+     */
+    double[] y = new double[64];
+    /**
+     * X velocities.
+     */
+    double[] velocityX = new double[64];
+    /**
+     * Y velocities.
+     */
+    double[] velocityY = new double[64];
+    /**
+     * Angles.
+     */
+    double[] angle = new double[64];
+    /**
+     * Bits set for static objects.
+     */
+    BitSet statics = new BitSet(64);
+    /**
+     * Bits set for triggers.
+     */
+    BitSet triggers = new BitSet(64);
+    /**
+     * Bits set for collidable objects.
+     */
+    BitSet collidables = new BitSet(64);
+    /**
+     * The objects each index belongs to.
+     */
+    private GameObject[] owners = new GameObject[64];
+
+    /**
+     * Amount of objects in the store.
+     */
+    private int size = 0;
+
+    /**
+     * Adds an object, copying its current values into the arrays.
+     *
+     * @param o the object to add.
+     */
+    void add(GameObject o) {
+
+        if(o.getStoreIndex() >= 0)
+            return;
+
+        if(size == owners.length)
+            grow();
+
+        int i = size++;
+
+        x[i] = o.x;
+        y[i] = o.y;
+        velocityX[i] = o.velocityX;
+        velocityY[i] = o.velocityY;
+        angle[i] = o.angle;
+        owners[i] = o;
+
+        setFlags(i, o);
+
+        o.setStore(this, i);
+    }
+
+    /**
+     * Removes an object, copying its values back into its fields.
+     *
+     * @param o the object to remove.
+     */
+    void remove(GameObject o) {
+
+        int i = o.getStoreIndex();
+
+        if(i < 0 || owners[i] != o)
+            return;
+
+        o.x = x[i];
+        o.y = y[i];
+        o.velocityX = velocityX[i];
+        o.velocityY = velocityY[i];
+        o.angle = angle[i];
+        o.setStore(null, -1);
+
+        int last = --size;
+
+        if(i != last) {
+
+            x[i] = x[last];
+            y[i] = y[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            angle[i] = angle[last];
+            owners[i] = owners[last];
+
+            statics.set(i, statics.get(last));
+            triggers.set(i, triggers.get(last));
+            collidables.set(i, collidables.get(last));
+
+            owners[i].setStore(this, i);
+        }
+
+        owners[last] = null;
+
+        statics.clear(last);
+        triggers.clear(last);
+        collidables.clear(last);
+    }
+
+    /**
+     * Moves every object by its velocity. Nodes follow in the {@code fixedUpdate()} of each object, colliders in {@code alignColliders()}.
+     */
+    void integrate() {
+
+        for(int i = 0; i < size; i++) {
+
+            x[i] += velocityX[i];
+            y[i] += velocityY[i];
+        }
+    }
+
+    /**
+     * Aligns the colliders of every object to its position in the arrays. Called by the canvas once the objects have updated,
+     * before the collision pass. Objects attached to another object are aligned by their world position instead.
+     */
+    void alignColliders() {
+
+        for(int i = 0; i < size; i++) {
+
+            GameObject o = owners[i];
+            ArrayList<CollisionInterface> colliders = o.getColliders();
+
+            if(colliders.isEmpty())
+                continue;
+
+            if(o.getParentObject() != null) {
+
+                o.alignColliders();
+                continue;
+            }
+
+            double cx = x[i];
+            double cy = y[i];
+            double rotate = o.getRotate();
+
+            for(int c = 0; c < colliders.size(); c++) {
+
+                CollisionInterface collider = colliders.get(c);
+
+                collider.setCX(cx + collider.getOriginX());
+                collider.setCY(cy + collider.getOriginY());
+
+                collider.getShape().setRotate(rotate);
+            }
+        }
+    }
+
+    /**
+     * Refreshes the flag bits of every object from its fields. Called by the canvas before the systems run.
+     */
+    void syncFlags() {
+
+        for(int i = 0; i < size; i++) {
+            setFlags(i, owners[i]);
+        }
+    }
+
+    /**
+     * Sets the flag bits of an index from the fields of an object.
+     *
+     * @param i the index.
+     * @param o the object.
+     */
+    private void setFlags(int i, GameObject o) {
+
+        statics.set(i, o.isStatic);
+        triggers.set(i, o.isTrigger);
+        collidables.set(i, o.isCollidable);
+    }
+
+    /**
+     * Doubles the size of the arrays.
+     */
+    private void grow() {
+
+        int capacity = owners.length * 2;
+
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        angle = Arrays.copyOf(angle, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+    }
+
+    /**
+     * Gets the amount of objects in the store.
+     *
+     * @return size.
+     */
+    public int size() { return size; }
+
+    /**
+     * Gets the object at an index.
+     *
+     * @param index of the object.
+     * @return the object.
+     */
+    public GameObject getObject(int index) { return owners[index]; }
+
+    /**
+     * Gets the x positions. The array gets replaced as the store grows, so get it again on every run.
+     *
+     * @return x positions, valid up to size().
+     */
+    public double[] getX() { return x; }
+    /**
+     * Gets the y positions. The array gets replaced as the store grows, so get it again on every run.
+     *
+     * @return y positions, valid up to size().
+     */
+    public double[] getY() { return y; }
+    /**
+     * Gets the x velocities. The array gets replaced as the store grows, so get it again on every run.
+     *
+     * @return x velocities, valid up to size().
+     */
+    public double[] getVelocityX() { return velocityX; }
+    /**
+     * Gets the y velocities. The array gets replaced as the store grows, so get it again on every run.
+     *
+     * @return y velocities, valid up to size().
+     */
+    public double[] getVelocityY() { return velocityY; }
+    /**
+     * Gets the angles. The array gets replaced as the store grows, so get it again on every run.
+     *
+     * @return angles in degrees, valid up to size().
+     */
+    public double[] getAngle() { return angle; }
+    /**
+     * Gets the bits of the static objects.
+     *
+     * @return bits set for static objects, valid up to size().
+     */
+    public BitSet getStatics() { return statics; }
+    /**
+     * Gets the bits of the triggers.
+     *
+     * @return bits set for triggers, valid up to size().
+     */
+    public BitSet getTriggers() { return triggers; }
+    /**
+     * Gets the bits of the collidable objects.
+     *
+     * @return bits set for collidable objects, valid up to size().
+     */
+    public BitSet getCollidables() { return collidables; }
+}
@@ -0,0 +1,33 @@
+package templeengine.src.core;
+
+/**
+ * The {@code EntitySystem} is a piece of game logic that runs over the packed data of an {@link EntityStore}.
+ *
+ * <p>
+ * Systems get added to a canvas with {@code addSystem()} and run every fixed update, before the positions get integrated.
+ * A system should loop over the arrays of the store instead of going through the GameObjects one by one.
+ * </p>
+ *
+ * <p>
+ * Example code of a system adding gravity to every packed object that isn't static:
+ * </p>
+ * <pre><code>
+ * addSystem(store -&gt; {
+ *  double[] vy = store.getVelocityY();
+ *  BitSet statics = store.getStatics();
+ *
+ *  for(int i = statics.nextClearBit(0); i &lt; store.size(); i = statics.nextClearBit(i + 1)) {
+ *      vy[i] += 0.5;
+ *  }
+ * });
+ * </code></pre>
+ */
+public interface EntitySystem {
+
+    /**
+     * Runs the system.
+     *
+     * @param store the store of the canvas.
+     */
+    public void update(EntityStore store);
+}
@@ -0,0 +1,279 @@
+package templeengine.src.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The {@code EventBus} lets objects tell each other about things without knowing about each other.
+ *
+ * <p>
+ * Events are plain objects of any class. Posting an event only puts it into the ring buffer of its class,
+ * nothing gets called right away. Once per tick, after the collision pass of the fixed update, the canvas
+ * delivers the waiting events in a batch, type by type in the order the types were first seen, and each type in the order posted.
+ * That keeps heavy reactions like spawning objects, playing sounds or saving files out of the collision loop,
+ * and puts all of them into a single phase that shows up in the {@link TickStats}.
+ * </p>
+ *
+ * <p>
+ * Subscribers get the events of exactly the class they subscribed to, subclasses are a type of their own.
+ * Events posted while delivering are delivered on the next tick, and the budget caps how many events are delivered per tick,
+ * leaving the rest for the following ticks. Events posted by parallel-safe objects while updating in parallel are held back
+ * until the parallel phase is over, and then posted in the order of the objects, so they're delivered the same every run.
+ * Other than that, events should only be posted from the JavaFX thread.
+ * </p>
+ *
+ * <p>
+ * Example code of posting and receiving an event:
+ * </p>
+ * <pre><code>
+ * //in load() of the canvas
+ * subscribe(EnemyHit.class, hit -&gt; addEnemy());
+ *
+ * //in onTrigger() of a bullet
+ * Temple.getActiveGame().post(new EnemyHit(this, hitObject));
+ * </code></pre>
+ */
+public class EventBus {
+
+    /**
+     * The channel of each event class.
+     */
+    private HashMap<Class<?>, Channel> channels = new HashMap<>();
+    /**
+     * The channels in the order their classes were first seen.
+     */
+    private ArrayList<Channel> order = new ArrayList<>();
+
+    /**
+     * Most events delivered per tick.
+     */
+    private int budget = Integer.MAX_VALUE;
+
+    /**
+     * Subscribes to the events of a class.
+     *
+     * @param type class of the events.
+     * @param subscriber receives the events.
+     * @param <E> type of the events.
+     */
+    public <E> void subscribe(Class<E> type, EventSubscriber<? super E> subscriber) {
+
+        Channel channel = channel(type);
+
+        channel.subscribers = Arrays.copyOf(channel.subscribers, channel.subscribers.length + 1);
+        channel.subscribers[channel.subscribers.length - 1] = subscriber;
+    }
+
+    /**
+     * Unsubscribes from the events of a class.
+     *
+     * @param type class of the events.
+     * @param subscriber the subscriber to remove.
+     * @param <E> type of the events.
+     */
+    public <E> void unsubscribe(Class<E> type, EventSubscriber<? super E> subscriber) {
+
+        Channel channel = channels.get(type);
+
+        if(channel == null)
+            return;
+
+        EventSubscriber<?>[] subscribers = channel.subscribers;
+
+        for(int i = 0; i < subscribers.length; i++) {
+
+            if(subscribers[i] == subscriber) {
+
+                EventSubscriber<?>[] left = new EventSubscriber<?>[subscribers.length - 1];
+
+                System.arraycopy(subscribers, 0, left, 0, i);
+                System.arraycopy(subscribers, i + 1, left, i, left.length - i);
+
+                channel.subscribers = left;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Posts an event, to be delivered on the next delivery.
+     *
+     * @param event the event.
+     */
+    public void post(Object event) { if(!CommandBuffer.post(this, event)) channel(event.getClass()).push(event); }
+
+    /**
+     * Delivers the waiting events, at most the budget. Called by the canvas once per tick.
+     *
+     * @return amount of events delivered.
+     */
+    int dispatch() {
+
+        int left = budget;
+
+        for(int c = 0; c < order.size(); c++) {
+            order.get(c).due = order.get(c).size;
+        }
+
+        for(int c = 0; c < order.size() && left > 0; c++) {
+            left -= order.get(c).deliver(left);
+        }
+
+        return budget - left;
+    }
+
+    /**
+     * Drops every waiting event without delivering them.
+     */
+    public void clear() {
+
+        for (Channel channel : order) {
+            channel.clear();
+        }
+    }
+
+    /**
+     * Gets the amount of events waiting.
+     *
+     * @return waiting events.
+     */
+    public int getPending() {
+
+        int pending = 0;
+
+        for (Channel channel : order) {
+            pending += channel.size;
+        }
+
+        return pending;
+    }
+
+    /**
+     * Sets the most events delivered per tick.
+     *
+     * @param budget events per tick, 1 at least.
+     */
+    public void setBudget(int budget) { this.budget = Math.max(1, budget); }
+
+    /**
+     * Gets the most events delivered per tick.
+     *
+     * @return events per tick.
+     */
+    public int getBudget() { return budget; }
+
+    /**
+     * Gets the channel of a class, making it if it doesn't exist.
+     *
+     * @param type the class.
+     * @return the channel.
+     */
+    private Channel channel(Class<?> type) {
+
+        Channel channel = channels.get(type);
+
+        if(channel == null) {
+
+            channel = new Channel();
+            channels.put(type, channel);
+            order.add(channel);
+        }
+
+        return channel;
+    }
+
+    /**
+     * The ring buffer and subscribers of a single event class.
+     */
+    private static class Channel {
+
+        /**
+         * The waiting events.
+         */
+        private Object[] ring = new Object[16];
+        /**
+         * Index of the oldest waiting event.
+         */
+        private int head = 0;
+        /**
+         * Amount of waiting events.
+         */
+        private int size = 0;
+        /**
+         * Amount of events due on the delivery being done, the ones posted before it started.
+         */
+        private int due = 0;
+        /**
+         * The subscribers, replaced as a whole when changed so delivering is never disturbed.
+         */
+        private EventSubscriber<?>[] subscribers = new EventSubscriber<?>[0];
+
+        /**
+         * Adds an event to the end of the ring, growing it if full.
+         *
+         * @param event the event.
+         */
+        void push(Object event) {
+
+            if(size == ring.length) {
+
+                Object[] grown = new Object[ring.length * 2];
+
+                for(int i = 0; i < size; i++) {
+                    grown[i] = ring[(head + i) % ring.length];
+                }
+
+                ring = grown;
+                head = 0;
+            }
+
+            ring[(head + size) % ring.length] = event;
+            size++;
+        }
+
+        /**
+         * Delivers the due events, oldest first.
+         *
+         * @param max most events to deliver.
+         * @return amount of events delivered.
+         */
+        @SuppressWarnings("unchecked")
+        int deliver(int max) {
+
+            int count = Math.min(due, max);
+            EventSubscriber<Object>[] subscribers = (EventSubscriber<Object>[]) this.subscribers;
+
+            due = 0;
+
+            for(int i = 0; i < count; i++) {
+
+                if(size == 0)
+                    return i;
+
+                Object event = ring[head];
+
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+
+                for (EventSubscriber<Object> subscriber : subscribers) {
+                    subscriber.onEvent(event);
+                }
+            }
+
+            return count;
+        }
+
+        /**
+         * Drops the waiting events.
+         */
+        void clear() {
+
+            Arrays.fill(ring, null);
+            head = 0;
+            size = 0;
+            due = 0;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package templeengine.src.core;
+
+/**
+ * The {@code EventSubscriber} receives the events of a type from the {@link EventBus}.
+ *
+ * <p>
+ * Example code of subscribing to an event:
+ * </p>
+ * <pre><code>
+ * //in load()
+ * subscribe(EnemyHit.class, hit -&gt; addScore());
+ * </code></pre>
+ *
+ * @param <E> type of the events.
+ */
+public interface EventSubscriber<E> {
+
+    /**
+     * Called by the bus for every event of the type, when the events are delivered.
+     *
+     * @param event the event.
+     */
+    public void onEvent(E event);
+}
@@ -82,8 +82,8 @@ public class GameCamera {
      */
     public static void centerOnObject(GameObject o) {
 
-        camera.setTranslateX(o.getX2() - cameraWidth / 2 + o.getWidth() / 2);
-        camera.setTranslateY(o.getY2() - cameraHeight / 2 + o.getHeight() / 2);
+        camera.setTranslateX(o.getWorldX() - cameraWidth / 2 + o.getWidth() / 2);
+        camera.setTranslateY(o.getWorldY() - cameraHeight / 2 + o.getHeight() / 2);
 
         if(bounds != null) {
             if (camera.getTranslateX() < 0) {
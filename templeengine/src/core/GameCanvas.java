@@ -1,10 +1,19 @@
 package templeengine.src.core;
 
+import javafx.scene.Node;
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The {@code GameCanvas} is the backbone of the game itself.
@@ -74,7 +83,7 @@ public abstract class GameCanvas {
     /**
      * The objects that will be updated on fixed and normal update.
      */
-    private ArrayList<GameObject> objects = new ArrayList<>();
+    private EntityRegistry<GameObject> objects = new EntityRegistry<>();
     /**
      * The objects waiting removal from the list of objects.
      */
@@ -86,16 +95,83 @@ public abstract class GameCanvas {
     /**
      * The colliders that will be updated and evaluated on fixed update.
      */
-    private ArrayList<CollisionInterface> colliders = new ArrayList<>();
+    private EntityRegistry<CollisionInterface> colliders = new EntityRegistry<>();
     /**
      * The colliders waiting removal from the list of objects.
      */
     private ArrayList<CollisionInterface> removeColliders = new ArrayList<>();
+    /**
+     * The colliders waiting removal, by identity, so a removal can be cancelled without searching the waiting list.
+     */
+    private Set<CollisionInterface> pendingRemoval = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The objects actually added on the current update, batched into a single pane change.
+     */
+    private ArrayList<Node> addedNodes = new ArrayList<>();
+    /**
+     * The objects actually removed on the current update, batched into a single pane change.
+     */
+    private HashSet<Node> removedNodes = new HashSet<>();
+    /**
+     * Reused list of colliders to test a collider against.
+     */
+    private ArrayList<CollisionInterface> rcolliders = new ArrayList<>();
+
+    /**
+     * Parallel-safe objects are updated in chunks of this many objects.
+     */
+    private static final int PARALLEL_CHUNK = 256;
+
+    /**
+     * The parallel-safe objects of the current update phase.
+     */
+    private ArrayList<GameObject> parallelObjects = new ArrayList<>();
+    /**
+     * A command buffer for each chunk of the parallel phase, reused between phases.
+     */
+    private ArrayList<CommandBuffer> buffers = new ArrayList<>();
+    /**
+     * The chunk tasks of the parallel phase.
+     */
+    private ArrayList<RecursiveAction> chunks = new ArrayList<>();
+
+    /**
+     * The objects of the canvas by class and tag.
+     */
+    private ObjectIndex index = new ObjectIndex();
+
+    /**
+     * The packed values of the packed objects in the canvas.
+     */
+    private EntityStore store = new EntityStore();
+    /**
+     * The systems run over the store every fixed update.
+     */
+    private ArrayList<EntitySystem> systems = new ArrayList<>();
+
+    /**
+     * Keeps only the cells near the camera active, null if the whole world is simulated.
+     */
+    private WorldStreamer streamer;
+    /**
+     * The TileMaps with chunks or layers to update.
+     */
+    private ArrayList<TileMap> tileMaps = new ArrayList<>();
+
+    /**
+     * The event bus of the canvas.
+     */
+    private EventBus events = new EventBus();
 
     /**
      * The QuadTree of this canvas.
      */
     private QuadTree quadTree;
+    /**
+     * The measurements of the last tick.
+     */
+    private TickStats stats = new TickStats();
     /**
      * The pane of this canvas, holds all visual nodes of the game.
      */
@@ -133,29 +209,78 @@ public abstract class GameCanvas {
      */
     public abstract void load();
 
+    /**
+     * Gets the images and sounds to decode before {@code load()} is called. The engine decodes them in parallel
+     * with the {@link AssetManager} and calls {@code load()} once they're all ready, so the game never waits on decoding.
+     * Override to list the assets of the game, for example with {@code AssetManager.readManifest()}.
+     *
+     * @return the classpath locations of the assets, null for none.
+     */
+    public List<String> getAssets() { return null; }
+
     /**
      * Fixed interval updates, checks for collisions between objects
      * in the canvas and calls for the appropriate functions.
      */
     public void fixedUpdate() {
 
-        for (GameObject object : objects) {
-            object.fixedUpdate();
+        long start = System.nanoTime();
+
+        DebugDraw.clear();
+
+        store.syncFlags();
+
+        for (EntitySystem system : systems) {
+            system.update(store);
+        }
+
+        store.integrate();
+
+        updateParallel(true);
+
+        for(int i = 0; i < objects.size(); i++) {
+
+            if(!objects.get(i).isParallelSafe)
+                objects.get(i).fixedUpdate();
         }
 
+        for(int i = 0; i < objects.size(); i++) {
+
+            if(objects.get(i).isTransformDirty())
+                objects.get(i).syncTransform();
+        }
+
+        store.alignColliders();
+
+        long broadphaseStart = System.nanoTime();
+        stats.setFixedUpdateNanos(broadphaseStart - start);
+
+        TempleEvents.CollisionPass event = new TempleEvents.CollisionPass();
+        event.begin();
+
         quadTree.clear();
 
-        colliders.addAll(addColliders);
+        for (CollisionInterface collider : addColliders) {
+            colliders.add(collider);
+        }
+
         addColliders.clear();
 
-        colliders.removeAll(removeColliders);
+        //removals cancelled by adding the collider again are no longer pending
+        for (CollisionInterface collider : removeColliders) {
+            if(pendingRemoval.remove(collider))
+                colliders.remove(collider);
+        }
+
         removeColliders.clear();
 
-        for (CollisionInterface collider : colliders) {
-            quadTree.insert(collider);
+        for(int i = 0; i < colliders.size(); i++) {
+            quadTree.insert(colliders.get(i));
         }
 
-        ArrayList<CollisionInterface> rcolliders = new ArrayList<>();
+        long narrowphaseStart = System.nanoTime();
+        stats.setBroadphaseNanos(narrowphaseStart - broadphaseStart);
+        stats.resetCollisionPass();
 
         for(int i = 0; i < colliders.size(); i++) {
 
@@ -170,9 +295,13 @@ public abstract class GameCanvas {
 
             //TODO: fuck this hack
             if(result == -1) {
-                rcolliders = new ArrayList<>(colliders);
+                rcolliders.clear();
+                colliders.copyTo(rcolliders);
+                stats.addStraddler();
             }
 
+            stats.addPairTests(rcolliders.size());
+
             for(int x = 0; x < rcolliders.size(); x++) {
 
                 if(parent != rcolliders.get(x).getParentObject()) {
@@ -184,6 +313,8 @@ public abstract class GameCanvas {
 
                     if(intersection.getBoundsInLocal().getWidth() != -1) {
 
+                        stats.addNarrowphaseHit();
+
                         if(rcolliders.get(x).getParentObject().isTrigger) {
                             parent.onTrigger(intersection, rcolliders.get(x).getParentObject());
                             rcolliders.get(x).getParentObject().onTrigger(intersection, parent);
@@ -194,6 +325,32 @@ public abstract class GameCanvas {
                 }
             }
         }
+
+        long eventStart = System.nanoTime();
+        stats.setNarrowphaseNanos(eventStart - narrowphaseStart);
+
+        int delivered = events.dispatch();
+        stats.setEvents(System.nanoTime() - eventStart, delivered);
+
+        if(Temple.debug) {
+
+            quadTree.debugDraw();
+
+            for(int i = 0; i < colliders.size(); i++) {
+                colliders.get(i).debugDraw();
+            }
+        }
+
+        event.end();
+
+        if(event.shouldCommit()) {
+
+            event.colliders = colliders.size();
+            event.pairTests = stats.getPairTests();
+            event.hits = stats.getNarrowphaseHits();
+            event.straddlers = stats.getStraddlers();
+            event.commit();
+        }
     }
 
     /**
@@ -201,18 +358,297 @@ public abstract class GameCanvas {
      */
     public void update() {
 
-        objects.addAll(addObjects);
-        pane.getChildren().addAll(addObjects);
+        long start = System.nanoTime();
+
+        HotReload.apply(this);
+
+        for (GameObject object : addObjects) {
+
+            if(objects.add(object)) {
+
+                addedNodes.add(object);
+                index.add(object);
+
+                if(object.isPacked())
+                    store.add(object);
+            }
+        }
+
         addObjects.clear();
 
-        objects.removeAll(removeObjects);
-        pane.getChildren().removeAll(removeObjects);
+        for (GameObject object : removeObjects) {
+
+            if(objects.remove(object) || (streamer != null && streamer.forget(object))) {
+
+                if(streamer != null)
+                    streamer.removeAnchor(object);
+
+                removedNodes.add(object);
+                index.remove(object);
+                store.remove(object);
+
+                if(object.getPool() != null)
+                    object.getPool().despawn(object);
+            }
+        }
+
         removeObjects.clear();
 
-        objects.forEach(GameObject::update);
-        objects.forEach(GameObject::postUpdate);
+        if(streamer != null)
+            streamer.update();
+
+        for(int i = 0; i < tileMaps.size(); i++) {
+            tileMaps.get(i).update();
+        }
+
+        if(!addedNodes.isEmpty()) {
+            pane.getChildren().addAll(addedNodes);
+            stats.addSpawns(addedNodes.size());
+            addedNodes.clear();
+        }
+
+        if(!removedNodes.isEmpty()) {
+            pane.getChildren().removeAll(removedNodes);
+            stats.addDespawns(removedNodes.size());
+            removedNodes.clear();
+        }
+
+        updateParallel(false);
+
+        for(int i = 0; i < objects.size(); i++) {
+
+            if(!objects.get(i).isParallelSafe)
+                objects.get(i).update();
+        }
+
+        long postUpdateStart = System.nanoTime();
+        stats.setUpdateNanos(postUpdateStart - start);
+
+        for(int i = 0; i < objects.size(); i++) {
+            objects.get(i).postUpdate();
+        }
+
+        stats.setPostUpdateNanos(System.nanoTime() - postUpdateStart);
+        stats.setCounts(objects.size(), colliders.size());
     }
 
+    /**
+     * Updates the parallel-safe objects on the ForkJoin common pool, in chunks of {@code PARALLEL_CHUNK} objects.
+     *
+     * The scene changes made by each chunk are captured in the command buffer of the chunk,
+     * and applied once every chunk is done, in chunk order, so the result doesn't depend on which thread ran what.
+     *
+     * @param fixed true to run fixedUpdate(), false to run update().
+     */
+    private void updateParallel(boolean fixed) {
+
+        parallelObjects.clear();
+
+        for(int i = 0; i < objects.size(); i++) {
+
+            if(objects.get(i).isParallelSafe)
+                parallelObjects.add(objects.get(i));
+        }
+
+        if(parallelObjects.isEmpty())
+            return;
+
+        int chunkCount = (parallelObjects.size() + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+
+        while(buffers.size() < chunkCount) {
+            buffers.add(new CommandBuffer());
+        }
+
+        chunks.clear();
+
+        for(int c = 0; c < chunkCount; c++) {
+
+            int from = c * PARALLEL_CHUNK;
+            int to = Math.min(from + PARALLEL_CHUNK, parallelObjects.size());
+            CommandBuffer buffer = buffers.get(c);
+
+            chunks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+
+                    CommandBuffer.setCurrent(buffer);
+
+                    try {
+
+                        for(int i = from; i < to; i++) {
+
+                            if(fixed)
+                                parallelObjects.get(i).fixedUpdate();
+                            else
+                                parallelObjects.get(i).update();
+                        }
+
+                    } finally {
+
+                        CommandBuffer.setCurrent(null);
+                    }
+                }
+            });
+        }
+
+        CommandBuffer.begin();
+
+        try {
+
+            if(chunkCount == 1)
+                chunks.get(0).invoke();
+            else
+                ForkJoinTask.invokeAll(chunks);
+
+        } finally {
+
+            CommandBuffer.end();
+        }
+
+        for(int c = 0; c < chunkCount; c++) {
+            buffers.get(c).apply(this);
+        }
+    }
+
+    /**
+     * Takes an object out of the simulation without removing it from the game. Called by the {@link WorldStreamer}.
+     *
+     * @param o the object to freeze.
+     */
+    void freeze(GameObject o) {
+
+        if(!objects.remove(o))
+            return;
+
+        store.remove(o);
+        removedNodes.add(o);
+        removeColliders(o.getColliders());
+    }
+
+    /**
+     * Puts a frozen object back into the simulation. Called by the {@link WorldStreamer}.
+     *
+     * @param o the object to thaw.
+     */
+    void thaw(GameObject o) {
+
+        if(!objects.add(o))
+            return;
+
+        if(o.isPacked())
+            store.add(o);
+
+        removedNodes.remove(o);
+        addedNodes.add(o);
+
+        for (CollisionInterface collider : o.getColliders()) {
+            addCollider(collider);
+        }
+    }
+
+    /**
+     * Gets the event bus of the canvas.
+     *
+     * @return the event bus.
+     */
+    public EventBus getEvents() { return events; }
+
+    /**
+     * Posts an event to the event bus. The event is delivered after the collision pass of the next fixed update,
+     * or of the current one if posted during the collision pass.
+     *
+     * @param event the event.
+     */
+    public void post(Object event) { events.post(event); }
+
+    /**
+     * Subscribes to the events of a class on the event bus.
+     *
+     * @param type class of the events.
+     * @param subscriber receives the events.
+     * @param <E> type of the events.
+     */
+    public <E> void subscribe(Class<E> type, EventSubscriber<? super E> subscriber) { events.subscribe(type, subscriber); }
+
+    /**
+     * Starts building a level on a background thread. Everything the builder adds to the canvas is held back
+     * until the level gets swapped in with {@code swapIn()}. See {@link ScenePreload}.
+     *
+     * @param builder the code building the level, for example the method that loads the map and adds the objects.
+     * @return the preload to swap in later.
+     */
+    public ScenePreload preload(Runnable builder) { return new ScenePreload(builder); }
+
+    /**
+     * Replaces the objects of the canvas with a preloaded level, waiting for it to finish building if it hasn't yet.
+     * The old objects are removed and the new ones added on the same update.
+     *
+     * @param preload the level to swap in.
+     */
+    public void swapIn(ScenePreload preload) {
+
+        preload.await();
+
+        clearObjects();
+        preload.apply(this);
+    }
+
+    /**
+     * Starts streaming the world in cells, only simulating the cells near the camera and anchors.
+     * Objects far away are frozen over the next updates. See {@link WorldStreamer}.
+     *
+     * @param cellSize width and height of a cell.
+     * @param radius cells around the seen cells that are also kept active.
+     * @return the streamer, for adding anchors.
+     */
+    public WorldStreamer setStreaming(double cellSize, int radius) {
+
+        stopStreaming();
+        streamer = new WorldStreamer(this, cellSize, radius);
+
+        return streamer;
+    }
+
+    /**
+     * Stops streaming the world, thawing every frozen object.
+     */
+    public void stopStreaming() {
+
+        if(streamer == null)
+            return;
+
+        streamer.thawAll();
+        streamer = null;
+    }
+
+    /**
+     * Adds a TileMap to update its chunks and layers every update. Done by the TileMap itself.
+     *
+     * @param map the map.
+     */
+    void addTileMap(TileMap map) { if(!tileMaps.contains(map)) tileMaps.add(map); }
+
+    /**
+     * Stops updating the chunks and layers of a TileMap.
+     *
+     * @param map the map.
+     */
+    void removeTileMap(TileMap map) { tileMaps.remove(map); }
+
+    /**
+     * Gets the TileMaps updated by the canvas.
+     *
+     * @return the maps.
+     */
+    List<TileMap> getTileMaps() { return tileMaps; }
+
+    /**
+     * Gets the streamer of the canvas.
+     *
+     * @return the streamer, null if not streaming.
+     */
+    public WorldStreamer getStreamer() { return streamer; }
+
     //public void render() { objects.forEach(GameObject::render); }
 
     /**
@@ -222,40 +658,165 @@ public abstract class GameCanvas {
      */
     public Pane getPane() { return pane; }
 
+    /**
+     * Gets the measurements of the last tick.
+     *
+     * @return stats of the last tick.
+     */
+    public TickStats getStats() { return stats; }
+
+    /**
+     * Gets the QuadTree of the canvas.
+     *
+     * @return the QuadTree.
+     */
+    public QuadTree getQuadTree() { return quadTree; }
+
+    /**
+     * Gets the registry of the objects in the canvas. Handles from the registry are a safe way to refer to objects that might get removed.
+     *
+     * @return the object registry.
+     */
+    public EntityRegistry<GameObject> getObjectRegistry() { return objects; }
+
+    /**
+     * Gets every object in the canvas of a class, subclasses included.
+     *
+     * The list is a live read-only view which changes as objects are added and removed on update,
+     * so it can be kept around instead of getting it again every frame once an object of the class has been added.
+     *
+     * <pre><code>
+     * List&lt;Enemy&gt; enemies = getObjects(Enemy.class);
+     *
+     * for(int i = 0; i &lt; enemies.size(); i++) {
+     *  enemies.get(i).chase(player);
+     * }
+     * </code></pre>
+     *
+     * @param type the class of the objects.
+     * @param <T> type of the objects.
+     * @return live list of the objects, an empty one that doesn't change if no object of the class was ever added.
+     */
+    public <T extends GameObject> List<T> getObjects(Class<T> type) { return index.getObjects(type); }
+
+    /**
+     * Gets every object in the canvas tagged with a name.
+     * The tag of an object is the name it had when it was added, the list is a live read-only view.
+     *
+     * @param tag the name of the objects.
+     * @return live list of the objects, an empty one that doesn't change if no object with the tag was ever added.
+     */
+    public List<GameObject> getTagged(String tag) { return index.getTagged(tag); }
+
+    /**
+     * Counts the objects in the canvas of a class, subclasses included.
+     *
+     * @param type the class of the objects.
+     * @return amount of objects.
+     */
+    public int count(Class<? extends GameObject> type) { return index.count(type); }
+
+    /**
+     * Gets the store holding the packed objects of the canvas.
+     *
+     * @return the entity store.
+     */
+    public EntityStore getEntityStore() { return store; }
+
+    /**
+     * Adds a system to be run over the entity store every fixed update, before the objects get their fixed updates.
+     *
+     * @param system the system to add.
+     */
+    public void addSystem(EntitySystem system) { systems.add(system); }
+
+    /**
+     * Removes a system.
+     *
+     * @param system the system to remove.
+     */
+    public void removeSystem(EntitySystem system) { systems.remove(system); }
+
     /**
      * Adds an object to the waiting list of objects to be added to the object list next frame.
      *
      * @param o the object to be added
      * @return the object added for chaining.
      */
-    public GameObject addObject(GameObject o) { addObjects.add(o); return o; }
+    public GameObject addObject(GameObject o) { if(!CommandBuffer.addObject(o)) addObjects.add(o); return o; }
 
     /**
      * Adds a collider to the waiting list of objects to be added to the collider list next frame.
      *
+     * If the collider is waiting removal, the removal is cancelled instead, which is what happens to pooled objects
+     * being reused on the same frame they were removed.
+     *
      * @param c the collider to be added
      * @return the collider added for chaining.
      */
-    public CollisionInterface addCollider(CollisionInterface c) { addColliders.add(c); return c; }
+    public CollisionInterface addCollider(CollisionInterface c) {
+
+        if(CommandBuffer.addCollider(c))
+            return c;
+
+        pendingRemoval.remove(c);
+        addColliders.add(c);
+
+        return c;
+    }
 
     /**
-     * Adds all objects and colliders to be removed.
+     * Adds all objects and colliders to be removed, and drops the events waiting on the event bus,
+     * since they refer to the objects being removed.
      */
-    public void clearObjects() { removeObjects.addAll(addObjects); removeObjects.addAll(objects); removeColliders.addAll(addColliders); removeColliders.addAll(colliders); }
+    public void clearObjects() {
+
+        removeObjects.addAll(addObjects);
+        objects.copyTo(removeObjects);
+        removeColliders(addColliders);
+        colliders.copyTo(removeColliders);
+        pendingRemoval.addAll(removeColliders);
+
+        if(streamer != null)
+            streamer.copyTo(removeObjects);
+
+        for (TileMap map : tileMaps) {
+            map.detach();
+        }
+
+        tileMaps.clear();
+        events.clear();
+    }
 
     /**
      * Adds an object to the waiting list of objects to be removed to the object list next frame.
      *
+     * Objects obtained from an {@link ObjectPool} go back to their pool once removed.
+     * Called from a parallel-safe object while updating in parallel, the removal is applied once the parallel phase is over.
+     *
      * @param o the object to be removed
      */
-    public void removeObject(GameObject o) { removeColliders.addAll(o.getColliders()); removeObjects.add(o); }
+    public void removeObject(GameObject o) { if(CommandBuffer.removeObject(o)) return; removeColliders(o.getColliders()); removeObjects.add(o); }
 
     /**
      * Adds a collider to the waiting list of collider to be removed to the collider list next frame.
      *
      * @param c the collider to be removed
      */
-    public void removeCollider(CollisionInterface c) { removeColliders.add(c); }
+    public void removeCollider(CollisionInterface c) { if(!CommandBuffer.removeCollider(c) && pendingRemoval.add(c)) removeColliders.add(c); }
+
+    /**
+     * Adds colliders to the waiting list of colliders to be removed, skipping the ones already waiting.
+     *
+     * @param c the colliders to be removed.
+     */
+    private void removeColliders(Collection<? extends CollisionInterface> c) {
+
+        for (CollisionInterface collider : c) {
+            if(pendingRemoval.add(collider))
+                removeColliders.add(collider);
+        }
+    }
 
     /**
      * Gets the name of the canvas.
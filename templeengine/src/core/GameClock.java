@@ -0,0 +1,221 @@
+package templeengine.src.core;
+
+/**
+ * The {@code GameClock} is the single source of time for the engine.
+ *
+ * <p>
+ * All time is kept as nanoseconds in longs, so nothing drifts no matter how long the game runs.
+ * The {@link GameLoop} feeds the clock the pulse times of JavaFX and runs a tick whenever the clock has a tick due,
+ * and {@link GameTime} reads its frame count straight from the tick index of the clock.
+ * </p>
+ *
+ * <p>
+ * Real time is the wall clock time since the game started. Simulation time is the time the ticks have covered,
+ * which runs slower or faster than real time depending on the time scale. A time scale of 2 runs two ticks for
+ * every tick worth of real time, 0.5 runs one tick for every two.
+ * </p>
+ *
+ * <p>
+ * Example code of making something happen once every 2 seconds of game time, whatever the tick rate:
+ * </p>
+ * <pre><code>
+ * if(GameClock.getSimulationNanos() - lastTime &gt;= 2000000000L) {
+ *
+ *  //do thing
+ *
+ *  lastTime = GameClock.getSimulationNanos();
+ * }
+ * </code></pre>
+ */
+public class GameClock {
+
+    /**
+     * Most ticks run on a single pulse, so a long hitch doesn't make the game spiral trying to catch up.
+     */
+    private static final int MAX_TICKS_PER_PULSE = 4;
+
+    /**
+     * Ticks per second of simulation time.
+     */
+    private static int tickRate = 60;
+    /**
+     * Duration of a single tick.
+     */
+    private static long tickNanos = 1000000000L / tickRate;
+    /**
+     * The time scale, lower values mean slower.
+     */
+    private static double timeScale = 1.0;
+
+    /**
+     * Ticks run since the start of the game.
+     */
+    private static long tick;
+    /**
+     * Simulation time covered by the ticks.
+     */
+    private static long simulationNanos;
+    /**
+     * Scaled time waiting to be run as ticks.
+     */
+    private static long accumulatedNanos;
+
+    /**
+     * Time of the first pulse, 0 if no pulse yet.
+     */
+    private static long startTime;
+    /**
+     * Time of the last pulse, 0 if paused.
+     */
+    private static long lastPulse;
+    /**
+     * Real time since the first pulse.
+     */
+    private static long realNanos;
+
+    /**
+     * Resets the clock back to the start of the game.
+     */
+    public static void reset() {
+
+        tick = 0;
+        simulationNanos = 0;
+        accumulatedNanos = 0;
+        startTime = 0;
+        lastPulse = 0;
+        realNanos = 0;
+    }
+
+    /**
+     * Pauses the clock, the time until the next pulse is not counted. Called by the engine when the loop stops.
+     */
+    static void pause() {
+
+        lastPulse = 0;
+        accumulatedNanos = 0;
+    }
+
+    /**
+     * Advances real time to the time of a pulse and accumulates the scaled time for ticks to run.
+     *
+     * @param now the time of the pulse in nanoseconds.
+     */
+    static void pulse(long now) {
+
+        if(startTime == 0)
+            startTime = now;
+
+        realNanos = now - startTime;
+
+        if(lastPulse == 0) {
+            lastPulse = now;
+            return;
+        }
+
+        long scaled = (long) ((now - lastPulse) * timeScale);
+
+        accumulatedNanos = Math.min(accumulatedNanos + scaled, (long) (tickNanos * MAX_TICKS_PER_PULSE * Math.max(1, timeScale)));
+        lastPulse = now;
+    }
+
+    /**
+     * Takes a due tick off the accumulated time and advances the tick index.
+     *
+     * @return true if a tick was due, false if not.
+     */
+    static boolean consumeTick() {
+
+        if(accumulatedNanos < tickNanos)
+            return false;
+
+        accumulatedNanos -= tickNanos;
+        advanceTick();
+
+        return true;
+    }
+
+    /**
+     * Advances the tick index and simulation time by a tick, whether it was due or not.
+     */
+    static void advanceTick() {
+
+        tick++;
+        simulationNanos += tickNanos;
+    }
+
+    /**
+     * Sets the tick index. Used by the {@link InputPlayer} to reproduce a recorded session.
+     *
+     * @param t the tick index.
+     */
+    static void setTick(long t) { tick = t; }
+
+    /**
+     * Gets the tick index.
+     *
+     * @return ticks run since the start of the game.
+     */
+    public static long getTick() { return tick; }
+
+    /**
+     * Gets the simulation time.
+     *
+     * @return nanoseconds of simulation time.
+     */
+    public static long getSimulationNanos() { return simulationNanos; }
+
+    /**
+     * Gets the real time.
+     *
+     * @return nanoseconds since the game started.
+     */
+    public static long getRealNanos() { return realNanos; }
+
+    /**
+     * Sets the tick rate.
+     *
+     * @param rate ticks per second, 1 at least.
+     */
+    public static void setTickRate(int rate) {
+
+        if(rate <= 0)
+            return;
+
+        tickRate = rate;
+        tickNanos = 1000000000L / rate;
+    }
+
+    /**
+     * Gets the tick rate.
+     *
+     * @return ticks per second.
+     */
+    public static int getTickRate() { return tickRate; }
+
+    /**
+     * Gets the duration of a single tick.
+     *
+     * @return nanoseconds per tick.
+     */
+    public static long getTickNanos() { return tickNanos; }
+
+    /**
+     * Sets the time scale. Lower values mean slower time.
+     *
+     * @param scale the scale, above 0 and 100 at most.
+     */
+    public static void setTimeScale(double scale) {
+
+        if(scale <= 0 || scale > 100)
+            return;
+
+        timeScale = scale;
+    }
+
+    /**
+     * Gets the time scale.
+     *
+     * @return the time scale.
+     */
+    public static double getTimeScale() { return timeScale; }
+}
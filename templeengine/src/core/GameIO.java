@@ -3,6 +3,16 @@ package templeengine.src.core;
 import javafx.scene.image.Image;
 
 import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
 import java.util.Properties;
 
 /**
@@ -14,6 +24,7 @@ import java.util.Properties;
  * or you could just not keep everything in a single .jar and instead just use the .jar as a launcher.
  *
  * .map files can be read from the .jar.
+ * Maps can also be stored as binary .bmap files, which load a lot faster, and converted between the formats with convertMap().
  *
  * Examples of both .map files and .dat files can be found in the two example games.
  * </p>
@@ -36,30 +47,63 @@ import java.util.Properties;
  *
  * <p>
  * You can also load entire Properties of a file, not just one at a time.
+ * Properties are kept in a {@link KeyValueStore} per file, read once and written in the background, so they're cheap to use mid-game.
  * </p>
  */
 public abstract class GameIO {
 
     /**
-     * Saves properties to the desired file.
+     * The open key-value stores by file.
+     */
+    private static final HashMap<String, KeyValueStore> stores = new HashMap<>();
+
+    /**
+     * Opens the key-value store of a file, or gets it if it's already open.
+     * The file is read only the first time, after that the store is served from memory.
      *
-     * @param fileName the path of the file.
-     * @param p properties to save to the file.
+     * @param fileName the path of the file, without the .dat ending.
+     * @return the store.
      */
-    public static void saveProperties(String fileName, Properties p) {
+    public static synchronized KeyValueStore openStore(String fileName) {
 
-        File f = new File(fileName + ".dat");
+        String key = new File(fileName).getAbsolutePath();
+        KeyValueStore store = stores.get(key);
 
-        try {
+        if(store == null) {
 
-            FileOutputStream fr = new FileOutputStream(f);
+            store = new KeyValueStore(fileName);
+            stores.put(key, store);
+        }
 
-            p.store(fr,Temple.getActiveGame().getName() + " Properties");
-            fr.close();
+        return store;
+    }
 
-        } catch (IOException e) {
+    /**
+     * Compacts and closes every open store, forcing them to disk. Called when the game closes.
+     */
+    public static synchronized void closeStores() {
 
-            e.printStackTrace();
+        for (KeyValueStore store : stores.values()) {
+            store.close();
+        }
+
+        stores.clear();
+    }
+
+    /**
+     * Saves properties to the desired file, replacing what it had.
+     *
+     * @param fileName the path of the file.
+     * @param p properties to save to the file.
+     */
+    public static void saveProperties(String fileName, Properties p) {
+
+        KeyValueStore store = openStore(fileName);
+
+        store.clear();
+
+        for (String key : p.stringPropertyNames()) {
+            store.put(key, p.getProperty(key));
         }
     }
 
@@ -67,79 +111,144 @@ public abstract class GameIO {
      * Load properties from the desired file.
      *
      * @param fileName the path of the file.
-     * @return properties of the file or null if file not found.
+     * @return properties of the file, empty if the file doesn't exist.
      */
-    public static Properties loadProperties(String fileName) {
+    public static Properties loadProperties(String fileName) { return openStore(fileName).toProperties(); }
 
-        File f = new File(fileName + ".dat");
+    /**
+     * Saves a property to the desired file, keeping the other properties of the file.
+     *
+     * @param fileName the path of the file.
+     * @param key key of the property.
+     * @param value of the property.
+     */
+    public static void saveProperty(String fileName, String key, String value) { openStore(fileName).put(key, value); }
 
-        try {
+    /**
+     * Loads a property from the desired file.
+     *
+     * @param fileName the path of the file.
+     * @param key the property desired.
+     * @return the value of the property or null if there is none.
+     */
+    public static String loadProperty(String fileName, String key) { return openStore(fileName).get(key); }
 
-            FileInputStream fi = new FileInputStream(f);
-            Properties p = new Properties();
+    /**
+     * Saves a TileMap to a .map file.
+     *
+     * @param fileName the path of the file relative to the class file location.
+     * @param map the TileMap to save.
+     * @param c the class which calls for the function.
+     */
+    public static void saveMap(String fileName, TileMap map, Class c) {
 
-            p.load(fi);
-            fi.close();
+        try {
 
-            return p;
+            writeMap(resourcePath(fileName + ".map", c).toString(), new MapData(map), false);
 
-        } catch (IOException e) {
+        } catch (IOException | URISyntaxException e) {
 
             e.printStackTrace();
         }
-
-        return null;
     }
 
     /**
-     * Saves a property to the desired file.
+     * Loads a TileMap from a .map file.
      *
-     * @param fileName the path of the file.
-     * @param key key of the property.
-     * @param value of the property.
+     * The returned TileMap doesn't have to be built since its built by this.
+     *
+     * @param fileName the path of the file relative to the class file location.
+     * @param xOffset to position the map by this.
+     * @param yOffset to position the map by this.
+     * @param c the class which calls for the function.
+     * @return the TileMap generated.
      */
-    public static void saveProperty(String fileName, String key, String value) {
+    public static TileMap loadMap(String fileName, int xOffset, int yOffset, Class c) {
 
-        File f = new File(fileName + ".dat");
+        TempleEvents.MapLoad event = new TempleEvents.MapLoad();
+        event.begin();
 
         try {
 
-            FileOutputStream fr = new FileOutputStream(f);
-            Properties p = new Properties();
+            InputStream in = AssetManager.openPacked(AssetManager.locate(fileName + ".map", c));
 
-            p.setProperty(key, value);
+            if(in == null)
+                in = c.getResourceAsStream(fileName + ".map");
 
-            p.store(fr,Temple.getActiveGame().getName() + " Properties");
-            fr.close();
+            if(in == null)
+                throw new FileNotFoundException(fileName + ".map");
+
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            MapData data = TextMapFormat.read(reader);
+
+            reader.close();
+
+            TileMap map = buildMap(data, xOffset, yOffset, c);
+            map.setSource(AssetManager.locate(fileName + ".map", c));
+
+            commitMapLoad(event, fileName + ".map", data);
+
+            return map;
 
         } catch (IOException e) {
 
             e.printStackTrace();
         }
+
+        return null;
     }
 
     /**
-     * Loads a property from the desired file.
+     * Loads a TileMap from a binary .bmap file.
      *
-     * @param fileName the path of the file.
-     * @param key the property desired.
-     * @return the value of the property or null if invalid file.
+     * Works like {@link #loadMap(String, int, int, Class)}, but the file is memory-mapped and its layers copied straight into
+     * the arrays of the map, which is a lot faster for big maps. Maps inside a .jar can't be mapped, so they're read into memory first,
+     * and maps inside a mounted {@link AssetPack} are read straight from the mapped pack.
+     *
+     * @param fileName the path of the file relative to the class file location.
+     * @param xOffset to position the map by this.
+     * @param yOffset to position the map by this.
+     * @param c the class which calls for the function.
+     * @return the TileMap generated.
      */
-    public static String loadProperty(String fileName, String key) {
+    public static TileMap loadBinaryMap(String fileName, int xOffset, int yOffset, Class<?> c) {
 
-        File f = new File(fileName + ".dat");
+        TempleEvents.MapLoad event = new TempleEvents.MapLoad();
+        event.begin();
 
         try {
 
-            FileInputStream fi = new FileInputStream(f);
-            Properties p = new Properties();
+            ByteBuffer packed = AssetManager.getPacked(AssetManager.locate(fileName + ".bmap", c));
+            URL url = packed == null ? c.getResource(fileName + ".bmap") : null;
 
-            p.load(fi);
-            fi.close();
+            if(packed == null && url == null)
+                throw new FileNotFoundException(fileName + ".bmap");
 
-            return p.getProperty(key);
+            MapData data;
 
-        } catch (IOException e) {
+            if(packed != null) {
+
+                data = BinaryMapFormat.read(packed);
+
+            } else if(url.getProtocol().equals("file")) {
+
+                data = readBinaryMap(Paths.get(url.toURI()));
+
+            } else {
+
+                try (InputStream in = url.openStream()) {
+                    data = BinaryMapFormat.read(ByteBuffer.wrap(in.readAllBytes()));
+                }
+            }
+
+            TileMap map = buildMap(data, xOffset, yOffset, c);
+            map.setSource(AssetManager.locate(fileName + ".bmap", c));
+
+            commitMapLoad(event, fileName + ".bmap", data);
+
+            return map;
+
+        } catch (IOException | URISyntaxException e) {
 
             e.printStackTrace();
         }
@@ -148,60 +257,73 @@ public abstract class GameIO {
     }
 
     /**
-     * Saves a TileMap to a .map file.
+     * Saves a TileMap to a binary .bmap file.
      *
-     * @param fileName the path of the file relative to the class file location.
+     * @param fileName the path of the file.
      * @param map the TileMap to save.
-     * @param c the class which calls for the function.
+     * @param compress whether to compress the layers, smaller files but slower loading.
      */
-    public static void saveMap(String fileName, TileMap map, Class c) {
+    public static void saveBinaryMap(String fileName, TileMap map, boolean compress) {
 
-        String line = "";
+        writeMap(fileName + ".bmap", new MapData(map), compress);
+    }
+
+    /**
+     * Reads the data of a map file without building a TileMap out of it.
+     * Files ending with .bmap are read as binary maps, everything else as text maps.
+     *
+     * @param path the path of the file.
+     * @return data of the map or null if the file couldn't be read.
+     */
+    public static MapData readMap(String path) {
 
         try {
 
-            PrintWriter buffer =  new PrintWriter(new File(c.getResource(fileName + ".map").getPath()));
+            if(path.endsWith(".bmap"))
+                return readBinaryMap(Paths.get(path));
 
-            buffer.write(map.getTileSheet().getUrl());
-            buffer.write(System.getProperty("line.separator"));
-            buffer.write(map.getMapWidth() + "");
-            buffer.write(System.getProperty("line.separator"));
-            buffer.write(map.getMapHeight() + "");
-            buffer.write(System.getProperty("line.separator"));
-            buffer.write(map.getTileWidth() + "");
-            buffer.write(System.getProperty("line.separator"));
-            buffer.write(map.getTileHeight() + "");
-            buffer.write(System.getProperty("line.separator"));
-            buffer.write(map.getScale() + "");
-            buffer.write(System.getProperty("line.separator"));
+            try (Reader reader = new InputStreamReader(Files.newInputStream(Paths.get(path)), StandardCharsets.UTF_8)) {
+                return TextMapFormat.read(reader);
+            }
 
-            for(int i = 0; i < map.getMap().length; i++) {
+        } catch (IOException e) {
 
-                line += map.getMap()[i] + " ";
+            e.printStackTrace();
+        }
 
-                if((i + 1) % map.getMapWidth() == 0) {
+        return null;
+    }
 
-                    buffer.write(line);
-                    buffer.write(System.getProperty("line.separator"));
-                    line = "";
-                }
-            }
+    /**
+     * Writes map data into a file.
+     * Files ending with .bmap are written as binary maps, everything else as text maps.
+     *
+     * @param path the path of the file.
+     * @param data data of the map.
+     * @param compress whether to compress the layers of a binary map, ignored for text maps.
+     */
+    public static void writeMap(String path, MapData data, boolean compress) {
 
-            line = "";
+        try {
 
-            for(int i = 0; i < map.getCollisionMap().length; i++) {
+            if(path.endsWith(".bmap")) {
 
-                line += map.getCollisionMap()[i] + " ";
+                ByteBuffer bytes = ByteBuffer.wrap(BinaryMapFormat.write(data, compress));
 
-                if((i + 1) % map.getMapWidth() == 0) {
+                try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
 
-                    buffer.write(line);
-                    buffer.write(System.getProperty("line.separator"));
-                    line = "";
+                    while(bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
                 }
-            }
 
-            buffer.close();
+            } else {
+
+                try (Writer writer = new OutputStreamWriter(Files.newOutputStream(Paths.get(path)), StandardCharsets.UTF_8)) {
+                    TextMapFormat.write(writer, data);
+                }
+            }
 
         } catch (IOException e) {
 
@@ -210,75 +332,151 @@ public abstract class GameIO {
     }
 
     /**
-     * Loads a TileMap from a .map file.
+     * Converts a map file into the other format, for example a .map file into a .bmap file.
+     * The formats are picked by the file endings like in {@link #readMap(String)} and {@link #writeMap(String, MapData, boolean)}.
      *
-     * The returned TileMap doesn't have to be built since its built by this.
+     * @param from path of the map to convert.
+     * @param to path of the converted map.
+     * @param compress whether to compress the layers of a binary map.
+     */
+    public static void convertMap(String from, String to, boolean compress) {
+
+        MapData data = readMap(from);
+
+        if(data != null)
+            writeMap(to, data, compress);
+    }
+
+    /**
+     * Finds the file of a path relative to the class file location, whether the file exists yet or not.
      *
      * @param fileName the path of the file relative to the class file location.
-     * @param xOffset to position the map by this.
-     * @param yOffset to position the map by this.
-     * @param c the class which calls for the function.
-     * @return the TileMap generated.
+     * @param c the class the path is relative to.
+     * @return the file.
+     * @throws IOException if the class isn't loaded from the file system, like from inside a .jar.
+     * @throws URISyntaxException if the location of the class is malformed.
      */
-    public static TileMap loadMap(String fileName, int xOffset, int yOffset, Class c) {
+    private static Path resourcePath(String fileName, Class<?> c) throws IOException, URISyntaxException {
 
-        try {
+        URL base = fileName.startsWith("/") ? c.getResource("/") : c.getResource("");
+
+        if(base == null || !base.getProtocol().equals("file"))
+            throw new IOException("cannot write " + fileName + " next to " + c.getName() + ", it isn't on the file system");
 
-            BufferedReader buffer = new BufferedReader(new InputStreamReader(c.getResourceAsStream(fileName + ".map")));
+        return Paths.get(base.toURI()).resolve(fileName.startsWith("/") ? fileName.substring(1) : fileName);
+    }
 
-            String url = buffer.readLine();
-            int mapWidth = Integer.parseInt(buffer.readLine());
-            int mapHeight = Integer.parseInt(buffer.readLine());
-            int tileWidth = Integer.parseInt(buffer.readLine());
-            int tileHeight = Integer.parseInt(buffer.readLine());
-            double scale = Double.parseDouble(buffer.readLine());
+    /**
+     * Reads a binary map by memory-mapping the file.
+     *
+     * @param path the path of the file.
+     * @return data of the map.
+     * @throws IOException if the file couldn't be read or isn't a binary map.
+     */
+    private static MapData readBinaryMap(Path path) throws IOException {
 
-            TileMap map = new TileMap(mapWidth, mapHeight, tileWidth, tileHeight, new Image(c.getResourceAsStream(url)), scale, xOffset, yOffset);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
 
-            String line = buffer.readLine();
+        try {
 
-            int[] mapArray = new int[mapWidth * mapHeight];
-            int[] cMapArray = new int[mapWidth * mapHeight];
-            int j = 0;
-            int l = 0;
+            return BinaryMapFormat.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
 
-            while(line != null) {
+        } finally {
 
-                if(line.equals("") || line.equals(" "))
-                    continue;
+            channel.close();
+        }
+    }
 
-                line = line.trim();
-                String[] a = line.split("\\s+");
+    /**
+     * Builds a TileMap out of map data, adding its tiles to the active game.
+     *
+     * @param data data of the map.
+     * @param xOffset to position the map by this.
+     * @param yOffset to position the map by this.
+     * @param c the class the tileset is relative to.
+     * @return the TileMap built.
+     */
+    private static TileMap buildMap(MapData data, int xOffset, int yOffset, Class<?> c) {
 
-                if(j < mapWidth * mapHeight) {
-                    for(String anA : a) {
+        TileMap map = new TileMap(data.getMapWidth(), data.getMapHeight(), data.getTileWidth(), data.getTileHeight(),
+                loadImage(data.getUrl(), c), data.getScale(), xOffset, yOffset);
 
-                        mapArray[j] = Integer.parseInt(anA);
-                        j++;
-                    }
-                } else {
-                    for(String anA : a) {
+        map.setTileSheetUrl(data.getUrl());
+        map.setMap(data.getMap());
+        map.setCollisionMap(data.getCollisionMap());
 
-                        cMapArray[l] = Integer.parseInt(anA);
-                        l++;
-                    }
-                }
+        //kept by the canvas so the map can be reloaded when its file changes, once swapped in if built by a preload
+        if(!CommandBuffer.addTileMap(map))
+            Temple.getActiveGame().addTileMap(map);
 
-                line = buffer.readLine();
-            }
+        for (MapData.Layer layer : data.getLayers()) {
+            map.addLayer(layer.getName(), layer.getDrawOrder(), layer.getParallax()).setAll(layer.getTiles());
+        }
 
-            map.setMap(mapArray);
-            map.setCollisionMap(cMapArray);
+        return map;
+    }
 
-            buffer.close();
+    /**
+     * Commits a map load event if a recording wants it.
+     *
+     * @param event the event started before loading.
+     * @param path of the map.
+     * @param data data of the loaded map.
+     */
+    private static void commitMapLoad(TempleEvents.MapLoad event, String path, MapData data) {
 
-            return map;
+        event.end();
 
-        } catch (IOException e) {
+        if(event.shouldCommit()) {
 
-            e.printStackTrace();
+            event.path = path;
+            event.width = data.getMapWidth();
+            event.height = data.getMapHeight();
+            event.commit();
         }
+    }
 
-        return null;
+    /**
+     * Loads an image from the classpath.
+     *
+     * Works like {@code new Image(url)}, but the load shows up in flight recordings,
+     * and an image already decoded by the {@link AssetManager} is handed out instead of decoding it again.
+     *
+     * @param url the classpath location of the image, for example "templeengine/examples/puzzle/res/player.png".
+     * @return the image.
+     */
+    public static Image loadImage(String url) { return AssetManager.getImage(url); }
+
+    /**
+     * Loads an image relative to the class file location.
+     *
+     * @param fileName the path of the image relative to the class file location.
+     * @param c the class which calls for the function.
+     * @return the image.
+     */
+    public static Image loadImage(String fileName, Class<?> c) {
+
+        return AssetManager.getImage(AssetManager.locate(fileName, c));
+    }
+
+    /**
+     * Commits an image load event if a recording wants it.
+     *
+     * @param event the event started before loading.
+     * @param url of the image.
+     * @param image the loaded image.
+     */
+    static void commitImageLoad(TempleEvents.ImageLoad event, String url, Image image) {
+
+        event.end();
+
+        if(event.shouldCommit()) {
+
+            event.url = url;
+            event.width = (int) image.getWidth();
+            event.height = (int) image.getHeight();
+            event.bytes = (long) event.width * event.height * 4;
+            event.commit();
+        }
     }
 }
@@ -1,10 +1,14 @@
 package templeengine.src.core;
 
 import javafx.animation.AnimationTimer;
-import java.util.function.Consumer;
 
 /**
  * The {@code GameLoop} class runs the innermost JavaFX app game loop.
+ *
+ * <p>
+ * The loop advances the {@link GameClock} on every JavaFX pulse and runs a tick for each tick the clock has due,
+ * the tick rate and time scale being those of the clock.
+ * </p>
  */
 public class GameLoop extends AnimationTimer {
 
@@ -20,6 +24,10 @@ public class GameLoop extends AnimationTimer {
      * Runner for the fixed updater.
      */
     private final Runnable fupdater;
+    /**
+     * Runner for the renderer, run once per pulse after the updates.
+     */
+    private final Runnable renderer;
 
     /**
      * Constructs the runners and the GameTime.
@@ -28,78 +36,111 @@ public class GameLoop extends AnimationTimer {
      * @param fupdater runner for fixed updater.
      */
     public GameLoop(Runnable updater, Runnable fupdater)
+    {
+        this(updater, fupdater, () -> {});
+    }
+
+    /**
+     * Constructs the runners and the GameTime.
+     *
+     * @param updater runner for updater.
+     * @param fupdater runner for fixed updater.
+     * @param renderer runner for the renderer.
+     */
+    public GameLoop(Runnable updater, Runnable fupdater, Runnable renderer)
     {
         timer = new GameTime();
         this.updater = updater;
         this.fupdater = fupdater;
+        this.renderer = renderer;
     }
 
     /**
-     * Timestep for the game loop. 0.0166f = 60fps
+     * Nanoseconds of each pulse spent running ticks when uncapped, leaving the rest for rendering.
      */
-    private static final float timeStep = 0.0166f;
+    private static final long UNCAPPED_BUDGET = 14000000;
 
     /**
-     * Previous time the animationtimer updated.
-     */
-    private long previousTime = 0;
-    /**
-     * Time accummulated since last runner update.
+     * Whether the loop runs ticks as fast as it can.
      */
-    private float accumulatedTime = 0;
-
-    //private float secondsElapsedSinceLastFpsUpdate = 0f;
-    //private int framesSinceLastFpsUpdate = 0;
+    private static boolean uncapped = false;
 
     /**
-     * Handles the animationTimer update, updates the runners if enough time has passed.
+     * Handles the animationTimer update, runs the runners for every tick the {@link GameClock} has due.
      *
      * @param currentTime the current time.
      */
     @Override
     public void handle(long currentTime)
     {
-        if (previousTime == 0) {
-            previousTime = currentTime;
-            return;
-        }
+        GameClock.pulse(currentTime);
+
+        if(uncapped) {
+
+            long pulseStart = System.nanoTime();
 
-        float secondsElapsed = (currentTime - previousTime) / 1e9f;
-        float secondsElapsedCapped = Math.min(secondsElapsed, timeStep / GameTime.getTimeScale());
-        accumulatedTime += secondsElapsedCapped;
-        previousTime = currentTime;
+            do {
+                GameClock.advanceTick();
+                tick();
+            } while(uncapped && System.nanoTime() - pulseStart < UNCAPPED_BUDGET);
 
-        while (accumulatedTime >= timeStep / GameTime.getTimeScale()) {
+        } else {
 
-            //TODO: make the fixed and normal update actually different heh heh
-            timer.update();
-            fupdater.run();
-            updater.run();
-            accumulatedTime -= timeStep / GameTime.getTimeScale();
+            while (GameClock.consumeTick()) {
+                tick();
+            }
         }
 
-        //secondsElapsedSinceLastFpsUpdate += secondsElapsed;
-        //framesSinceLastFpsUpdate++;
+        renderer.run();
+    }
+
+    /**
+     * Runs a single tick of the runners.
+     */
+    private void tick()
+    {
+        TempleEvents.Tick event = new TempleEvents.Tick();
+        event.begin();
+
+        //TODO: make the fixed and normal update actually different heh heh
+        timer.update();
+        InputPlayer.tick();
+        InputRecorder.tick();
+        fupdater.run();
+        updater.run();
 
-        //if (secondsElapsedSinceLastFpsUpdate >= 1.0f) {
+        event.end();
 
-            //int fps = Math.round(framesSinceLastFpsUpdate / secondsElapsedSinceLastFpsUpdate);
-            //fpsReporter.accept(fps);
-            //secondsElapsedSinceLastFpsUpdate = 0;
-            //framesSinceLastFpsUpdate = 0;
-        //}
+        if(event.shouldCommit()) {
+
+            event.frame = GameTime.frameCount();
+            event.fill(Temple.getActiveGame().getStats());
+            event.commit();
+        }
     }
 
+    /**
+     * Sets whether the loop runs uncapped. An uncapped loop runs ticks back to back for most of each pulse
+     * instead of keeping to the time step, used for running replays faster than real time.
+     *
+     * @param u true to uncap the loop.
+     */
+    public static void setUncapped(boolean u) { uncapped = u; }
+
+    /**
+     * Checks whether the loop runs uncapped.
+     *
+     * @return true if uncapped.
+     */
+    public static boolean isUncapped() { return uncapped; }
+
     /**
      * Stops the game loop.
      */
     @Override
     public void stop()
     {
-        previousTime = 0;
-        accumulatedTime = 0;
-        //secondsElapsedSinceLastFpsUpdate = 0f;
-        //framesSinceLastFpsUpdate = 0;
+        GameClock.pause();
         super.stop();
     }
 }
@@ -16,11 +16,17 @@ import java.util.ArrayList;
  * </p>
  *
  * <p>
+ * GameObjects can be attached to each other with {@code addChild()}. The x, y and angle of a child are relative to its parent,
+ * and the resulting world transform is cached, only recomputed once the parent or another ancestor has moved.
+ * The node and colliders of an object always follow its world transform.
+ * </p>
+ *
+ * <p>
  * You can find example codes on GameObjects in the examples folder.
  * </p>
  *
  */
-public abstract class GameObject extends ImageView {
+public abstract class GameObject extends ImageView implements Registered {
 
     /**
      * This {@link ArrayList} holds all the {@link CollisionInterface}s of the GameObject.
@@ -82,12 +88,92 @@ public abstract class GameObject extends ImageView {
      * it will call {@code onTrigger()} instead.
      */
     public boolean isTrigger = false;
+    /**
+     * If an object is marked parallel-safe, its {@code update()} and {@code fixedUpdate()} run on worker threads
+     * alongside other parallel-safe objects. Such an object must only change itself, read other objects without changing them,
+     * and leave the scene graph and engine singletons alone, adding and removing objects and colliders and posting events is fine.
+     * {@link ObjectPool} and {@link DebugDraw} aren't thread-safe, so {@code obtain()}, {@code release()} and drawing
+     * are off limits too. Removing a pooled object is fine, it goes back to its pool once the phase is over.
+     */
+    public boolean isParallelSafe = false;
 
     /**
      * Bounds from within leaving will destroy the object automatically. Does nothing if not set.
      */
     private Bounds existanceBounds;
 
+    /**
+     * Slot of the object in the registry of the canvas, -1 if not added.
+     */
+    private int registrySlot = -1;
+
+    /**
+     * The pool the object belongs to, null if not pooled.
+     */
+    private ObjectPool<?> pool;
+    /**
+     * Whether the object is waiting in its pool.
+     */
+    private boolean inPool = false;
+    /**
+     * The prefab the object was built from, null if built otherwise.
+     */
+    private Prefab<?> prefab;
+
+    /**
+     * Whether the object keeps its position, velocity and angle in the {@link EntityStore} of the canvas.
+     */
+    private boolean packed = false;
+    /**
+     * The store holding the values of the object, null if not in a store.
+     */
+    private EntityStore store;
+    /**
+     * Index of the object in its store, -1 if not in a store.
+     */
+    private int storeIndex = -1;
+    /**
+     * Node changes deferred while updating in parallel, as {@link CommandBuffer} SYNC bits.
+     */
+    private int pendingSync = 0;
+
+    /**
+     * The object this is attached to, null if not attached.
+     */
+    private GameObject parentObject;
+    /**
+     * The objects attached to this, null until the first one.
+     */
+    private ArrayList<GameObject> childObjects;
+    /**
+     * Cached world x.
+     */
+    private double worldX;
+    /**
+     * Cached world y.
+     */
+    private double worldY;
+    /**
+     * Cached world angle.
+     */
+    private double worldAngle;
+    /**
+     * Local x the cached world transform was computed from.
+     */
+    private double cachedX = Double.NaN;
+    /**
+     * Local y the cached world transform was computed from.
+     */
+    private double cachedY = Double.NaN;
+    /**
+     * Local angle the cached world transform was computed from.
+     */
+    private double cachedAngle = Double.NaN;
+    /**
+     * Whether an ancestor has moved since the world transform was computed.
+     */
+    private boolean transformDirty = true;
+
     public GameObject() {
 
         colliders = new ArrayList<>();
@@ -107,10 +193,10 @@ public abstract class GameObject extends ImageView {
 
         for (CollisionInterface collider : colliders) {
 
-            collider.setCX(x + collider.getOriginX());
-            collider.setCY(y + collider.getOriginY());
+            collider.setCX(getWorldX() + collider.getOriginX());
+            collider.setCY(getWorldY() + collider.getOriginY());
 
-            collider.getShape().setRotate(collider.getParentObject().getRotate());
+            collider.getShape().setRotate(getRotate());
         }
     }
 
@@ -135,8 +221,7 @@ public abstract class GameObject extends ImageView {
         currentFrame = frame;
         currentAnimation = animation;
 
-        this.setImage(animation.getSheet());
-        this.setViewport(currentAnimation.getFrame(currentFrame).getData());
+        showFrame();
     }
 
     /**
@@ -147,17 +232,23 @@ public abstract class GameObject extends ImageView {
      */
     public void fixedUpdate() {
 
-        x += velocityX;
-        y += velocityY;
+        if(store == null) {
 
-        setTranslateX(x);
-        setTranslateY(y);
+            x += velocityX;
+            y += velocityY;
+        }
 
-        alignColliders();
+        if(childObjects != null && isLocalChanged())
+            markChildrenDirty();
+
+        if(getRotate() != getWorldAngle())
+            rotateNode();
+
+        moveNode();
 
         if(existanceBounds != null) {
 
-            if(!existanceBounds.contains(x,y)) {
+            if(!existanceBounds.contains(getWorldX(),getWorldY())) {
 
                 Temple.getActiveGame().removeObject(this);
             }
@@ -192,7 +283,7 @@ public abstract class GameObject extends ImageView {
                     currentFrame++;
                 }
 
-                this.setViewport(currentAnimation.getFrame(currentFrame).getData());
+                showFrame();
 
                 lastFrame = GameTime.frameCount();
             }
@@ -204,6 +295,16 @@ public abstract class GameObject extends ImageView {
      */
     public void postUpdate() {}
 
+    /**
+     * Called when the object is taken out of its {@link ObjectPool}. Good for resetting the state of a reused object.
+     */
+    public void onSpawn() {}
+
+    /**
+     * Called when the object goes back to its {@link ObjectPool}.
+     */
+    public void onDespawn() {}
+
     /**
      * Called when this object is a trigger and has intersected with another collidable object.
      *
@@ -224,11 +325,14 @@ public abstract class GameObject extends ImageView {
      */
     public void onCollision(Shape intersection, GameObject hitObject) {
 
-        double centerX = x + getWidth() / 2;
-        double centerY = y - getWidth() / 2;
+        double px = getX2();
+        double py = getY2();
+
+        double centerX = getWorldX() + getWidth() / 2;
+        double centerY = getWorldY() - getWidth() / 2;
 
-        double hcenterX = hitObject.x + hitObject.getWidth() / 2;
-        double hcenterY = hitObject.y - hitObject.getWidth() / 2;
+        double hcenterX = hitObject.getWorldX() + hitObject.getWidth() / 2;
+        double hcenterY = hitObject.getWorldY() - hitObject.getWidth() / 2;
 
         boolean left = centerX - hcenterX < 0;
         boolean up = centerY - hcenterY < 0;
@@ -240,7 +344,7 @@ public abstract class GameObject extends ImageView {
 
             if(width < height) {
 
-                x += left ? -width : width;
+                px += left ? -width : width;
                 setVelocityX(0);
             }
         }
@@ -249,13 +353,14 @@ public abstract class GameObject extends ImageView {
 
             if(height < width) {
 
-                y += up ? -height : height;
+                py += up ? -height : height;
                 setVelocityY(0);
             }
         }
 
-        setTranslateX(x);
-        setTranslateY(y);
+        setPosition(px, py);
+        markChildrenDirty();
+        moveNode();
     }
 
     /**
@@ -265,12 +370,10 @@ public abstract class GameObject extends ImageView {
      */
     public void rotate(double amount) {
 
-        if(angle < 359)
-            angle += amount;
+        if(getAngle() < 359)
+            setAngle(getAngle() + amount);
         else
-            angle = 0;
-
-        this.setRotate(angle);
+            setAngle(0);
     }
 
     /**
@@ -280,8 +383,8 @@ public abstract class GameObject extends ImageView {
      */
     public void setVelocityForward(double velocity) {
 
-        this.velocityX = velocity * Math.cos(Math.toRadians(angle));
-        this.velocityY = velocity * Math.sin(Math.toRadians(angle));
+        setVelocityX(velocity * Math.cos(Math.toRadians(getAngle())));
+        setVelocityY(velocity * Math.sin(Math.toRadians(getAngle())));
     }
 
     /**
@@ -309,38 +412,38 @@ public abstract class GameObject extends ImageView {
      *
      * @return velocityX.
      */
-    public double getVelocityX() { return velocityX; }
+    public double getVelocityX() { return store != null ? store.velocityX[storeIndex] : velocityX; }
     /**
      * Gets velocityY.
      *
      * @return velocityY.
      */
-    public double getVelocityY() { return velocityY; }
+    public double getVelocityY() { return store != null ? store.velocityY[storeIndex] : velocityY; }
     /**
      * Sets velocityX.
      *
      * @param velocityX to be set.
      */
-    public void setVelocityX(double velocityX) { this.velocityX = velocityX; }
+    public void setVelocityX(double velocityX) { if(store != null) store.velocityX[storeIndex] = velocityX; else this.velocityX = velocityX; }
     /**
      * Sets velocityY.
      *
      * @param velocityY to be set.
      */
-    public void setVelocityY(double velocityY) { this.velocityY = velocityY; }
+    public void setVelocityY(double velocityY) { if(store != null) store.velocityY[storeIndex] = velocityY; else this.velocityY = velocityY; }
 
     /**
      * Gets the angle.
      *
      * @return angle.
      */
-    public double getAngle() { return angle; }
+    public double getAngle() { return store != null ? store.angle[storeIndex] : angle; }
     /**
      * Sets the angle and rotates the object by it.
      *
      * @param angle to be set.
      */
-    public void setAngle(double angle) { this.angle = angle; setRotate(angle); }
+    public void setAngle(double angle) { if(store != null) store.angle[storeIndex] = angle; else this.angle = angle; markChildrenDirty(); rotateNode(); }
 
     /**
      * Gets the height.
@@ -360,13 +463,13 @@ public abstract class GameObject extends ImageView {
      *
      * @return x of the object.
      */
-    public double getX2() { return x; }
+    public double getX2() { return store != null ? store.x[storeIndex] : x; }
     /**
      * Gets the y of the object. getY() gets the y of the imageview.
      *
      * @return y of the object.
      */
-    public double getY2() { return y; }
+    public double getY2() { return store != null ? store.y[storeIndex] : y; }
 
     /**
      * Sets x and y of the object and translates it to the place.
@@ -374,7 +477,362 @@ public abstract class GameObject extends ImageView {
      * @param x position to be set.
      * @param y position to be set.
      */
-    public void setXY(double x, double y) { this.x = x; this.y = y; setTranslateX(x); setTranslateY(y); alignColliders(); }
+    public void setXY(double x, double y) { setPosition(x, y); markChildrenDirty(); moveNode(); }
+
+    /**
+     * Sets x and y of the object without moving the node or colliders.
+     *
+     * @param x position to be set.
+     * @param y position to be set.
+     */
+    private void setPosition(double x, double y) {
+
+        if(store != null) {
+
+            store.x[storeIndex] = x;
+            store.y[storeIndex] = y;
+
+        } else {
+
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Attaches an object to this one. The x, y and angle of the child become relative to this object,
+     * offsets being rotated around the position of this object as it turns.
+     *
+     * The child is still an object of its own in the canvas, and has to be added and removed like any other object.
+     * Objects in a hierarchy shouldn't be marked parallel-safe.
+     *
+     * @param child the object to attach.
+     */
+    public void addChild(GameObject child) {
+
+        if(child.parentObject == this || child == this)
+            return;
+
+        if(child.parentObject != null)
+            child.parentObject.removeChild(child);
+
+        if(childObjects == null)
+            childObjects = new ArrayList<>();
+
+        childObjects.add(child);
+        child.parentObject = this;
+        child.markDirty();
+    }
+
+    /**
+     * Detaches an object from this one. The x, y and angle of the child become world values again,
+     * without moving it, until it gets moved.
+     *
+     * @param child the object to detach.
+     */
+    public void removeChild(GameObject child) {
+
+        if(child.parentObject != this)
+            return;
+
+        childObjects.remove(child);
+        child.parentObject = null;
+        child.markDirty();
+    }
+
+    /**
+     * Gets the object this is attached to.
+     *
+     * @return the parent, null if not attached.
+     */
+    public GameObject getParentObject() { return parentObject; }
+
+    /**
+     * Gets the objects attached to this one.
+     *
+     * @return the children, null if there has never been any.
+     */
+    public ArrayList<GameObject> getChildObjects() { return childObjects; }
+
+    /**
+     * Gets the world x of the object, which is the same as its x unless it is attached to another object.
+     *
+     * @return world x.
+     */
+    public double getWorldX() { if(isTransformStale()) computeWorldTransform(); return worldX; }
+    /**
+     * Gets the world y of the object, which is the same as its y unless it is attached to another object.
+     *
+     * @return world y.
+     */
+    public double getWorldY() { if(isTransformStale()) computeWorldTransform(); return worldY; }
+    /**
+     * Gets the world angle of the object, which is the same as its angle unless it is attached to another object.
+     *
+     * @return world angle.
+     */
+    public double getWorldAngle() { if(isTransformStale()) computeWorldTransform(); return worldAngle; }
+
+    /**
+     * Checks whether the cached world transform is out of date.
+     *
+     * @return true if it has to be computed again.
+     */
+    private boolean isTransformStale() { return transformDirty || isLocalChanged(); }
+
+    /**
+     * Checks whether the local transform has changed since the world transform was computed,
+     * which happens without a setter when the object is moved by velocity.
+     *
+     * @return true if changed.
+     */
+    private boolean isLocalChanged() { return cachedX != getX2() || cachedY != getY2() || cachedAngle != getAngle(); }
+
+    /**
+     * Computes the world transform from the local transform and the world transform of the parent.
+     */
+    private void computeWorldTransform() {
+
+        double lx = getX2();
+        double ly = getY2();
+        double la = getAngle();
+
+        if(childObjects != null && isLocalChanged())
+            markChildrenDirty();
+
+        if(parentObject == null) {
+
+            worldX = lx;
+            worldY = ly;
+            worldAngle = la;
+
+        } else {
+
+            double parentAngle = parentObject.getWorldAngle();
+            double cos = Math.cos(Math.toRadians(parentAngle));
+            double sin = Math.sin(Math.toRadians(parentAngle));
+
+            worldX = parentObject.getWorldX() + lx * cos - ly * sin;
+            worldY = parentObject.getWorldY() + lx * sin + ly * cos;
+            worldAngle = parentAngle + la;
+        }
+
+        cachedX = lx;
+        cachedY = ly;
+        cachedAngle = la;
+        transformDirty = false;
+    }
+
+    /**
+     * Marks the world transform of this object and every object attached below it out of date.
+     */
+    private void markDirty() {
+
+        transformDirty = true;
+        markChildrenDirty();
+    }
+
+    /**
+     * Marks the world transforms of every object attached below this one out of date.
+     * Stops at children already marked, since everything below them is marked too.
+     */
+    private void markChildrenDirty() {
+
+        if(childObjects == null)
+            return;
+
+        for (GameObject child : childObjects) {
+
+            if(!child.transformDirty)
+                child.markDirty();
+        }
+    }
+
+    /**
+     * Checks whether an ancestor has moved since the world transform was computed.
+     *
+     * @return true if dirty.
+     */
+    boolean isTransformDirty() { return transformDirty; }
+
+    /**
+     * Moves the node and colliders of the object to its world transform. Called by the canvas after the fixed updates
+     * for objects whose ancestors moved after they were updated.
+     */
+    void syncTransform() {
+
+        if(getRotate() != getWorldAngle())
+            rotateNode();
+
+        moveNode();
+    }
+
+    /**
+     * Moves the node and colliders to the position of the object, later if updating in parallel.
+     */
+    private void moveNode() {
+
+        if(CommandBuffer.defer(this, CommandBuffer.SYNC_TRANSLATE))
+            return;
+
+        setTranslateX(getWorldX());
+        setTranslateY(getWorldY());
+
+        //the store aligns the colliders of packed objects all at once before the collision pass
+        if(store == null)
+            alignColliders();
+    }
+
+    /**
+     * Rotates the node to the angle of the object, later if updating in parallel.
+     */
+    private void rotateNode() {
+
+        if(CommandBuffer.defer(this, CommandBuffer.SYNC_ROTATE))
+            return;
+
+        setRotate(getWorldAngle());
+    }
+
+    /**
+     * Shows the current frame of the current animation, later if updating in parallel.
+     */
+    private void showFrame() {
+
+        if(CommandBuffer.defer(this, CommandBuffer.SYNC_FRAME))
+            return;
+
+        if(getImage() != currentAnimation.getSheet())
+            setImage(currentAnimation.getSheet());
+
+        setViewport(currentAnimation.getFrame(currentFrame).getData());
+    }
+
+    /**
+     * Does the node changes deferred while updating in parallel. Called by the {@link CommandBuffer} on the JavaFX thread.
+     *
+     * @param bits SYNC bits of what to do.
+     */
+    void syncNode(int bits) {
+
+        if((bits & CommandBuffer.SYNC_ROTATE) != 0)
+            rotateNode();
+
+        if((bits & CommandBuffer.SYNC_FRAME) != 0 && currentAnimation != null)
+            showFrame();
+
+        if((bits & (CommandBuffer.SYNC_TRANSLATE | CommandBuffer.SYNC_ROTATE)) != 0)
+            moveNode();
+    }
+
+    /**
+     * Gets the node changes waiting to be done.
+     *
+     * @return SYNC bits.
+     */
+    int getPendingSync() { return pendingSync; }
+    /**
+     * Sets the node changes waiting to be done.
+     *
+     * @param bits SYNC bits.
+     */
+    void setPendingSync(int bits) { pendingSync = bits; }
+
+    /**
+     * Sets whether the object keeps its position, velocity and angle in the {@link EntityStore} of the canvas.
+     * Has to be set before the object is added to the canvas.
+     *
+     * Packed objects are moved all at once by the store, but their x, y, velocityX, velocityY and angle fields
+     * are only up to date while they are not in the canvas. Use the getters and setters on them instead.
+     *
+     * @param packed true to pack the object.
+     */
+    public void setPacked(boolean packed) { this.packed = packed; }
+    /**
+     * Checks whether the object keeps its values in the {@link EntityStore}.
+     *
+     * @return true if packed.
+     */
+    public boolean isPacked() { return packed; }
+    /**
+     * Gets the index of the object in its store.
+     *
+     * @return index, -1 if not in a store.
+     */
+    public int getStoreIndex() { return storeIndex; }
+    /**
+     * Sets the store of the object. Only called by {@link EntityStore}.
+     *
+     * @param store the store, null when leaving it.
+     * @param index in the store, -1 when leaving it.
+     */
+    void setStore(EntityStore store, int index) { this.store = store; this.storeIndex = index; }
+
+    /**
+     * Gets the prefab the object was built from. The animations of the prefab can be found through it.
+     *
+     * @return the prefab, null if not built from a prefab.
+     */
+    public Prefab<?> getPrefab() { return prefab; }
+    /**
+     * Sets the prefab the object was built from. Only called by {@link Prefab}.
+     *
+     * @param prefab the prefab.
+     */
+    void setPrefab(Prefab<?> prefab) { this.prefab = prefab; }
+
+    /**
+     * Gets the animation playing.
+     *
+     * @return the animation, null if there is none.
+     */
+    Animation getCurrentAnimation() { return currentAnimation; }
+    /**
+     * Gets the frame of the animation playing.
+     *
+     * @return index of the frame.
+     */
+    int getCurrentFrame() { return currentFrame; }
+
+    /**
+     * Gets the pool of the object.
+     *
+     * @return the pool, null if the object isn't pooled.
+     */
+    public ObjectPool<?> getPool() { return pool; }
+    /**
+     * Sets the pool of the object. Only called by {@link ObjectPool}.
+     *
+     * @param pool the pool.
+     */
+    void setPool(ObjectPool<?> pool) { this.pool = pool; }
+    /**
+     * Checks whether the object is waiting in its pool.
+     *
+     * @return true if in the pool.
+     */
+    public boolean isInPool() { return inPool; }
+    /**
+     * Sets whether the object is waiting in its pool. Only called by {@link ObjectPool}.
+     *
+     * @param inPool true if in the pool.
+     */
+    void setInPool(boolean inPool) { this.inPool = inPool; }
+
+    /**
+     * Gets the registry slot of the object.
+     *
+     * @return slot, -1 if not added to the canvas.
+     */
+    @Override
+    public int getRegistrySlot() { return registrySlot; }
+    /**
+     * Sets the registry slot of the object. Only called by {@link EntityRegistry}.
+     *
+     * @param slot the slot.
+     */
+    @Override
+    public void setRegistrySlot(int slot) { registrySlot = slot; }
 
     /**
      * Gets the name.
@@ -15,26 +15,20 @@ import javafx.scene.media.MediaPlayer;
  */
 public class GameSound {
 
-    /**
-     * The player for the sound.
-     */
-    private static MediaPlayer player;
     /**
      * The player for the music.
      */
     private static MediaPlayer mPlayer;
 
     /**
-     * Plays the desired sound.
+     * Plays the desired sound. The sound is loaded once and kept by the {@link AssetManager}, so it can be preloaded.
      *
      * @param fileName where the sound is located relative to the class file.
      * @param c the class the sound is played from.
      */
     public static void playSound(String fileName, Class c){
 
-        Media m = new Media(c.getResource(fileName).toString());
-        player = new MediaPlayer(m);
-        player.play();
+        AssetManager.getSound(AssetManager.locate(fileName, c)).play();
     }
 
     /**
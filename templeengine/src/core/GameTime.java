@@ -9,6 +9,7 @@ package templeengine.src.core;
  *
  * JavaFX application runs at the desired speed of 60fps but can fluctuate above if the machine is faster.
  * GameTime timer attempts to run at only 60fps rather than the maximum possible fps.
+ * The frame count is the tick index of the {@link GameClock}, so it always matches the ticks the game loop has run.
  *
  * GameTime class keeps count of the passed frames in the game, allowing the user to time events based on the frames passed
  * rather than the time passed. This is useful in games like fighting games where moves are frame based rather than time.
@@ -28,53 +29,29 @@ package templeengine.src.core;
  */
 public class GameTime {
 
-    /**
-     * The frame count since the start of the game.
-     */
-    private static int frameCount;
     /**
      * Frame counting for fps calculation.
      */
     private static int frameCountS = 0;
-
     /**
-     * Duration of a single frame.
-     */
-    private static long frameDuration = 1000000000 / 100;
-
-    /**
-     * Last time a frame was passed.
-     */
-    private static long lastTime;
-    /**
-     * Last time a frame was passed for fps calc.
-     */
-    private static long lastTimeS;
-    /**
-     * Last time a frame was passed for fps calc.
+     * Real time the fps was last calculated at.
      */
     private static long lastTimeStart;
 
-    /**
-     * The time scale of the timer, lower values mean slower.
-     */
-    private static float timeScale = 1.0f;
-
     /**
      * Current fps of the timer.
      */
     private static int fps;
 
     /**
-     * Constructs a timer.
+     * Constructs a timer, resetting the {@link GameClock}.
      */
     public GameTime()
     {
-        frameCount = 0;
+        GameClock.reset();
 
-        lastTime = System.nanoTime();
-        lastTimeS = 0;
-        lastTimeStart = System.nanoTime();
+        frameCountS = 0;
+        lastTimeStart = 0;
     }
 
     /**
@@ -84,12 +61,7 @@ public class GameTime {
      */
     public static void setTimeScale(float scale)
     {
-        if(scale <= 0 || scale > 100)
-            return;
-
-        timeScale = scale;
-
-        frameDuration = (long) ((1000000000 / 100) / timeScale);
+        GameClock.setTimeScale(scale);
     }
 
     /**
@@ -97,30 +69,24 @@ public class GameTime {
      *
      * @return timescale.
      */
-    public static float getTimeScale() { return timeScale; }
+    public static float getTimeScale() { return (float) GameClock.getTimeScale(); }
 
     /**
-     * Updates the timer.
+     * Updates the timer. Called by the game loop once per tick.
      */
     public void update()
     {
-        if(lastTimeS >= 1000000000.0) {
+        long time = GameClock.getRealNanos();
 
-            fps = (int) (frameCountS / (lastTimeS / 1000000000));
+        frameCountS++;
 
-            frameCountS = 0;
-            lastTimeS = 0;
-            lastTimeStart = System.nanoTime();
-        }
+        if(time - lastTimeStart >= 1000000000L) {
 
-        if(System.nanoTime() - lastTime > frameDuration)
-        {
-            frameCount++;
-            frameCountS++;
-            lastTime = System.nanoTime();
-        }
+            fps = (int) (frameCountS * 1000000000L / (time - lastTimeStart));
 
-        lastTimeS = lastTime - lastTimeStart;
+            frameCountS = 0;
+            lastTimeStart = time;
+        }
     }
 
     /**
@@ -140,6 +106,16 @@ public class GameTime {
      */
     public static int frameCount() {
 
-        return frameCount;
+        return (int) GameClock.getTick();
+    }
+
+    /**
+     * Sets the frame count. Used by the {@link InputPlayer} to reproduce a recorded session.
+     *
+     * @param count the frame count.
+     */
+    static void setFrameCount(int count) {
+
+        GameClock.setTick(count);
     }
 }
@@ -0,0 +1,473 @@
+package templeengine.src.core;
+
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The {@code HotReload} reloads maps and images into the running game as soon as their files are saved, for iterating on levels.
+ *
+ * <p>
+ * The reloader watches source directories for changed files on a thread of its own. A changed .map or .bmap file is parsed
+ * on that thread, and every {@link TileMap} loaded from it is updated cell by cell: only the tiles that differ get a new image,
+ * and only the collision blocks with changed cells are rebaked. A changed image is decoded on that thread too, and swapped
+ * into every {@link Animation}, {@link Prefab}, {@link TileMap} and node showing the old one. A changed sound is forgotten
+ * by the {@link AssetManager}, so it's loaded again the next time it plays.
+ * </p>
+ *
+ * <p>
+ * Only the swaps happen on the JavaFX thread, all at the start of the next update, so a tick never sees half of a change.
+ * Editors often write a file in several steps, so changes are only reloaded once the files have been quiet for {@code QUIET_MS}.
+ * Maps that changed size can't be updated in place, and need the game restarted.
+ * Every swap is recorded as a {@link TempleEvents.HotReload} event, telling which maps were skipped.
+ * </p>
+ *
+ * <p>
+ * The watched directories are source roots, the directories the classpath locations of the assets are relative to.
+ * Hot reloading is meant for development, and is easiest started along with the game:
+ * </p>
+ * <pre><code>
+ * java -Dtemple.hotreload=. templeengine.examples.puzzle.Main
+ * </code></pre>
+ */
+public class HotReload {
+
+    /**
+     * Milliseconds the files have to stay unchanged before they're reloaded.
+     */
+    public static final long QUIET_MS = 150;
+
+    /**
+     * The watcher, null if not running.
+     */
+    private static volatile WatchService watcher;
+    /**
+     * The thread watching and reloading.
+     */
+    private static Thread thread;
+    /**
+     * The watched source roots.
+     */
+    private static List<Path> roots = new ArrayList<>();
+    /**
+     * The watched directories by their keys, only touched by the watching thread after starting.
+     */
+    private static Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Swaps waiting for the start of the next update.
+     */
+    private static final ConcurrentLinkedQueue<Consumer<GameCanvas>> swaps = new ConcurrentLinkedQueue<>();
+    /**
+     * The animations and prefabs made while running, which may show a swapped image.
+     */
+    private static final Set<Object> tracked = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    /**
+     * Starts watching source roots, stopping any earlier watch.
+     * Images are only swapped into the animations and prefabs made after starting, so start before the game loads.
+     *
+     * @param sourceRoots the source roots.
+     */
+    public static void start(Path... sourceRoots) {
+
+        stop();
+
+        try {
+
+            watcher = FileSystems.getDefault().newWatchService();
+            roots = new ArrayList<>();
+            directories = new HashMap<>();
+
+            for (Path root : sourceRoots) {
+
+                roots.add(root.toAbsolutePath().normalize());
+                register(root.toAbsolutePath().normalize());
+            }
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+            stop();
+
+            return;
+        }
+
+        thread = new Thread(HotReload::watch, "Temple hot reload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts watching the source roots of a comma separated list, like the one of -Dtemple.hotreload.
+     *
+     * @param sourceRoots the source roots.
+     */
+    public static void start(String sourceRoots) {
+
+        String[] split = sourceRoots.split(",");
+        Path[] paths = new Path[split.length];
+
+        for(int i = 0; i < split.length; i++) {
+            paths[i] = Paths.get(split[i].trim());
+        }
+
+        start(paths);
+    }
+
+    /**
+     * Stops watching.
+     */
+    public static void stop() {
+
+        if(watcher == null)
+            return;
+
+        try {
+
+            watcher.close();
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+
+        watcher = null;
+        thread = null;
+        tracked.clear();
+    }
+
+    /**
+     * Checks whether the reloader is watching.
+     *
+     * @return true if it is.
+     */
+    public static boolean isRunning() { return watcher != null; }
+
+    /**
+     * Keeps track of an animation or a prefab while running, so swapped images can be swapped into it.
+     * Called by their constructors.
+     *
+     * @param o the animation or prefab.
+     */
+    static void track(Object o) {
+
+        if(watcher != null)
+            tracked.add(o);
+    }
+
+    /**
+     * Applies the swaps of the reloads done since the last update. Called by the canvas at the start of every update.
+     *
+     * @param canvas the canvas.
+     */
+    static void apply(GameCanvas canvas) {
+
+        Consumer<GameCanvas> swap;
+
+        while((swap = swaps.poll()) != null) {
+            swap.accept(canvas);
+        }
+    }
+
+    /**
+     * Waits for changes and reloads them once the files are quiet. Runs on the watching thread until stopped.
+     */
+    private static void watch() {
+
+        WatchService watching = watcher;
+
+        try {
+
+            while(true) {
+
+                LinkedHashMap<Path, Path> changed = new LinkedHashMap<>();
+                WatchKey key = watching.take();
+
+                while(key != null) {
+
+                    collect(key, changed);
+                    key = watching.poll(QUIET_MS, TimeUnit.MILLISECONDS);
+                }
+
+                for (Map.Entry<Path, Path> file : changed.entrySet()) {
+
+                    try {
+
+                        reload(file.getValue(), file.getKey());
+
+                    } catch (IOException | RuntimeException e) {
+
+                        //likely a file saved half way, the next save reloads it
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+
+            //stopped
+        }
+    }
+
+    /**
+     * Collects the changed files of a key, and starts watching new directories.
+     *
+     * @param key the key.
+     * @param changed the changed files so far, mapped to their source roots.
+     */
+    private static void collect(WatchKey key, Map<Path, Path> changed) {
+
+        Path directory = directories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+
+            if(directory == null || event.kind() == StandardWatchEventKinds.OVERFLOW)
+                continue;
+
+            Path file = directory.resolve((Path) event.context());
+
+            if(Files.isDirectory(file)) {
+
+                if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE)
+                    register(file);
+
+            } else if(Files.isRegularFile(file)) {
+
+                changed.put(file, rootOf(file));
+            }
+        }
+
+        key.reset();
+    }
+
+    /**
+     * Reloads a changed file.
+     *
+     * @param root the source root of the file.
+     * @param file the file.
+     * @throws IOException if the file couldn't be read.
+     */
+    private static void reload(Path root, Path file) throws IOException {
+
+        String path = root.relativize(file).toString().replace('\\', '/');
+        String lower = path.toLowerCase();
+
+        if(lower.endsWith(".map") || lower.endsWith(".bmap")) {
+
+            MapData data;
+
+            if(lower.endsWith(".map")) {
+
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    data = TextMapFormat.read(reader);
+                }
+
+            } else {
+
+                data = BinaryMapFormat.read(ByteBuffer.wrap(Files.readAllBytes(file)));
+            }
+
+            swaps.add(canvas -> swapMap(canvas, path, data));
+
+        } else if(lower.endsWith(".png") || lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".gif") || lower.endsWith(".bmp")) {
+
+            Image old = AssetManager.isLoaded(path) ? AssetManager.getLoadedImage(path) : null;
+
+            //images never loaded have nothing showing them
+            if(old == null)
+                return;
+
+            Image image = new Image(file.toUri().toString());
+
+            if(image.isError())
+                throw new IOException("couldn't decode " + path, image.getException());
+
+            swaps.add(canvas -> {
+
+                AssetManager.replaceImage(path, image);
+                swapImage(canvas, path, old, image);
+            });
+
+        } else if(lower.endsWith(".wav") || lower.endsWith(".mp3") || lower.endsWith(".aiff") || lower.endsWith(".m4a")) {
+
+            if(AssetManager.isLoaded(path))
+                AssetManager.unload(path);
+        }
+    }
+
+    /**
+     * Updates the maps loaded from a file to its new data.
+     *
+     * @param canvas the canvas.
+     * @param path classpath location of the file.
+     * @param data the new data.
+     */
+    private static void swapMap(GameCanvas canvas, String path, MapData data) {
+
+        for (TileMap map : new ArrayList<>(canvas.getTileMaps())) {
+
+            if(!path.equals(map.getSource()))
+                continue;
+
+            TempleEvents.HotReload event = new TempleEvents.HotReload();
+            event.begin();
+
+            int changed = map.reload(data);
+
+            event.end();
+
+            if(event.shouldCommit()) {
+
+                event.path = path;
+                event.reloaded = changed >= 0;
+                event.cellsChanged = Math.max(changed, 0);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Swaps an image everywhere it's shown.
+     *
+     * @param canvas the canvas.
+     * @param path classpath location of the file.
+     * @param old the old image.
+     * @param image the new image.
+     */
+    private static void swapImage(GameCanvas canvas, String path, Image old, Image image) {
+
+        TempleEvents.HotReload event = new TempleEvents.HotReload();
+        event.begin();
+
+        Object[] objects;
+
+        synchronized (tracked) {
+            objects = tracked.toArray();
+        }
+
+        for (Object o : objects) {
+
+            if(o instanceof Animation && ((Animation) o).getSheet() == old)
+                ((Animation) o).setSheet(image);
+            else if(o instanceof Prefab)
+                ((Prefab<?>) o).swapImage(old, image);
+        }
+
+        ArrayList<GameObject> gameObjects = new ArrayList<>();
+        canvas.getObjectRegistry().copyTo(gameObjects);
+
+        if(canvas.getStreamer() != null)
+            canvas.getStreamer().copyTo(gameObjects);
+
+        for (GameObject o : gameObjects) {
+
+            if(o.getImage() == old)
+                o.setImage(image);
+        }
+
+        for (TileMap map : canvas.getTileMaps()) {
+
+            if(map.getTileSheet() == old)
+                map.swapTileSheet(image);
+        }
+
+        if(canvas.getPane() != null)
+            swapNode(canvas.getPane(), old, image);
+
+        event.end();
+
+        if(event.shouldCommit()) {
+
+            event.path = path;
+            event.reloaded = true;
+            event.commit();
+        }
+    }
+
+    /**
+     * Swaps an image in a node and every node under it.
+     *
+     * @param node the node.
+     * @param old the old image.
+     * @param image the new image.
+     */
+    private static void swapNode(Node node, Image old, Image image) {
+
+        if(node instanceof ImageView && ((ImageView) node).getImage() == old)
+            ((ImageView) node).setImage(image);
+
+        if(node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                swapNode(child, old, image);
+            }
+        }
+    }
+
+    /**
+     * Starts watching a directory and every directory under it, hidden ones left out.
+     *
+     * @param directory the directory.
+     */
+    private static void register(Path directory) {
+
+        try {
+
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attributes) throws IOException {
+
+                    if(!d.equals(directory) && d.getFileName().toString().startsWith("."))
+                        return FileVisitResult.SKIP_SUBTREE;
+
+                    directories.put(d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY), d);
+
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Finds the source root of a file.
+     *
+     * @param file the file.
+     * @return the deepest root the file is under.
+     */
+    private static Path rootOf(Path file) {
+
+        Path found = null;
+
+        for (Path root : roots) {
+
+            if(file.startsWith(root) && (found == null || root.getNameCount() > found.getNameCount()))
+                found = root;
+        }
+
+        return found;
+    }
+}
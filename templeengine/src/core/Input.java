@@ -3,6 +3,8 @@ package templeengine.src.core;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.TreeSet;
 
 /**
@@ -54,4 +56,22 @@ public class Input {
 
         return keycodes.contains(e);
     }
+
+    /**
+     * Gets the set of keycodes being pressed. Used by the {@link InputRecorder}.
+     *
+     * @return the pressed keycodes.
+     */
+    static Set<KeyCode> getKeys() { return keycodes; }
+
+    /**
+     * Replaces the set of keycodes being pressed. Used by the {@link InputPlayer}.
+     *
+     * @param keys the keycodes to set pressed.
+     */
+    static void setKeys(Collection<KeyCode> keys) {
+
+        keycodes.clear();
+        keycodes.addAll(keys);
+    }
 }
@@ -0,0 +1,216 @@
+package templeengine.src.core;
+
+import javafx.scene.input.KeyCode;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+
+/**
+ * The {@code InputPlayer} plays back a session recorded with the {@link InputRecorder}.
+ *
+ * <p>
+ * Every tick the player sets the keys of {@link Input} and the {@link GameTime} frame count to what they were
+ * when recording, and the random generator of {@link Utilities} is restarted with the recorded seed,
+ * so the session plays out exactly the same way again.
+ * </p>
+ *
+ * <p>
+ * With {@code fast} on the {@link GameLoop} is uncapped for the duration of the replay, running as many ticks as it can,
+ * which makes replays useful as repeatable benchmarks. Once the log ends the loop goes back to normal,
+ * and the ticks played and the time they took stay readable with {@code getTicks()} and {@code getElapsedNanos()}.
+ * A finished replay is also recorded as a {@link TempleEvents.Replay} event.
+ * The easiest way is to start the game with {@code -Dtemple.replay=session.rec}, and {@code -Dtemple.replay.fast=true}
+ * for an uncapped replay.
+ * </p>
+ */
+public class InputPlayer {
+
+    /**
+     * Stream of the log being played, null if not playing.
+     */
+    private static DataInputStream in;
+    /**
+     * The keys currently pressed in the replay.
+     */
+    private static EnumSet<KeyCode> keys = EnumSet.noneOf(KeyCode.class);
+    /**
+     * The frame count of the replay.
+     */
+    private static int frame;
+    /**
+     * Whether the loop was uncapped by the replay.
+     */
+    private static boolean fast;
+    /**
+     * Ticks played so far.
+     */
+    private static long ticks;
+    /**
+     * Time the replay started.
+     */
+    private static long startTime;
+    /**
+     * Time the last replay took, once stopped.
+     */
+    private static long elapsed;
+
+    /**
+     * Starts playing a log. Has to be called before the game loads, same as the recording.
+     *
+     * @param fileName the path of the log.
+     * @param fast whether to uncap the game loop for the replay.
+     */
+    public static void start(String fileName, boolean fast) {
+
+        stop();
+
+        try {
+
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+
+            if(in.readInt() != InputRecorder.MAGIC || in.readUnsignedByte() != InputRecorder.VERSION)
+                throw new IOException(fileName + " is not a recording");
+
+            Utilities.setSeed(in.readLong());
+            frame = in.readInt();
+
+            keys.clear();
+            ticks = 0;
+            elapsed = 0;
+            startTime = System.nanoTime();
+
+            InputPlayer.fast = fast;
+
+            if(fast)
+                GameLoop.setUncapped(true);
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+            stop();
+        }
+    }
+
+    /**
+     * Stops playing and gives the keyboard back to the player.
+     */
+    public static void stop() {
+
+        if(in == null)
+            return;
+
+        try {
+
+            in.close();
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+
+        elapsed = System.nanoTime() - startTime;
+        in = null;
+        keys.clear();
+        Input.setKeys(keys);
+
+        if(fast)
+            GameLoop.setUncapped(false);
+
+        fast = false;
+    }
+
+    /**
+     * Checks whether a replay is running.
+     *
+     * @return true if playing.
+     */
+    public static boolean isPlaying() { return in != null; }
+
+    /**
+     * Gets the amount of ticks played.
+     *
+     * @return tick count.
+     */
+    public static long getTicks() { return ticks; }
+
+    /**
+     * Gets the time the replay has taken so far, or took once it stopped.
+     *
+     * @return time in nanoseconds.
+     */
+    public static long getElapsedNanos() { return in != null ? System.nanoTime() - startTime : elapsed; }
+
+    /**
+     * Gets the rate the replay played at, which is the tick rate of the game for uncapped replays.
+     *
+     * @return ticks per second, 0 if nothing was played.
+     */
+    public static double getTicksPerSecond() {
+
+        long nanos = getElapsedNanos();
+
+        return nanos > 0 ? ticks * 1e9 / nanos : 0;
+    }
+
+    /**
+     * Plays the next tick of the log. Called by the engine every tick.
+     */
+    static void tick() {
+
+        if(in == null)
+            return;
+
+        try {
+
+            int header = InputRecorder.readVarInt(in);
+
+            frame += header >>> 1;
+
+            if((header & 1) != 0) {
+
+                int changes = InputRecorder.readVarInt(in);
+                KeyCode[] codes = KeyCode.values();
+
+                for(int i = 0; i < changes; i++) {
+
+                    int change = InputRecorder.readVarInt(in);
+
+                    if((change & 1) != 0)
+                        keys.add(codes[change >>> 1]);
+                    else
+                        keys.remove(codes[change >>> 1]);
+                }
+            }
+
+            Input.setKeys(keys);
+            GameTime.setFrameCount(frame);
+
+            ticks++;
+
+        } catch (EOFException e) {
+
+            boolean uncapped = fast;
+
+            stop();
+
+            TempleEvents.Replay event = new TempleEvents.Replay();
+
+            if(event.shouldCommit()) {
+
+                event.ticks = ticks;
+                event.elapsed = elapsed;
+                event.fast = uncapped;
+                event.commit();
+            }
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+            stop();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package templeengine.src.core;
+
+import javafx.scene.input.KeyCode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+
+/**
+ * The {@code InputRecorder} records a play session into a compact binary log, which the {@link InputPlayer} can play back.
+ *
+ * <p>
+ * The recorder captures the seed of {@link Utilities}, and for every tick the {@link GameTime} frame count
+ * and the keys pressed and released in {@link Input}. Nothing else is needed to reproduce a session, since
+ * everything else in the game follows from those. Only changes are written, so a tick where nothing happens
+ * takes a single byte.
+ * </p>
+ *
+ * <p>
+ * The recording has to start before the game loads, so the random numbers line up.
+ * The easiest way is to start the game with {@code -Dtemple.record=session.rec},
+ * the recording then stops once the game is closed.
+ * </p>
+ *
+ * <p>
+ * Log layout, numbers being unsigned varints unless said otherwise:
+ * </p>
+ * <pre><code>
+ * int  magic "TREC"
+ * byte version
+ * long seed
+ * int  starting frame count
+ * per tick: (frame count delta &lt;&lt; 1 | has key changes)
+ *           if key changes: change count, then per change (KeyCode ordinal &lt;&lt; 1 | pressed)
+ * </code></pre>
+ */
+public class InputRecorder {
+
+    /**
+     * Magic number at the start of a log.
+     */
+    static final int MAGIC = 0x54524543;
+    /**
+     * Version of the log layout.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Stream of the log being recorded, null if not recording.
+     */
+    private static DataOutputStream out;
+    /**
+     * The keys pressed on the last recorded tick.
+     */
+    private static EnumSet<KeyCode> lastKeys = EnumSet.noneOf(KeyCode.class);
+    /**
+     * Frame count on the last recorded tick.
+     */
+    private static int lastFrame;
+    /**
+     * Ticks recorded so far.
+     */
+    private static long ticks;
+
+    /**
+     * Starts recording into a file, restarting the random generator with a fresh seed.
+     *
+     * @param fileName the path of the log.
+     */
+    public static void start(String fileName) {
+
+        stop();
+
+        try {
+
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+
+            Utilities.setSeed(System.nanoTime());
+
+            lastKeys.clear();
+            lastFrame = GameTime.frameCount();
+            ticks = 0;
+
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(Utilities.getSeed());
+            out.writeInt(lastFrame);
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+            out = null;
+        }
+    }
+
+    /**
+     * Stops recording and closes the log.
+     */
+    public static void stop() {
+
+        if(out == null)
+            return;
+
+        try {
+
+            out.close();
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+
+        out = null;
+    }
+
+    /**
+     * Checks whether a recording is running.
+     *
+     * @return true if recording.
+     */
+    public static boolean isRecording() { return out != null; }
+
+    /**
+     * Gets the amount of ticks recorded.
+     *
+     * @return tick count.
+     */
+    public static long getTicks() { return ticks; }
+
+    /**
+     * Records the current tick. Called by the engine every tick.
+     */
+    static void tick() {
+
+        if(out == null)
+            return;
+
+        try {
+
+            int changes = 0;
+
+            for (KeyCode key : Input.getKeys()) {
+                if(!lastKeys.contains(key))
+                    changes++;
+            }
+
+            for (KeyCode key : lastKeys) {
+                if(!Input.getKeys().contains(key))
+                    changes++;
+            }
+
+            int frame = GameTime.frameCount();
+
+            writeVarInt(out, (frame - lastFrame) << 1 | (changes > 0 ? 1 : 0));
+            lastFrame = frame;
+
+            if(changes > 0) {
+
+                writeVarInt(out, changes);
+
+                for (KeyCode key : Input.getKeys()) {
+                    if(!lastKeys.contains(key))
+                        writeVarInt(out, key.ordinal() << 1 | 1);
+                }
+
+                for (KeyCode key : lastKeys) {
+                    if(!Input.getKeys().contains(key))
+                        writeVarInt(out, key.ordinal() << 1);
+                }
+
+                lastKeys.clear();
+                lastKeys.addAll(Input.getKeys());
+            }
+
+            ticks++;
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+            stop();
+        }
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param out the output to write to.
+     * @param value to write.
+     * @throws IOException if writing fails.
+     */
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+
+        while((value & ~0x7F) != 0) {
+
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param in the input to read from.
+     * @return the value read.
+     * @throws IOException if reading fails or the stream ends.
+     */
+    static int readVarInt(DataInput in) throws IOException {
+
+        int value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+
+        } while((b & 0x80) != 0);
+
+        return value;
+    }
+}
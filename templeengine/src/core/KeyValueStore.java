@@ -0,0 +1,511 @@
+package templeengine.src.core;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The {@code KeyValueStore} keeps the properties of a .dat file in memory and writes changes behind the game's back.
+ *
+ * <p>
+ * The store is read from disk once, when opened, and every read after that comes from memory. Writes change the memory right away
+ * and are then appended to a .log file next to the .dat file on a thread of the store's own, so saving never waits for the disk.
+ * Once the log grows past {@code COMPACT_BYTES} it's compacted: the whole store is written into a temporary file, forced to disk
+ * and renamed over the .dat file in one atomic step, and the log starts over. A crash at any point leaves either the old
+ * or the new .dat file whole, and the records of the log finish what it's missing. A record torn by a crash is noticed by its
+ * checksum and cut off the log when the store is opened, so the records appended after it can be read back.
+ * </p>
+ *
+ * <p>
+ * The .dat file stays a Java Properties file, so files saved before the store existed still load. Stores are opened through
+ * {@code GameIO.openStore()}, which keeps one store per file, and are closed when the game closes, which compacts them
+ * and forces them to disk.
+ * </p>
+ *
+ * <p>
+ * Example code of keeping a highscore:
+ * </p>
+ * <pre><code>
+ * KeyValueStore scores = GameIO.openStore("./highscore");
+ *
+ * int highScore = Integer.parseInt(scores.get("highScore", "0"));
+ * scores.put("highScore", highScore + 100 + "");
+ * </code></pre>
+ */
+public class KeyValueStore {
+
+    /**
+     * Size of the log that gets it compacted.
+     */
+    public static final long COMPACT_BYTES = 64 * 1024;
+
+    /**
+     * Record type of setting a key.
+     */
+    private static final byte PUT = 0;
+    /**
+     * Record type of removing a key.
+     */
+    private static final byte REMOVE = 1;
+    /**
+     * Record type of removing every key.
+     */
+    private static final byte CLEAR = 2;
+
+    /**
+     * The .dat file.
+     */
+    private Path data;
+    /**
+     * The .log file.
+     */
+    private Path log;
+
+    /**
+     * The store as the game sees it.
+     */
+    private ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+    /**
+     * The store as written to disk, only touched by the writer thread.
+     */
+    private HashMap<String, String> persisted = new HashMap<>();
+
+    /**
+     * Writes the changes in the order they were made.
+     */
+    private ExecutorService writer;
+    /**
+     * The open log, only touched by the writer thread.
+     */
+    private FileChannel logChannel;
+    /**
+     * Whether a failed append may have left a torn record at the end of the log, only touched by the writer thread.
+     */
+    private boolean torn = false;
+
+    /**
+     * Opens a store, reading the .dat file and the records of the log. Use {@code GameIO.openStore()} instead.
+     *
+     * @param fileName the path of the file, without the .dat ending.
+     */
+    KeyValueStore(String fileName) {
+
+        this.data = Paths.get(fileName + ".dat");
+        this.log = Paths.get(fileName + ".log");
+
+        try {
+
+            if(Files.exists(data)) {
+
+                Properties p = new Properties();
+                InputStream in = Files.newInputStream(data);
+
+                p.load(in);
+                in.close();
+
+                for (String key : p.stringPropertyNames()) {
+                    persisted.put(key, p.getProperty(key));
+                }
+            }
+
+            if(Files.exists(log)) {
+
+                long good = replay();
+
+                //records appended after a torn one would never be read back
+                if(good < Files.size(log)) {
+                    try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+
+                        channel.truncate(good);
+                        channel.force(true);
+                    }
+                }
+            }
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+
+        values.putAll(persisted);
+
+        writer = Executors.newSingleThreadExecutor(r -> {
+
+            Thread thread = new Thread(r, "Temple store " + data.getFileName());
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param key the key.
+     * @return the value, null if there is none.
+     */
+    public String get(String key) { return values.get(key); }
+
+    /**
+     * Gets a value.
+     *
+     * @param key the key.
+     * @param fallback returned if there is no value.
+     * @return the value, or the fallback if there is none.
+     */
+    public String get(String key, String fallback) { return values.getOrDefault(key, fallback); }
+
+    /**
+     * Checks whether there is a value for a key.
+     *
+     * @param key the key.
+     * @return true if there is.
+     */
+    public boolean contains(String key) { return values.containsKey(key); }
+
+    /**
+     * Sets a value. Visible to reads right away, written to disk in the background.
+     *
+     * @param key the key.
+     * @param value the value.
+     */
+    public void put(String key, String value) {
+
+        values.put(key, value);
+        write(PUT, key, value);
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param key the key.
+     */
+    public void remove(String key) {
+
+        if(values.remove(key) != null)
+            write(REMOVE, key, null);
+    }
+
+    /**
+     * Removes every value.
+     */
+    public void clear() {
+
+        values.clear();
+        write(CLEAR, null, null);
+    }
+
+    /**
+     * Copies the store into Properties.
+     *
+     * @return the properties.
+     */
+    public Properties toProperties() {
+
+        Properties p = new Properties();
+        p.putAll(values);
+
+        return p;
+    }
+
+    /**
+     * Waits until every change made so far is on disk.
+     */
+    public void flush() {
+
+        try {
+
+            writer.submit(this::force).get();
+
+        } catch (Exception e) {
+
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compacts the store, forces it to disk and stops its thread. The store can't be written after closing.
+     */
+    void close() {
+
+        writer.submit(() -> {
+
+            try {
+
+                compact();
+
+            } catch (IOException e) {
+
+                e.printStackTrace();
+            }
+
+            closeLog();
+        });
+
+        writer.shutdown();
+
+        try {
+
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+
+        } catch (InterruptedException e) {
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a record to be appended to the log.
+     *
+     * @param type type of the record.
+     * @param key the key, null for CLEAR.
+     * @param value the value, null unless PUT.
+     */
+    private void write(byte type, String key, String value) {
+
+        writer.execute(() -> {
+
+            try {
+
+                append(type, key, value);
+
+                if(logChannel.size() > COMPACT_BYTES)
+                    compact();
+
+            } catch (IOException e) {
+
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Appends a record to the log and applies it to the persisted store. Runs on the writer thread.
+     *
+     * Records are a type byte, the key and the value as an int length and UTF-8 bytes, -1 for none,
+     * and a CRC32 of all of it, little-endian. If an earlier append failed, the store is compacted first,
+     * which starts the log over without the torn record.
+     *
+     * @param type type of the record.
+     * @param key the key.
+     * @param value the value.
+     * @throws IOException if the log couldn't be written.
+     */
+    private void append(byte type, String key, String value) throws IOException {
+
+        byte[] k = key == null ? null : key.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + (k == null ? 0 : k.length) + 4 + (v == null ? 0 : v.length) + 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        record.put(type);
+        putBytes(record, k);
+        putBytes(record, v);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+
+        if(torn)
+            compact();
+
+        if(logChannel == null)
+            logChannel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        try {
+
+            while(record.hasRemaining()) {
+                logChannel.write(record);
+            }
+
+        } catch (IOException e) {
+
+            torn = true;
+            throw e;
+        }
+
+        apply(persisted, type, key, value);
+    }
+
+    /**
+     * Reads the records of the log into the persisted store, stopping at the first torn or corrupt record.
+     *
+     * @return length of the log up to the end of the last good record.
+     * @throws IOException if the log couldn't be read.
+     */
+    private long replay() throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(log)).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+
+        while(buffer.remaining() > 0) {
+
+            int start = buffer.position();
+
+            try {
+
+                byte type = buffer.get();
+                byte[] k = getBytes(buffer);
+                byte[] v = getBytes(buffer);
+
+                crc.reset();
+                crc.update(buffer.array(), start, buffer.position() - start);
+
+                if(buffer.getInt() != (int) crc.getValue())
+                    return start;
+
+                apply(persisted, type, k == null ? null : new String(k, StandardCharsets.UTF_8),
+                        v == null ? null : new String(v, StandardCharsets.UTF_8));
+
+            } catch (RuntimeException e) {
+
+                //a record cut short by a crash
+                return start;
+            }
+        }
+
+        return buffer.position();
+    }
+
+    /**
+     * Writes the persisted store into the .dat file and empties the log. Runs on the writer thread.
+     *
+     * @throws IOException if the files couldn't be written.
+     */
+    private void compact() throws IOException {
+
+        Path temp = data.resolveSibling(data.getFileName() + ".tmp");
+        Properties p = new Properties();
+        p.putAll(persisted);
+
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        OutputStream out = Channels.newOutputStream(channel);
+
+        p.store(out, "Temple Properties");
+        out.flush();
+        channel.force(true);
+        channel.close();
+
+        try {
+
+            Files.move(temp, data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (AtomicMoveNotSupportedException e) {
+
+            Files.move(temp, data, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        //the .dat file now has everything the log had, so the log can start over
+        closeLog();
+        logChannel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        logChannel.force(true);
+        torn = false;
+    }
+
+    /**
+     * Forces the log to disk. Runs on the writer thread.
+     */
+    private void force() {
+
+        try {
+
+            if(logChannel != null)
+                logChannel.force(true);
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces the log to disk and closes it. Runs on the writer thread.
+     */
+    private void closeLog() {
+
+        if(logChannel == null)
+            return;
+
+        force();
+
+        try {
+
+            logChannel.close();
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+
+        logChannel = null;
+    }
+
+    /**
+     * Applies a record to a map.
+     *
+     * @param map the map.
+     * @param type type of the record.
+     * @param key the key.
+     * @param value the value.
+     */
+    private static void apply(Map<String, String> map, byte type, String key, String value) {
+
+        if(type == PUT)
+            map.put(key, value);
+        else if(type == REMOVE)
+            map.remove(key);
+        else if(type == CLEAR)
+            map.clear();
+    }
+
+    /**
+     * Puts bytes with their length, -1 for null.
+     *
+     * @param buffer the buffer.
+     * @param bytes the bytes.
+     */
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+
+        buffer.putInt(bytes == null ? -1 : bytes.length);
+
+        if(bytes != null)
+            buffer.put(bytes);
+    }
+
+    /**
+     * Gets bytes with their length.
+     *
+     * @param buffer the buffer.
+     * @return the bytes, null if the length is -1.
+     */
+    private static byte[] getBytes(ByteBuffer buffer) {
+
+        int length = buffer.getInt();
+
+        if(length < 0)
+            return null;
+
+        if(length > buffer.remaining())
+            throw new BufferUnderflowException();
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return bytes;
+    }
+}
@@ -0,0 +1,227 @@
+package templeengine.src.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code MapData} is the contents of a map file, without any tiles built out of it.
+ *
+ * <p>
+ * Both the text .map format and the binary .bmap format read into and write from this class,
+ * which is what lets {@link GameIO} convert maps between the two. A {@link TileMap} is built from the data
+ * once it is loaded into a game.
+ * </p>
+ *
+ * <p>
+ * The binary format is little-endian: the magic "TMAP", a version byte, the tileset url as a short length and UTF-8 bytes,
+ * the map width, map height, tile width and tile height as ints and the scale as a double, then a byte with the count of layers.
+ * Each layer starts with a type byte (0 for tiles, 1 for collisions), a flags byte ({@code SHORTS} for 16-bit values,
+ * {@code DEFLATE} for a compressed layer) and the byte length of the layer data as an int, followed by the data itself.
+ * Named layers have the type 2, and their data starts with the name as a short length and UTF-8 bytes, the draw order as an int
+ * and the parallax as a double before the values. Readers skip layer types they don't know.
+ * </p>
+ */
+public class MapData {
+
+    /**
+     * The tileset url.
+     */
+    private String url;
+    /**
+     * The width of the map in tiles.
+     */
+    private int mapWidth;
+    /**
+     * The height of the map in tiles.
+     */
+    private int mapHeight;
+    /**
+     * The width of the tiles.
+     */
+    private int tileWidth;
+    /**
+     * The height of the tiles.
+     */
+    private int tileHeight;
+    /**
+     * The number to scale the map with.
+     */
+    private double scale;
+    /**
+     * The image locations of the tiles.
+     */
+    private int[] map;
+    /**
+     * The collisions of the tiles.
+     */
+    private int[] collisionMap;
+    /**
+     * The named layers of the map.
+     */
+    private ArrayList<Layer> layers = new ArrayList<>();
+
+    /**
+     * Constructs map data.
+     *
+     * @param url of the tileset.
+     * @param mapWidth width of the map in tiles.
+     * @param mapHeight height of the map in tiles.
+     * @param tileWidth width of the tiles.
+     * @param tileHeight height of the tiles.
+     * @param scale number to scale the map with.
+     * @param map image locations of the tiles, mapWidth * mapHeight long.
+     * @param collisionMap collisions of the tiles, mapWidth * mapHeight long.
+     */
+    public MapData(String url, int mapWidth, int mapHeight, int tileWidth, int tileHeight, double scale, int[] map, int[] collisionMap) {
+
+        this.url = url;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.scale = scale;
+        this.map = map;
+        this.collisionMap = collisionMap;
+    }
+
+    /**
+     * Constructs map data out of a TileMap.
+     *
+     * @param map the TileMap.
+     */
+    public MapData(TileMap map) {
+
+        this(map.getTileSheetUrl(), map.getMapWidth(), map.getMapHeight(), map.getTileWidth(), map.getTileHeight(),
+                map.getScale(), map.getMap(), map.getCollisionMap());
+
+        for (TileLayer layer : map.getLayers()) {
+            layers.add(new Layer(layer.getName(), layer.getDrawOrder(), layer.getParallax(), layer.toArray()));
+        }
+    }
+
+    /**
+     * Adds a named layer.
+     *
+     * @param layer the layer.
+     */
+    public void addLayer(Layer layer) { layers.add(layer); }
+
+    /**
+     * Gets the tileset url.
+     *
+     * @return url of the tileset.
+     */
+    public String getUrl() { return url; }
+    /**
+     * Gets the width of the map.
+     *
+     * @return width in tiles.
+     */
+    public int getMapWidth() { return mapWidth; }
+    /**
+     * Gets the height of the map.
+     *
+     * @return height in tiles.
+     */
+    public int getMapHeight() { return mapHeight; }
+    /**
+     * Gets the width of the tiles.
+     *
+     * @return tile width.
+     */
+    public int getTileWidth() { return tileWidth; }
+    /**
+     * Gets the height of the tiles.
+     *
+     * @return tile height.
+     */
+    public int getTileHeight() { return tileHeight; }
+    /**
+     * Gets the scale of the map.
+     *
+     * @return the scale.
+     */
+    public double getScale() { return scale; }
+    /**
+     * Gets the image locations of the tiles.
+     *
+     * @return image locations.
+     */
+    public int[] getMap() { return map; }
+    /**
+     * Gets the collisions of the tiles.
+     *
+     * @return collisions.
+     */
+    public int[] getCollisionMap() { return collisionMap; }
+    /**
+     * Gets the named layers.
+     *
+     * @return the layers.
+     */
+    public List<Layer> getLayers() { return layers; }
+
+    /**
+     * The contents of a named {@link TileLayer}.
+     */
+    public static class Layer {
+
+        /**
+         * The name of the layer, without whitespace.
+         */
+        private String name;
+        /**
+         * Where the layer is drawn, higher on top.
+         */
+        private int drawOrder;
+        /**
+         * How much the layer moves with the camera.
+         */
+        private double parallax;
+        /**
+         * The image locations of the layer, mapWidth * mapHeight long.
+         */
+        private int[] tiles;
+
+        /**
+         * Constructs a layer.
+         *
+         * @param name the name of the layer, without whitespace.
+         * @param drawOrder where the layer is drawn, higher on top.
+         * @param parallax how much the layer moves with the camera.
+         * @param tiles image locations of the layer, mapWidth * mapHeight long.
+         */
+        public Layer(String name, int drawOrder, double parallax, int[] tiles) {
+
+            this.name = name;
+            this.drawOrder = drawOrder;
+            this.parallax = parallax;
+            this.tiles = tiles;
+        }
+
+        /**
+         * Gets the name of the layer.
+         *
+         * @return the name.
+         */
+        public String getName() { return name; }
+        /**
+         * Gets where the layer is drawn.
+         *
+         * @return the draw order.
+         */
+        public int getDrawOrder() { return drawOrder; }
+        /**
+         * Gets how much the layer moves with the camera.
+         *
+         * @return the parallax.
+         */
+        public double getParallax() { return parallax; }
+        /**
+         * Gets the image locations of the layer.
+         *
+         * @return image locations.
+         */
+        public int[] getTiles() { return tiles; }
+    }
+}
@@ -0,0 +1,224 @@
+package templeengine.src.core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The {@code ObjectIndex} keeps the objects of a {@link GameCanvas} grouped by class and by tag.
+ *
+ * <p>
+ * Every object is indexed under its own class and each of its superclasses up to GameObject,
+ * so asking for the objects of a class also gives the objects of its subclasses.
+ * The tag of an object is its name, as it was when the object was added to the canvas.
+ * </p>
+ *
+ * <p>
+ * The lists handed out are live read-only views, the same list is returned every time and it changes as objects
+ * are added and removed on update. Going through a list with an index doesn't allocate anything.
+ * A class or tag gets its list when the first object is indexed under it, asking before that gives an empty list
+ * that doesn't change, so looking up classes and tags that are never used doesn't grow the index.
+ * </p>
+ */
+class ObjectIndex {
+
+    /**
+     * Objects by class.
+     */
+    private HashMap<Class<?>, Bucket> types = new HashMap<>();
+    /**
+     * Objects by tag.
+     */
+    private HashMap<String, Bucket> tags = new HashMap<>();
+    /**
+     * The tag each object was indexed with.
+     */
+    private IdentityHashMap<GameObject, String> indexedTags = new IdentityHashMap<>();
+
+    /**
+     * Indexes an object.
+     *
+     * @param o the object to index.
+     */
+    void add(GameObject o) {
+
+        for(Class<?> c = o.getClass(); c != null && GameObject.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            bucket(types, c).insert(o);
+        }
+
+        String tag = o.getName();
+
+        if(tag != null) {
+            bucket(tags, tag).insert(o);
+            indexedTags.put(o, tag);
+        }
+    }
+
+    /**
+     * Takes an object out of the index.
+     *
+     * @param o the object to remove.
+     */
+    void remove(GameObject o) {
+
+        for(Class<?> c = o.getClass(); c != null && GameObject.class.isAssignableFrom(c); c = c.getSuperclass()) {
+
+            Bucket bucket = types.get(c);
+
+            if(bucket != null)
+                bucket.erase(o);
+        }
+
+        String tag = indexedTags.remove(o);
+
+        if(tag != null)
+            tags.get(tag).erase(o);
+    }
+
+    /**
+     * Gets the objects of a class, including subclasses.
+     *
+     * @param type the class.
+     * @param <T> type of the objects.
+     * @return live read-only list of the objects.
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> getObjects(Class<T> type) { return (List<T>) find(types, type); }
+
+    /**
+     * Gets the objects with a tag.
+     *
+     * @param tag the tag.
+     * @return live read-only list of the objects.
+     */
+    List<GameObject> getTagged(String tag) { return find(tags, tag); }
+
+    /**
+     * Counts the objects of a class, including subclasses.
+     *
+     * @param type the class.
+     * @return amount of objects.
+     */
+    int count(Class<?> type) { Bucket bucket = types.get(type); return bucket != null ? bucket.size() : 0; }
+
+    /**
+     * Gets the bucket of a key without making one.
+     *
+     * @param map the map of buckets.
+     * @param key the key.
+     * @param <K> type of the key.
+     * @return the bucket, or an empty list if nothing was ever indexed under the key.
+     */
+    private static <K> List<GameObject> find(HashMap<K, Bucket> map, K key) {
+
+        Bucket bucket = map.get(key);
+
+        return bucket != null ? bucket : Collections.<GameObject>emptyList();
+    }
+
+    /**
+     * Gets the bucket of a key, making an empty one if there is none. Only used when inserting.
+     *
+     * @param map the map of buckets.
+     * @param key the key.
+     * @param <K> type of the key.
+     * @return the bucket.
+     */
+    private static <K> Bucket bucket(HashMap<K, Bucket> map, K key) {
+
+        Bucket bucket = map.get(key);
+
+        if(bucket == null) {
+            bucket = new Bucket();
+            map.put(key, bucket);
+        }
+
+        return bucket;
+    }
+
+    /**
+     * Packed list of objects with constant time removal. Removing an object moves the last object into its place.
+     * Read-only from the outside, the list methods for changing it throw.
+     */
+    private static class Bucket extends AbstractList<GameObject> implements RandomAccess {
+
+        /**
+         * The objects, packed.
+         */
+        private GameObject[] objects = new GameObject[16];
+        /**
+         * Index of each object.
+         */
+        private IdentityHashMap<GameObject, Integer> indices = new IdentityHashMap<>();
+        /**
+         * Amount of objects.
+         */
+        private int size = 0;
+
+        /**
+         * Adds an object.
+         *
+         * @param o the object to add.
+         */
+        void insert(GameObject o) {
+
+            if(indices.containsKey(o))
+                return;
+
+            if(size == objects.length)
+                objects = Arrays.copyOf(objects, size * 2);
+
+            indices.put(o, size);
+            objects[size++] = o;
+        }
+
+        /**
+         * Removes an object.
+         *
+         * @param o the object to remove.
+         */
+        void erase(GameObject o) {
+
+            Integer index = indices.remove(o);
+
+            if(index == null)
+                return;
+
+            int last = --size;
+
+            if(index != last) {
+                objects[index] = objects[last];
+                indices.put(objects[index], index);
+            }
+
+            objects[last] = null;
+        }
+
+        /**
+         * Gets an object.
+         *
+         * @param index of the object.
+         * @return the object.
+         */
+        @Override
+        public GameObject get(int index) {
+
+            if(index >= size)
+                throw new IndexOutOfBoundsException(index + " >= " + size);
+
+            return objects[index];
+        }
+
+        /**
+         * Gets the amount of objects.
+         *
+         * @return size.
+         */
+        @Override
+        public int size() { return size; }
+    }
+}
@@ -0,0 +1,198 @@
+package templeengine.src.core;
+
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+/**
+ * The {@code ObjectPool} keeps GameObjects around for reuse instead of letting them become garbage.
+ *
+ * <p>
+ * Objects that get spawned and removed all the time, like bullets, are expensive to build since they set up images,
+ * animations and colliders. A pool builds them once and hands the same objects out again.
+ * Objects obtained from a pool go back to it automatically when they are removed from the canvas with
+ * {@code removeObject()}, so the rest of the game doesn't need to know about the pool at all.
+ * </p>
+ *
+ * <p>
+ * Obtaining an object calls its {@code onSpawn()} and going back to the pool calls its {@code onDespawn()},
+ * which is where the object should reset whatever state it changes while alive.
+ * The colliders of an object are kept with it, they are taken out of the canvas while the object is in the pool
+ * and put back when it gets obtained again.
+ * </p>
+ *
+ * <p>
+ * Example code of pooling bullets:
+ * </p>
+ * <pre><code>
+ * //in load()
+ * bullets = new ObjectPool&lt;&gt;(Bullet::new, 32);
+ *
+ * //when shooting
+ * Bullet bullet = bullets.obtain();
+ * bullet.fire(x, y, angle);
+ * addObject(bullet);
+ * </code></pre>
+ *
+ * @param <T> type of the pooled objects.
+ */
+public class ObjectPool<T extends GameObject> {
+
+    /**
+     * Builds new objects when the pool runs out.
+     */
+    private Supplier<T> factory;
+    /**
+     * Objects waiting in the pool.
+     */
+    private ArrayList<T> free = new ArrayList<>();
+    /**
+     * Amount of objects built by this pool.
+     */
+    private int created = 0;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param factory builds new objects for the pool, usually the constructor of the object.
+     */
+    public ObjectPool(Supplier<T> factory) {
+
+        this.factory = factory;
+    }
+
+    /**
+     * Constructs a pool and fills it with objects.
+     *
+     * Has to be called once the game has been loaded, since building objects adds their colliders to the active game.
+     *
+     * @param factory builds new objects for the pool, usually the constructor of the object.
+     * @param prewarm amount of objects to build right away.
+     */
+    public ObjectPool(Supplier<T> factory, int prewarm) {
+
+        this(factory);
+        prewarm(prewarm);
+    }
+
+    /**
+     * Builds objects into the pool ahead of time, so obtaining them later won't build anything.
+     *
+     * @param amount of objects to build.
+     */
+    public void prewarm(int amount) {
+
+        for(int i = 0; i < amount; i++) {
+
+            T object = create();
+
+            object.setInPool(true);
+            unregisterColliders(object);
+            free.add(object);
+        }
+    }
+
+    /**
+     * Takes an object out of the pool, building a new one if the pool is empty.
+     *
+     * The object is not added to the canvas, call {@code addObject()} for that.
+     *
+     * @return the object.
+     */
+    public T obtain() {
+
+        T object;
+
+        if(free.isEmpty()) {
+
+            object = create();
+
+        } else {
+
+            object = free.remove(free.size() - 1);
+
+            for (CollisionInterface collider : object.getColliders()) {
+                Temple.getActiveGame().addCollider(collider);
+            }
+        }
+
+        object.setInPool(false);
+        object.onSpawn();
+
+        return object;
+    }
+
+    /**
+     * Puts an object back into the pool.
+     *
+     * If the object is still in the canvas, even frozen by the {@link WorldStreamer}, it gets removed from it first, and goes back to the pool on the next update.
+     *
+     * @param object the object to put back.
+     */
+    public void release(T object) {
+
+        if(object.isInPool())
+            return;
+
+        GameCanvas game = Temple.getActiveGame();
+
+        if(game.getObjectRegistry().contains(object) || (game.getStreamer() != null && game.getStreamer().isFrozen(object))) {
+
+            game.removeObject(object);
+            return;
+        }
+
+        object.setInPool(true);
+        object.onDespawn();
+        unregisterColliders(object);
+        free.add(object);
+    }
+
+    /**
+     * Puts a removed object back into the pool. Called by the canvas when it removes a pooled object.
+     *
+     * @param object the removed object.
+     */
+    @SuppressWarnings("unchecked")
+    void despawn(GameObject object) { release((T) object); }
+
+    /**
+     * Gets the amount of objects waiting in the pool.
+     *
+     * @return free object count.
+     */
+    public int getFreeCount() { return free.size(); }
+
+    /**
+     * Gets the amount of objects this pool has built.
+     *
+     * @return object count.
+     */
+    public int getCreatedCount() { return created; }
+
+    /**
+     * Builds a new object belonging to this pool.
+     *
+     * @return the object.
+     */
+    private T create() {
+
+        T object = factory.get();
+
+        object.setPool(this);
+        created++;
+
+        return object;
+    }
+
+    /**
+     * Takes the colliders of an object out of the canvas.
+     *
+     * @param object the object.
+     */
+    private void unregisterColliders(T object) {
+
+        for (CollisionInterface collider : object.getColliders()) {
+            Temple.getActiveGame().removeCollider(collider);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package templeengine.src.core;
+
+import javafx.scene.image.Image;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Supplier;
+
+/**
+ * The {@code Prefab} is a template for building GameObjects fast.
+ *
+ * <p>
+ * Building a GameObject in its constructor means loading images, splitting animations and creating colliders
+ * every single time. A prefab does the expensive parts once: the image and the animations are loaded and split
+ * when the prefab is defined, and shared by every object built from it. Animations and their frames never change
+ * once split, and the current frame is kept by the object itself, so sharing them is safe.
+ * Building an object from a prefab then only creates what each object needs of its own, the node and its colliders.
+ * </p>
+ *
+ * <p>
+ * The factory of a prefab should be a constructor that does as little as possible, everything described by the prefab
+ * is set on the object after the factory has built it. The first animation added is the one objects start with,
+ * the rest can be found from the prefab of the object with {@code getPrefab().getAnimation(name)}.
+ * </p>
+ *
+ * <p>
+ * Example code of defining and using a prefab:
+ * </p>
+ * <pre><code>
+ * Animation idle = new Animation(GameIO.loadImage("templeengine/examples/asteroids/res/enemy_idle.png"), true);
+ * idle.split(4,2,5);
+ *
+ * Prefab&lt;Enemy&gt; enemy = new Prefab&lt;&gt;(Enemy::new)
+ *      .animation("idle", idle)
+ *      .fitSize(360, 166)
+ *      .circle(108, 29, 70);
+ *
+ * addObject(enemy.instantiate());
+ * </code></pre>
+ *
+ * @param <T> type of the objects built.
+ */
+public class Prefab<T extends GameObject> {
+
+    /**
+     * Collider spec type of rectangles.
+     */
+    private static final double RECTANGLE = 0;
+    /**
+     * Collider spec type of circles.
+     */
+    private static final double CIRCLE = 1;
+    /**
+     * Values per collider spec: type, origin x, origin y, width or radius, height.
+     */
+    private static final int STRIDE = 5;
+
+    /**
+     * Builds the bare objects.
+     */
+    private Supplier<T> factory;
+
+    /**
+     * Name given to the objects, null to keep what the factory gave.
+     */
+    private String name;
+    /**
+     * Image of the objects, null for none.
+     */
+    private Image image;
+    /**
+     * Fit width of the objects, 0 for none.
+     */
+    private double fitWidth = 0;
+    /**
+     * Fit height of the objects, 0 for none.
+     */
+    private double fitHeight = 0;
+
+    /**
+     * The animations of the objects by name.
+     */
+    private HashMap<String, Animation> animations = new HashMap<>();
+    /**
+     * The animation objects start with.
+     */
+    private Animation startAnimation;
+
+    /**
+     * Collider specs, {@code STRIDE} values each.
+     */
+    private double[] colliders = new double[STRIDE * 2];
+    /**
+     * Amount of collider specs.
+     */
+    private int colliderCount = 0;
+
+    /**
+     * Whether the objects can collide.
+     */
+    private boolean isCollidable = true;
+    /**
+     * Whether the objects are static.
+     */
+    private boolean isStatic = false;
+    /**
+     * Whether the objects are triggers.
+     */
+    private boolean isTrigger = false;
+    /**
+     * Whether the objects are parallel-safe.
+     */
+    private boolean isParallelSafe = false;
+    /**
+     * Whether the objects are packed into the {@link EntityStore}.
+     */
+    private boolean packed = false;
+
+    /**
+     * Amount of objects built from this prefab.
+     */
+    private int instances = 0;
+
+    /**
+     * Constructs an empty prefab.
+     *
+     * @param factory builds the bare objects, usually a constructor.
+     */
+    public Prefab(Supplier<T> factory) {
+
+        this.factory = factory;
+
+        HotReload.track(this);
+    }
+
+    /**
+     * Builds an object from the prefab. The object isn't added to the canvas, call {@code addObject()} for that.
+     *
+     * @return the object.
+     */
+    public T instantiate() {
+
+        T o = factory.get();
+
+        o.setPrefab(this);
+
+        if(name != null)
+            o.name = name;
+
+        if(image != null)
+            o.setImage(image);
+
+        if(fitWidth > 0)
+            o.setFitWidth(fitWidth);
+
+        if(fitHeight > 0)
+            o.setFitHeight(fitHeight);
+
+        if(startAnimation != null)
+            o.changeAnimation(startAnimation);
+
+        o.isCollidable = isCollidable;
+        o.isStatic = isStatic;
+        o.isTrigger = isTrigger;
+        o.isParallelSafe = isParallelSafe;
+        o.setPacked(packed);
+
+        for(int i = 0; i < colliderCount; i++) {
+
+            int c = i * STRIDE;
+
+            if(colliders[c] == CIRCLE)
+                o.addCollider(new CollisionCircle(o, colliders[c + 1], colliders[c + 2], colliders[c + 3]));
+            else
+                o.addCollider(new CollisionRectangle(o, colliders[c + 1], colliders[c + 2], colliders[c + 3], colliders[c + 4]));
+        }
+
+        instances++;
+
+        return o;
+    }
+
+    /**
+     * Sets the name of the objects.
+     *
+     * @param name the name.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> name(String name) { this.name = name; return this; }
+
+    /**
+     * Sets the image of the objects.
+     *
+     * @param image the image, shared by all objects.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> image(Image image) { this.image = image; return this; }
+
+    /**
+     * Sets the fit size of the objects.
+     *
+     * @param width fit width.
+     * @param height fit height.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> fitSize(double width, double height) { this.fitWidth = width; this.fitHeight = height; return this; }
+
+    /**
+     * Adds an animation. The first animation added is the one objects start with.
+     *
+     * @param name of the animation.
+     * @param animation the animation, split and shared by all objects.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> animation(String name, Animation animation) {
+
+        animations.put(name, animation);
+
+        if(startAnimation == null)
+            startAnimation = animation;
+
+        return this;
+    }
+
+    /**
+     * Adds a rectangle collider to the objects.
+     *
+     * @param originX origin x.
+     * @param originY origin y.
+     * @param width width of the collider.
+     * @param height height of the collider.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> rectangle(double originX, double originY, double width, double height) { return collider(RECTANGLE, originX, originY, width, height); }
+
+    /**
+     * Adds a circle collider to the objects.
+     *
+     * @param originX origin x.
+     * @param originY origin y.
+     * @param radius radius of the collider.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> circle(double originX, double originY, double radius) { return collider(CIRCLE, originX, originY, radius, 0); }
+
+    /**
+     * Sets the flags of the objects.
+     *
+     * @param isCollidable whether the objects can collide.
+     * @param isStatic whether the objects are static.
+     * @param isTrigger whether the objects are triggers.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> flags(boolean isCollidable, boolean isStatic, boolean isTrigger) {
+
+        this.isCollidable = isCollidable;
+        this.isStatic = isStatic;
+        this.isTrigger = isTrigger;
+
+        return this;
+    }
+
+    /**
+     * Sets whether the objects are parallel-safe.
+     *
+     * @param isParallelSafe true to update the objects in parallel.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> parallelSafe(boolean isParallelSafe) { this.isParallelSafe = isParallelSafe; return this; }
+
+    /**
+     * Sets whether the objects are packed into the {@link EntityStore}.
+     *
+     * @param packed true to pack the objects.
+     * @return this prefab for chaining.
+     */
+    public Prefab<T> packed(boolean packed) { this.packed = packed; return this; }
+
+    /**
+     * Gets an animation of the prefab.
+     *
+     * @param name of the animation.
+     * @return the animation, null if there is none by the name.
+     */
+    public Animation getAnimation(String name) { return animations.get(name); }
+
+    /**
+     * Swaps an image of the prefab and its animations, like when its file has changed.
+     *
+     * @param old the old image.
+     * @param image the new image.
+     */
+    void swapImage(Image old, Image image) {
+
+        if(this.image == old)
+            this.image = image;
+
+        for (Animation animation : animations.values()) {
+
+            if(animation.getSheet() == old)
+                animation.setSheet(image);
+        }
+    }
+
+    /**
+     * Gets the name of an animation of the prefab.
+     *
+     * @param animation the animation.
+     * @return the name, null if the animation isn't one of the prefab's.
+     */
+    public String getAnimationName(Animation animation) {
+
+        for (String name : animations.keySet()) {
+
+            if(animations.get(name) == animation)
+                return name;
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the amount of objects built from this prefab.
+     *
+     * @return instance count.
+     */
+    public int getInstanceCount() { return instances; }
+
+    /**
+     * Adds a collider spec.
+     *
+     * @param type RECTANGLE or CIRCLE.
+     * @param originX origin x.
+     * @param originY origin y.
+     * @param a width or radius.
+     * @param b height.
+     * @return this prefab for chaining.
+     */
+    private Prefab<T> collider(double type, double originX, double originY, double a, double b) {
+
+        if((colliderCount + 1) * STRIDE > colliders.length)
+            colliders = Arrays.copyOf(colliders, colliders.length * 2);
+
+        int c = colliderCount++ * STRIDE;
+
+        colliders[c] = type;
+        colliders[c + 1] = originX;
+        colliders[c + 2] = originY;
+        colliders[c + 3] = a;
+        colliders[c + 4] = b;
+
+        return this;
+    }
+}
@@ -4,7 +4,6 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 
 import java.util.ArrayList;
-import java.util.Random;
 
 /**
  * The {@code QuadTree} is a relatively simple class to help reduce the expensive collision check calls.
@@ -45,9 +44,9 @@ public class QuadTree {
     private QuadTree[] nodes;
 
     /**
-     * A random for setting a color when Temple.debug = true.
+     * Colors of the quadrants by level when Temple.debug = true.
      */
-    private Random random = new Random();
+    private static final Color[] DEBUG_COLORS = { Color.rgb(255, 80, 80, 0.8), Color.rgb(255, 200, 40, 0.8), Color.rgb(80, 255, 80, 0.8), Color.rgb(60, 200, 255, 0.8), Color.rgb(200, 90, 255, 0.8) };
 
     /**
      * Constructs the QuadTree with the level and bounds.
@@ -62,11 +61,6 @@ public class QuadTree {
 
         objects = new ArrayList<>();
         nodes = new QuadTree[4];
-
-        if(Temple.getActiveGame() != null && Temple.debug) {
-            this.bounds.setFill(Color.rgb(random.nextInt(256), random.nextInt(256), random.nextInt(256), 0.2));
-            Temple.getActiveGame().getPane().getChildren().add(this.bounds);
-        }
     }
 
     /**
@@ -76,9 +70,6 @@ public class QuadTree {
 
         objects.clear();
 
-        if(Temple.getActiveGame() != null && Temple.debug)
-            Temple.getActiveGame().getPane().getChildren().remove(this.bounds);
-
         for (int i = 0; i < nodes.length; i++) {
 
             if (nodes[i] != null) {
@@ -206,4 +197,54 @@ public class QuadTree {
 
         return index;
     }
-}
\ No newline at end of file
+
+    /**
+     * Counts the quadrants of this QuadTree, including itself.
+     *
+     * @return amount of quadrants.
+     */
+    public int getNodeCount() {
+
+        int count = 1;
+
+        if(nodes[0] != null) {
+            for (QuadTree node : nodes) {
+                count += node.getNodeCount();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the depth of the deepest quadrant of this QuadTree.
+     *
+     * @return depth, 1 if this QuadTree hasn't been split.
+     */
+    public int getDepth() {
+
+        int depth = 0;
+
+        if(nodes[0] != null) {
+            for (QuadTree node : nodes) {
+                depth = Math.max(depth, node.getDepth());
+            }
+        }
+
+        return depth + 1;
+    }
+
+    /**
+     * Draws the outlines of this QuadTree and its quadrants with {@link DebugDraw}.
+     */
+    public void debugDraw() {
+
+        DebugDraw.rect(bounds.getX(), bounds.getY(), bounds.getWidth(), bounds.getHeight(), DEBUG_COLORS[level % DEBUG_COLORS.length]);
+
+        if(nodes[0] != null) {
+            for (QuadTree node : nodes) {
+                node.debugDraw();
+            }
+        }
+    }
+}
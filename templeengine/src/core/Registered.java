@@ -0,0 +1,27 @@
+package templeengine.src.core;
+
+/**
+ * The {@code Registered} interface is implemented by anything kept in an {@link EntityRegistry}.
+ *
+ * <p>
+ * The registry stores the slot it gave to the entry in the entry itself, which is what lets it find and remove
+ * the entry without searching. The slot is -1 while the entry is not in a registry.
+ * Implementations should just store the value they are given.
+ * </p>
+ */
+public interface Registered {
+
+    /**
+     * Gets the registry slot of the entry.
+     *
+     * @return slot, -1 if not registered.
+     */
+    public int getRegistrySlot();
+
+    /**
+     * Sets the registry slot of the entry. Only called by {@link EntityRegistry}.
+     *
+     * @param slot the slot, -1 when removed.
+     */
+    public void setRegistrySlot(int slot);
+}
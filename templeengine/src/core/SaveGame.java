@@ -0,0 +1,982 @@
+package templeengine.src.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The {@code SaveGame} saves the objects of a {@link GameCanvas} into snapshot files and loads them back.
+ *
+ * <p>
+ * Only objects of registered classes are saved, each class registered with a factory that builds a bare object of it,
+ * usually {@code instantiate} of its prefab. Everything else, like the tiles of a map, is left for the game to rebuild.
+ * Saved are the position, angle and velocity of each object, its collision flags, its animation and frame when it was built
+ * from a prefab, and any fields registered for its class with {@code registerField()}.
+ * </p>
+ *
+ * <p>
+ * Saving copies the state of the objects into flat arrays on the calling thread, which for 10 000 objects takes about
+ * a millisecond, and everything else happens on a thread of the save game's own. The first save and every {@code fullEvery}th
+ * after it write a full snapshot into a .snap file, the ones in between only write what changed since the last full snapshot
+ * into a .delta file. Both are written into a temporary file first and renamed over the old one, so a crash mid-save leaves
+ * the last save whole. That makes autosaving every few seconds cheap:
+ * </p>
+ * <pre><code>
+ * //in load() of the canvas
+ * saves = new SaveGame(this, "./save");
+ * saves.register(Enemy.class, Enemy.prefab()::instantiate);
+ * saves.registerField(Enemy.class, "health", e -&gt; e.health, (e, v) -&gt; e.health = (int) v);
+ *
+ * //every few seconds
+ * saves.save();
+ *
+ * //to continue where the player left off
+ * saves.load();
+ * </code></pre>
+ */
+public class SaveGame {
+
+    /**
+     * The magic number, "TSNP".
+     */
+    private static final int MAGIC = 0x504E5354;
+    /**
+     * The version of the format.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Kind of full snapshots.
+     */
+    private static final byte FULL = 0;
+    /**
+     * Kind of deltas.
+     */
+    private static final byte DELTA = 1;
+
+    /**
+     * Values saved of every object: x, y, angle, velocity x, velocity y, flags, animation and frame.
+     */
+    private static final int BASE_FIELDS = 8;
+    /**
+     * Most fields registered per class, every value of an object has to fit a bit of the delta mask.
+     */
+    public static final int MAX_FIELDS = 64 - BASE_FIELDS;
+
+    /**
+     * The canvas saved.
+     */
+    private GameCanvas canvas;
+    /**
+     * The full snapshot file.
+     */
+    private Path snapshotFile;
+    /**
+     * The delta file.
+     */
+    private Path deltaFile;
+
+    /**
+     * The registered classes by class.
+     */
+    private HashMap<Class<?>, Type> types = new HashMap<>();
+    /**
+     * The registered classes in the order registered.
+     */
+    private ArrayList<Type> typeList = new ArrayList<>();
+
+    /**
+     * The id of each object saved so far.
+     */
+    private WeakHashMap<GameObject, Integer> ids = new WeakHashMap<>();
+    /**
+     * The next object id.
+     */
+    private int nextId = 1;
+
+    /**
+     * Saves from the full snapshot to the next, 1 to always save full snapshots.
+     */
+    private int fullEvery = 10;
+
+    /**
+     * Writes the saves in order.
+     */
+    private ExecutorService writer;
+    /**
+     * The last full snapshot written, only touched by the writer thread.
+     */
+    private State lastFull;
+    /**
+     * Sequence number of the last full snapshot written, only touched by the writer thread.
+     */
+    private int fullSequence = 0;
+    /**
+     * Deltas written since the last full snapshot, only touched by the writer thread.
+     */
+    private int deltas = 0;
+    /**
+     * Set when the next save has to be a full snapshot, like after loading.
+     */
+    private volatile boolean forceFull = false;
+
+    /**
+     * Constructs a save game.
+     *
+     * @param canvas the canvas to save.
+     * @param fileName the path of the save, without the .snap and .delta endings.
+     */
+    public SaveGame(GameCanvas canvas, String fileName) {
+
+        this.canvas = canvas;
+        this.snapshotFile = Paths.get(fileName + ".snap");
+        this.deltaFile = Paths.get(fileName + ".delta");
+
+        writer = Executors.newSingleThreadExecutor(r -> {
+
+            Thread thread = new Thread(r, "Temple save");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * Registers a class to be saved.
+     *
+     * @param type the class, objects of subclasses need a registration of their own.
+     * @param factory builds a bare object of the class when loading.
+     * @param <T> type of the objects.
+     */
+    public <T extends GameObject> void register(Class<T> type, Supplier<? extends T> factory) {
+
+        Type t = new Type(type.getName(), factory);
+
+        t.index = typeList.size();
+
+        types.put(type, t);
+        typeList.add(t);
+    }
+
+    /**
+     * Registers a field of a class to be saved. The class has to be registered first.
+     *
+     * @param type the class.
+     * @param name name of the field, used to match the field when loading.
+     * @param getter gets the value of the field.
+     * @param setter sets the value of the field.
+     * @param <T> type of the objects.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends GameObject> void registerField(Class<T> type, String name, ToDoubleFunction<T> getter, ObjDoubleConsumer<T> setter) {
+
+        Type t = types.get(type);
+
+        if(t == null)
+            throw new IllegalStateException(type.getName() + " isn't registered");
+
+        if(t.fields.size() >= MAX_FIELDS)
+            throw new IllegalStateException("more than " + MAX_FIELDS + " fields registered for " + type.getName());
+
+        t.fields.add(name);
+        t.getters.add((ToDoubleFunction<GameObject>) getter);
+        t.setters.add((ObjDoubleConsumer<GameObject>) setter);
+    }
+
+    /**
+     * Saves the registered objects of the canvas. The state is copied right away and written on the save thread.
+     * Call on the JavaFX thread.
+     *
+     * @return the write, done once the save is on disk.
+     */
+    public Future<?> save() {
+
+        State state = capture();
+
+        return writer.submit(() -> {
+
+            try {
+
+                write(state);
+
+            } catch (IOException e) {
+
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Loads the last save, replacing the registered objects of the canvas with the saved ones.
+     * Waits for saves still being written first. Call on the JavaFX thread.
+     *
+     * @return true if there was a save to load.
+     */
+    public boolean load() {
+
+        try {
+
+            writer.submit(() -> {}).get();
+
+            if(!Files.exists(snapshotFile))
+                return false;
+
+            State state = read(snapshotFile, null);
+
+            if(Files.exists(deltaFile))
+                state = read(deltaFile, state);
+
+            restore(state);
+
+            forceFull = true;
+
+            return true;
+
+        } catch (Exception e) {
+
+            e.printStackTrace();
+        }
+
+        return false;
+    }
+
+    /**
+     * Copies the state of the registered objects of the canvas.
+     *
+     * @return the state.
+     */
+    private State capture() {
+
+        ArrayList<GameObject> objects = new ArrayList<>(canvas.getObjectRegistry().size());
+        canvas.getObjectRegistry().copyTo(objects);
+
+        if(canvas.getStreamer() != null)
+            canvas.getStreamer().copyTo(objects);
+
+        State state = new State(objects.size());
+        HashMap<Animation, Integer> animations = new HashMap<>();
+
+        for (GameObject o : objects) {
+
+            Type type = types.get(o.getClass());
+
+            if(type == null || o.isInPool())
+                continue;
+
+            Integer id = ids.get(o);
+
+            if(id == null) {
+
+                id = nextId++;
+                ids.put(o, id);
+            }
+
+            int animation = -1;
+            Animation current = o.getCurrentAnimation();
+
+            if(current != null && o.getPrefab() != null) {
+
+                Integer index = animations.get(current);
+
+                if(index == null) {
+
+                    String name = o.getPrefab().getAnimationName(current);
+
+                    index = name == null ? -1 : state.strings.size();
+
+                    if(name != null)
+                        state.strings.add(name);
+
+                    animations.put(current, index);
+                }
+
+                animation = index;
+            }
+
+            double[] values = state.begin(id, type.index, BASE_FIELDS + type.fields.size());
+            int v = state.offsets[state.count - 1];
+
+            values[v] = o.getX2();
+            values[v + 1] = o.getY2();
+            values[v + 2] = o.getAngle();
+            values[v + 3] = o.getVelocityX();
+            values[v + 4] = o.getVelocityY();
+            values[v + 5] = (o.isCollidable ? 1 : 0) | (o.isStatic ? 2 : 0) | (o.isTrigger ? 4 : 0);
+            values[v + 6] = animation;
+            values[v + 7] = o.getCurrentFrame();
+
+            for(int f = 0; f < type.fields.size(); f++) {
+                values[v + BASE_FIELDS + f] = type.getters.get(f).applyAsDouble(o);
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * Writes a state as a full snapshot or as a delta against the last one. Runs on the save thread.
+     *
+     * @param state the state.
+     * @throws IOException if the save couldn't be written.
+     */
+    private void write(State state) throws IOException {
+
+        if(lastFull == null || forceFull || deltas + 1 >= fullEvery) {
+
+            forceFull = false;
+            fullSequence++;
+
+            ByteBuffer buffer = header(FULL, fullSequence, state, 4 + state.count * 6 + state.valueCount() * 8);
+
+            buffer.putInt(state.count);
+
+            for(int i = 0; i < state.count; i++) {
+                putObject(buffer, state, i);
+            }
+
+            replace(snapshotFile, buffer);
+            Files.deleteIfExists(deltaFile);
+
+            lastFull = state;
+            deltas = 0;
+
+            return;
+        }
+
+        HashMap<Integer, Integer> base = lastFull.index();
+        HashMap<Integer, Integer> current = state.index();
+
+        int[] removed = new int[lastFull.count];
+        int removedCount = 0;
+
+        for(int i = 0; i < lastFull.count; i++) {
+
+            if(!current.containsKey(lastFull.ids[i]))
+                removed[removedCount++] = lastFull.ids[i];
+        }
+
+        //written into a buffer big enough for everything changing, then cut to size
+        ByteBuffer body = ByteBuffer.allocate(12 + removedCount * 4 + state.count * 14 + state.valueCount() * 8).order(ByteOrder.LITTLE_ENDIAN);
+
+        body.putInt(removedCount);
+
+        for(int i = 0; i < removedCount; i++) {
+            body.putInt(removed[i]);
+        }
+
+        int changedAt = body.position();
+        int changed = 0;
+        body.putInt(0);
+
+        ArrayList<Integer> added = new ArrayList<>();
+
+        for(int i = 0; i < state.count; i++) {
+
+            Integer b = base.get(state.ids[i]);
+
+            if(b == null || lastFull.types[b] != state.types[i]) {
+
+                added.add(i);
+                continue;
+            }
+
+            long mask = 0;
+            int length = state.length(i);
+
+            for(int f = 0; f < length; f++) {
+
+                if(Double.doubleToRawLongBits(state.values[state.offsets[i] + f]) != Double.doubleToRawLongBits(lastFull.values[lastFull.offsets[b] + f]))
+                    mask |= 1L << f;
+            }
+
+            if(mask == 0)
+                continue;
+
+            body.putInt(state.ids[i]);
+            body.putLong(mask);
+
+            for(int f = 0; f < length; f++) {
+
+                if((mask & (1L << f)) != 0)
+                    body.putDouble(state.values[state.offsets[i] + f]);
+            }
+
+            changed++;
+        }
+
+        body.putInt(changedAt, changed);
+        body.putInt(added.size());
+
+        for (int i : added) {
+            putObject(body, state, i);
+        }
+
+        body.flip();
+
+        ByteBuffer buffer = header(DELTA, fullSequence, state, body.remaining());
+        buffer.put(body);
+
+        replace(deltaFile, buffer);
+
+        deltas++;
+    }
+
+    /**
+     * Reads a save file.
+     *
+     * @param path the file.
+     * @param base the full snapshot a delta applies to, null when reading a full snapshot.
+     * @return the state saved.
+     * @throws IOException if the file is corrupt or the delta belongs to another snapshot.
+     */
+    private State read(Path path, State base) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+
+        if(buffer.getInt() != MAGIC || buffer.get() != VERSION)
+            throw new IOException(path + " is not a save");
+
+        byte kind = buffer.get();
+        int sequence = buffer.getInt();
+
+        ArrayList<String> strings = new ArrayList<>();
+        int stringCount = buffer.getInt();
+
+        for(int i = 0; i < stringCount; i++) {
+            strings.add(getString(buffer));
+        }
+
+        //the classes of the file, mapped to registered classes and their fields by name
+        int typeCount = buffer.getInt();
+        int[] typeMap = new int[typeCount];
+        int[][] fieldMaps = new int[typeCount][];
+        HashMap<Integer, Integer> fileTypes = new HashMap<>();
+
+        for(int t = 0; t < typeCount; t++) {
+
+            String name = getString(buffer);
+            Type type = findType(name);
+            int fieldCount = buffer.getInt();
+
+            typeMap[t] = type == null ? -1 : type.index;
+
+            if(type != null)
+                fileTypes.put(type.index, t);
+            fieldMaps[t] = new int[fieldCount];
+
+            for(int f = 0; f < fieldCount; f++) {
+
+                String field = getString(buffer);
+                fieldMaps[t][f] = type == null ? -1 : type.fields.indexOf(field);
+            }
+        }
+
+        if(kind == FULL) {
+
+            State state = new State(0);
+            state.strings = strings;
+            state.sequence = sequence;
+
+            int count = buffer.getInt();
+
+            for(int i = 0; i < count; i++) {
+                getObject(buffer, state, typeMap, fieldMaps);
+            }
+
+            return state;
+        }
+
+        if(base == null || sequence != base.sequence)
+            return base;
+
+        //deltas are applied onto a copy of the full snapshot, objects kept in their order
+        HashMap<Integer, Integer> index = base.index();
+        boolean[] gone = new boolean[base.count];
+        int removedCount = buffer.getInt();
+
+        for(int i = 0; i < removedCount; i++) {
+
+            Integer b = index.get(buffer.getInt());
+
+            if(b != null)
+                gone[b] = true;
+        }
+
+        State state = new State(base.count);
+        state.strings = strings;
+        state.sequence = sequence;
+
+        HashMap<Integer, double[]> changes = new HashMap<>();
+        HashMap<Integer, Long> masks = new HashMap<>();
+        int changedCount = buffer.getInt();
+
+        for(int i = 0; i < changedCount; i++) {
+
+            int id = buffer.getInt();
+            long mask = buffer.getLong();
+            double[] values = new double[64];
+
+            for(int f = 0; f < 64; f++) {
+
+                if((mask & (1L << f)) != 0)
+                    values[f] = buffer.getDouble();
+            }
+
+            changes.put(id, values);
+            masks.put(id, mask);
+        }
+
+        for(int i = 0; i < base.count; i++) {
+
+            if(gone[i])
+                continue;
+
+            int length = base.length(i);
+            double[] values = state.begin(base.ids[i], base.types[i], length);
+            int v = state.offsets[state.count - 1];
+
+            System.arraycopy(base.values, base.offsets[i], values, v, length);
+
+            double[] change = changes.get(base.ids[i]);
+            int t = fileTypes.getOrDefault(base.types[i], -1);
+
+            if(change != null && t >= 0) {
+
+                long mask = masks.get(base.ids[i]);
+
+                for(int f = 0; f < BASE_FIELDS + fieldMaps[t].length; f++) {
+
+                    if((mask & (1L << f)) == 0)
+                        continue;
+
+                    if(f < BASE_FIELDS)
+                        values[v + f] = change[f];
+                    else if(fieldMaps[t][f - BASE_FIELDS] >= 0)
+                        values[v + BASE_FIELDS + fieldMaps[t][f - BASE_FIELDS]] = change[f];
+                }
+            }
+        }
+
+        int addedCount = buffer.getInt();
+
+        for(int i = 0; i < addedCount; i++) {
+            getObject(buffer, state, typeMap, fieldMaps);
+        }
+
+        return state;
+    }
+
+    /**
+     * Replaces the registered objects of the canvas with the objects of a state.
+     *
+     * @param state the state.
+     */
+    private void restore(State state) {
+
+        ArrayList<GameObject> objects = new ArrayList<>();
+        canvas.getObjectRegistry().copyTo(objects);
+
+        if(canvas.getStreamer() != null)
+            canvas.getStreamer().copyTo(objects);
+
+        for (GameObject o : objects) {
+
+            if(types.containsKey(o.getClass()))
+                canvas.removeObject(o);
+        }
+
+        ids.clear();
+
+        for(int i = 0; i < state.count; i++) {
+
+            if(state.types[i] < 0)
+                continue;
+
+            Type type = typeList.get(state.types[i]);
+            GameObject o = type.factory.get();
+            int v = state.offsets[i];
+            double[] values = state.values;
+
+            o.setXY(values[v], values[v + 1]);
+            o.setAngle(values[v + 2]);
+            o.setVelocityX(values[v + 3]);
+            o.setVelocityY(values[v + 4]);
+
+            int flags = (int) values[v + 5];
+
+            o.isCollidable = (flags & 1) != 0;
+            o.isStatic = (flags & 2) != 0;
+            o.isTrigger = (flags & 4) != 0;
+
+            int animation = (int) values[v + 6];
+
+            if(animation >= 0 && o.getPrefab() != null && o.getPrefab().getAnimation(state.strings.get(animation)) != null)
+                o.changeAnimation(o.getPrefab().getAnimation(state.strings.get(animation)), (int) values[v + 7]);
+
+            for(int f = 0; f < type.fields.size(); f++) {
+                type.setters.get(f).accept(o, values[v + BASE_FIELDS + f]);
+            }
+
+            ids.put(o, state.ids[i]);
+            nextId = Math.max(nextId, state.ids[i] + 1);
+
+            canvas.addObject(o);
+        }
+    }
+
+    /**
+     * Makes a buffer with the header of a save: magic, version, kind, sequence, the strings and the classes with their fields.
+     *
+     * @param kind FULL or DELTA.
+     * @param sequence sequence of the full snapshot.
+     * @param state the state saved.
+     * @param body size of what comes after the header.
+     * @return the buffer, positioned after the header.
+     */
+    private ByteBuffer header(byte kind, int sequence, State state, int body) {
+
+        ArrayList<byte[]> strings = new ArrayList<>();
+        int size = 4 + 1 + 1 + 4 + 4 + 4;
+
+        for (String s : state.strings) {
+
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            strings.add(bytes);
+            size += 2 + bytes.length;
+        }
+
+        ArrayList<byte[]> names = new ArrayList<>();
+
+        for (Type type : typeList) {
+
+            byte[] bytes = type.name.getBytes(StandardCharsets.UTF_8);
+            names.add(bytes);
+            size += 2 + bytes.length + 4;
+
+            for (String field : type.fields) {
+                size += 2 + field.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size + body).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put(kind);
+        buffer.putInt(sequence);
+        buffer.putInt(strings.size());
+
+        for (byte[] s : strings) {
+            buffer.putShort((short) s.length);
+            buffer.put(s);
+        }
+
+        buffer.putInt(typeList.size());
+
+        for(int t = 0; t < typeList.size(); t++) {
+
+            buffer.putShort((short) names.get(t).length);
+            buffer.put(names.get(t));
+            buffer.putInt(typeList.get(t).fields.size());
+
+            for (String field : typeList.get(t).fields) {
+
+                byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+            }
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Puts an object of a state: id, class and values.
+     *
+     * @param buffer the buffer.
+     * @param state the state.
+     * @param i index of the object.
+     */
+    private static void putObject(ByteBuffer buffer, State state, int i) {
+
+        buffer.putInt(state.ids[i]);
+        buffer.putShort((short) state.types[i]);
+
+        for(int f = 0; f < state.length(i); f++) {
+            buffer.putDouble(state.values[state.offsets[i] + f]);
+        }
+    }
+
+    /**
+     * Gets an object into a state, mapping its class and fields to the registered ones.
+     * Objects of classes no longer registered are kept with the class -1, and skipped when restoring.
+     *
+     * @param buffer the buffer.
+     * @param state the state.
+     * @param typeMap registered class of each class of the file.
+     * @param fieldMaps registered field of each field of each class of the file.
+     */
+    private void getObject(ByteBuffer buffer, State state, int[] typeMap, int[][] fieldMaps) {
+
+        int id = buffer.getInt();
+        int t = buffer.getShort();
+        int type = typeMap[t];
+        int length = type < 0 ? BASE_FIELDS : BASE_FIELDS + typeList.get(type).fields.size();
+
+        double[] values = state.begin(id, type, length);
+        int v = state.offsets[state.count - 1];
+
+        for(int f = 0; f < BASE_FIELDS + fieldMaps[t].length; f++) {
+
+            double value = buffer.getDouble();
+
+            if(f < BASE_FIELDS)
+                values[v + f] = value;
+            else if(fieldMaps[t][f - BASE_FIELDS] >= 0)
+                values[v + BASE_FIELDS + fieldMaps[t][f - BASE_FIELDS]] = value;
+        }
+    }
+
+    /**
+     * Writes a buffer into a temporary file, forces it to disk and renames it over a file.
+     *
+     * @param path the file.
+     * @param buffer the buffer, written from the start to the position.
+     * @throws IOException if the file couldn't be written.
+     */
+    private static void replace(Path path, ByteBuffer buffer) throws IOException {
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        buffer.flip();
+
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        channel.force(true);
+        channel.close();
+
+        try {
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (AtomicMoveNotSupportedException e) {
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Gets a string with a short length.
+     *
+     * @param buffer the buffer.
+     * @return the string.
+     */
+    private static String getString(ByteBuffer buffer) {
+
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds a registered class by name.
+     *
+     * @param name name of the class.
+     * @return the class, null if it isn't registered.
+     */
+    private Type findType(String name) {
+
+        for (Type type : typeList) {
+
+            if(type.name.equals(name))
+                return type;
+        }
+
+        return null;
+    }
+
+    /**
+     * Sets the saves from one full snapshot to the next.
+     *
+     * @param fullEvery saves, 1 to always save full snapshots.
+     */
+    public void setFullEvery(int fullEvery) { this.fullEvery = Math.max(1, fullEvery); }
+
+    /**
+     * Gets the saves from one full snapshot to the next.
+     *
+     * @return saves per full snapshot.
+     */
+    public int getFullEvery() { return fullEvery; }
+
+    /**
+     * A registered class.
+     */
+    private static class Type {
+
+        /**
+         * Name of the class.
+         */
+        private String name;
+        /**
+         * Index of the class in the registered classes.
+         */
+        private int index;
+        /**
+         * Builds bare objects of the class.
+         */
+        private Supplier<? extends GameObject> factory;
+        /**
+         * Names of the registered fields.
+         */
+        private ArrayList<String> fields = new ArrayList<>();
+        /**
+         * Getters of the registered fields.
+         */
+        private ArrayList<ToDoubleFunction<GameObject>> getters = new ArrayList<>();
+        /**
+         * Setters of the registered fields.
+         */
+        private ArrayList<ObjDoubleConsumer<GameObject>> setters = new ArrayList<>();
+
+        /**
+         * Constructs a registered class.
+         *
+         * @param name name of the class.
+         * @param factory builds bare objects of the class.
+         */
+        Type(String name, Supplier<? extends GameObject> factory) {
+
+            this.name = name;
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * The copied state of the saved objects, in flat arrays.
+     */
+    private static class State {
+
+        /**
+         * Sequence of the full snapshot this state was read from.
+         */
+        private int sequence;
+        /**
+         * Amount of objects.
+         */
+        private int count = 0;
+        /**
+         * Ids of the objects.
+         */
+        private int[] ids;
+        /**
+         * Registered class of the objects, -1 for classes no longer registered.
+         */
+        private int[] types;
+        /**
+         * Offset of the values of each object, one extra at the end.
+         */
+        private int[] offsets;
+        /**
+         * Values of all objects.
+         */
+        private double[] values;
+        /**
+         * The animation names.
+         */
+        private ArrayList<String> strings = new ArrayList<>();
+
+        /**
+         * Constructs an empty state.
+         *
+         * @param capacity objects expected.
+         */
+        State(int capacity) {
+
+            capacity = Math.max(16, capacity);
+
+            ids = new int[capacity];
+            types = new int[capacity];
+            offsets = new int[capacity + 1];
+            values = new double[capacity * BASE_FIELDS];
+        }
+
+        /**
+         * Adds an object, making room for its values.
+         *
+         * @param id id of the object.
+         * @param type registered class of the object.
+         * @param length amount of values.
+         * @return the values array, the values of the object starting at {@code offsets[count - 1]}.
+         */
+        double[] begin(int id, int type, int length) {
+
+            if(count == ids.length) {
+
+                ids = Arrays.copyOf(ids, count * 2);
+                types = Arrays.copyOf(types, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2 + 1);
+            }
+
+            int offset = offsets[count];
+
+            if(offset + length > values.length)
+                values = Arrays.copyOf(values, Math.max(values.length * 2, offset + length));
+
+            ids[count] = id;
+            types[count] = type;
+            offsets[count + 1] = offset + length;
+            count++;
+
+            return values;
+        }
+
+        /**
+         * Gets the amount of values of an object.
+         *
+         * @param i index of the object.
+         * @return amount of values.
+         */
+        int length(int i) { return offsets[i + 1] - offsets[i]; }
+
+        /**
+         * Gets the amount of values of all objects.
+         *
+         * @return amount of values.
+         */
+        int valueCount() { return offsets[count]; }
+
+        /**
+         * Maps the ids of the objects to their indices.
+         *
+         * @return index of each id.
+         */
+        HashMap<Integer, Integer> index() {
+
+            HashMap<Integer, Integer> index = new HashMap<>(count * 2);
+
+            for(int i = 0; i < count; i++) {
+                index.put(ids[i], i);
+            }
+
+            return index;
+        }
+    }
+}
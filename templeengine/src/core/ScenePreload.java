@@ -0,0 +1,121 @@
+package templeengine.src.core;
+
+/**
+ * The {@code ScenePreload} builds a level on a background thread, ready to be swapped in all at once.
+ *
+ * <p>
+ * Building a level means parsing maps, decoding images and constructing hundreds of objects, which takes
+ * several frames when done on the JavaFX thread. A preload runs the same building code on its own thread instead.
+ * Everything the code adds to the canvas is captured rather than added, the same way as parallel-safe objects
+ * are handled, and the node changes the objects make to themselves wait until the swap.
+ * None of the built objects are attached to the pane before then, so building them off the JavaFX thread is safe.
+ * </p>
+ *
+ * <p>
+ * Swapping the level in with {@code swapIn()} of the canvas clears the current objects and adds the built ones,
+ * both taking effect on the same tick.
+ * The building code should only build and add objects, things like playing music belong after the swap.
+ * </p>
+ *
+ * <p>
+ * Example code of preparing the next level while the current one is being played:
+ * </p>
+ * <pre><code>
+ * //once the current level is running
+ * nextLevel = preload(() -&gt; buildLevel(2));
+ *
+ * //once the player reaches the end
+ * swapIn(nextLevel);
+ * </code></pre>
+ */
+public class ScenePreload {
+
+    /**
+     * Captures what the building code adds.
+     */
+    private CommandBuffer buffer = new CommandBuffer();
+    /**
+     * The thread building the level.
+     */
+    private Thread thread;
+    /**
+     * Whether the level is built.
+     */
+    private volatile boolean ready = false;
+    /**
+     * Whether the level has been swapped in.
+     */
+    private boolean applied = false;
+
+    /**
+     * Starts building a level on a background thread. Use {@code preload()} of the canvas instead.
+     *
+     * @param builder the code building the level.
+     */
+    ScenePreload(Runnable builder) {
+
+        CommandBuffer.begin();
+
+        thread = new Thread(() -> {
+
+            CommandBuffer.setCurrent(buffer);
+
+            try {
+
+                builder.run();
+
+            } catch (RuntimeException e) {
+
+                e.printStackTrace();
+
+            } finally {
+
+                CommandBuffer.setCurrent(null);
+                CommandBuffer.end();
+                ready = true;
+            }
+
+        }, "Temple preload");
+
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Checks whether the level has been built.
+     *
+     * @return true if ready to be swapped in without waiting.
+     */
+    public boolean isReady() { return ready; }
+
+    /**
+     * Waits for the level to be built.
+     */
+    public void await() {
+
+        try {
+
+            thread.join();
+
+        } catch (InterruptedException e) {
+
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Adds the built level to a canvas, once. Called by the canvas when swapping the level in.
+     *
+     * @param canvas the canvas.
+     */
+    void apply(GameCanvas canvas) {
+
+        await();
+
+        if(applied)
+            return;
+
+        buffer.apply(canvas);
+        applied = true;
+    }
+}
@@ -1,12 +1,17 @@
 package templeengine.src.core;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.PerspectiveCamera;
 import javafx.scene.Scene;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.Pane;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
 /**
  * The {@code Temple} is a JavaFX {@link Application}, basically the main class of the engine itself.
  *
@@ -19,7 +24,8 @@ import javafx.stage.Stage;
 public class Temple extends Application
 {
     /**
-     * A flag used in various places. Setting to true will show CollisionInterfaces and QuadTree stuff.
+     * A flag used in various places. Setting to true will show CollisionInterfaces and QuadTree stuff,
+     * along with the performance overlay.
      */
     public static boolean debug = false;
 
@@ -44,6 +50,10 @@ public class Temple extends Application
      * The game loop.
      */
     private GameLoop loop;
+    /**
+     * The performance overlay shown when debug is on.
+     */
+    private DebugOverlay overlay;
 
     /**
      * The starting point of any JavaFX application.
@@ -58,9 +68,24 @@ public class Temple extends Application
     {
         Runnable updater = () -> activeGame.update();
         Runnable fupdater = () -> activeGame.fixedUpdate();
-        //Runnable renderer = () -> activeGame.render();
 
-        loop = new GameLoop(updater, fupdater);
+        overlay = new DebugOverlay(activeGame.getCameraWidth(), activeGame.getCameraHeight());
+        Runnable renderer = () -> overlay.render(activeGame);
+
+        loop = new GameLoop(updater, fupdater, renderer);
+
+        TempleEvents.register();
+
+        if(System.getProperty("temple.record") != null)
+            InputRecorder.start(System.getProperty("temple.record"));
+        else if(System.getProperty("temple.replay") != null)
+            InputPlayer.start(System.getProperty("temple.replay"), Boolean.getBoolean("temple.replay.fast"));
+
+        if(System.getProperty("temple.pack") != null)
+            mountPack(System.getProperty("temple.pack"));
+
+        if(System.getProperty("temple.hotreload") != null)
+            HotReload.start(System.getProperty("temple.hotreload"));
 
         scene = new Scene(root, activeGame.getCameraWidth(), activeGame.getCameraHeight());
 
@@ -81,7 +106,52 @@ public class Temple extends Application
         stage.setResizable(false);
         stage.show();
 
-        play();
+        preload();
+    }
+
+    /**
+     * Called when the JavaFX app closes. Finishes any running recording, writes the key-value stores to disk and stops hot reloading.
+     */
+    @Override
+    public void stop()
+    {
+        InputRecorder.stop();
+        InputPlayer.stop();
+        GameIO.closeStores();
+        HotReload.stop();
+    }
+
+    /**
+     * Mounts an asset pack given at startup.
+     *
+     * @param fileName the pack file.
+     */
+    private void mountPack(String fileName)
+    {
+        try {
+
+            AssetManager.mount(AssetPack.open(Paths.get(fileName)));
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Preloads the assets of the game, then calls for play() on the JavaFX thread.
+     */
+    private void preload()
+    {
+        List<String> assets = activeGame.getAssets();
+
+        if(assets == null || assets.isEmpty()) {
+
+            play();
+            return;
+        }
+
+        AssetManager.preload(assets).onDone(() -> Platform.runLater(this::play));
     }
 
     /**
@@ -92,6 +162,7 @@ public class Temple extends Application
         Pane pane = new Pane();
         activeGame.load(pane);
         root.getChildren().add(0, pane);
+        root.getChildren().add(overlay.getCanvas());
         loop.start();
     }
 
@@ -0,0 +1,334 @@
+package templeengine.src.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The {@code TempleEvents} holds the Java Flight Recorder events the engine emits.
+ *
+ * <p>
+ * The events show up in JDK Mission Control under the Temple Engine category, next to the GC and allocation data.
+ * When no recording is running the events are disabled and cost next to nothing, so they are always compiled in.
+ * </p>
+ *
+ * <p>
+ * Example of recording a game from the command line:
+ * </p>
+ * <pre><code>
+ * java -XX:StartFlightRecording=filename=game.jfr,settings=profile templeengine.examples.asteroids.Main
+ * </code></pre>
+ */
+public final class TempleEvents {
+
+    /**
+     * Whether the periodic events have been registered or not.
+     */
+    private static boolean registered = false;
+
+    /**
+     * No instances, just a holder for the events.
+     */
+    private TempleEvents() {}
+
+    /**
+     * Registers the periodic events of the engine. Called by the engine on startup.
+     */
+    static void register() {
+
+        if(registered)
+            return;
+
+        registered = true;
+
+        FlightRecorder.addPeriodicEvent(ObjectCounts.class, () -> {
+
+            ObjectCounts event = new ObjectCounts();
+            GameCanvas game = Temple.getActiveGame();
+
+            if(game == null)
+                return;
+
+            TickStats stats = game.getStats();
+
+            event.objects = stats.getObjectCount();
+            event.colliders = stats.getColliderCount();
+            event.spawned = stats.getSpawnCount();
+            event.despawned = stats.getDespawnCount();
+            event.commit();
+        });
+    }
+
+    /**
+     * A single tick of the game loop, with the durations of each phase.
+     */
+    @Name("templeengine.Tick")
+    @Label("Tick")
+    @Category("Temple Engine")
+    @Description("A single fixed and normal update of the active GameCanvas.")
+    @StackTrace(false)
+    public static class Tick extends Event {
+
+        /**
+         * Frame count of the tick.
+         */
+        @Label("Frame")
+        public long frame;
+
+        /**
+         * Time spent in fixedUpdate() of the objects.
+         */
+        @Label("Fixed Update")
+        @Timespan(Timespan.NANOSECONDS)
+        public long fixedUpdate;
+
+        /**
+         * Time spent rebuilding the QuadTree.
+         */
+        @Label("Broadphase")
+        @Timespan(Timespan.NANOSECONDS)
+        public long broadphase;
+
+        /**
+         * Time spent testing collider pairs.
+         */
+        @Label("Narrowphase")
+        @Timespan(Timespan.NANOSECONDS)
+        public long narrowphase;
+
+        /**
+         * Time spent delivering events.
+         */
+        @Label("Events")
+        @Timespan(Timespan.NANOSECONDS)
+        public long events;
+
+        /**
+         * Time spent in update() of the objects.
+         */
+        @Label("Update")
+        @Timespan(Timespan.NANOSECONDS)
+        public long update;
+
+        /**
+         * Time spent in postUpdate() of the objects.
+         */
+        @Label("Post Update")
+        @Timespan(Timespan.NANOSECONDS)
+        public long postUpdate;
+
+        /**
+         * Fills the phase durations from the stats of the tick.
+         *
+         * @param stats of the tick.
+         */
+        void fill(TickStats stats) {
+
+            fixedUpdate = stats.getFixedUpdateNanos();
+            broadphase = stats.getBroadphaseNanos();
+            narrowphase = stats.getNarrowphaseNanos();
+            events = stats.getEventNanos();
+            update = stats.getUpdateNanos();
+            postUpdate = stats.getPostUpdateNanos();
+        }
+    }
+
+    /**
+     * A single collision pass of the fixed update.
+     */
+    @Name("templeengine.CollisionPass")
+    @Label("Collision Pass")
+    @Category("Temple Engine")
+    @Description("QuadTree rebuild and collider pair testing of a fixed update.")
+    @StackTrace(false)
+    public static class CollisionPass extends Event {
+
+        /**
+         * Colliders taking part in the pass.
+         */
+        @Label("Colliders")
+        public int colliders;
+
+        /**
+         * Collider pairs tested.
+         */
+        @Label("Pair Tests")
+        public int pairTests;
+
+        /**
+         * Collider pairs that intersected.
+         */
+        @Label("Narrowphase Hits")
+        public int hits;
+
+        /**
+         * Colliders between quadrants that had to be tested against every other collider.
+         */
+        @Label("Straddler Fallbacks")
+        @Description("Colliders for which QuadTree.retrieve returned -1.")
+        public int straddlers;
+    }
+
+    /**
+     * A .map or .bmap file being loaded.
+     */
+    @Name("templeengine.MapLoad")
+    @Label("Map Load")
+    @Category("Temple Engine")
+    @Description("A TileMap loaded with GameIO.loadMap or GameIO.loadBinaryMap.")
+    public static class MapLoad extends Event {
+
+        /**
+         * Path of the map.
+         */
+        @Label("Path")
+        public String path;
+
+        /**
+         * Width of the map in tiles.
+         */
+        @Label("Width")
+        public int width;
+
+        /**
+         * Height of the map in tiles.
+         */
+        @Label("Height")
+        public int height;
+    }
+
+    /**
+     * An image being decoded.
+     */
+    @Name("templeengine.ImageLoad")
+    @Label("Image Load")
+    @Category("Temple Engine")
+    @Description("An image loaded with GameIO.loadImage.")
+    public static class ImageLoad extends Event {
+
+        /**
+         * Url of the image.
+         */
+        @Label("Url")
+        public String url;
+
+        /**
+         * Width of the image in pixels.
+         */
+        @Label("Width")
+        public int width;
+
+        /**
+         * Height of the image in pixels.
+         */
+        @Label("Height")
+        public int height;
+
+        /**
+         * Decoded size of the image.
+         */
+        @Label("Decoded Size")
+        @DataAmount
+        public long bytes;
+    }
+
+    /**
+     * A changed file being swapped into the running game.
+     */
+    @Name("templeengine.HotReload")
+    @Label("Hot Reload")
+    @Category("Temple Engine")
+    @Description("A changed map or image swapped into the running game by HotReload.")
+    public static class HotReload extends Event {
+
+        /**
+         * Classpath location of the file.
+         */
+        @Label("Path")
+        public String path;
+
+        /**
+         * Whether the file was swapped in, maps that changed size need the game restarted.
+         */
+        @Label("Reloaded")
+        public boolean reloaded;
+
+        /**
+         * Cells that changed, for maps.
+         */
+        @Label("Cells Changed")
+        public int cellsChanged;
+    }
+
+    /**
+     * A replay of the InputPlayer that played to the end of its log.
+     */
+    @Name("templeengine.Replay")
+    @Label("Replay")
+    @Category("Temple Engine")
+    @Description("A recorded session played back to its end by InputPlayer.")
+    public static class Replay extends Event {
+
+        /**
+         * Ticks played.
+         */
+        @Label("Ticks")
+        public long ticks;
+
+        /**
+         * Time the replay took.
+         */
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        public long elapsed;
+
+        /**
+         * Whether the game loop was uncapped for the replay.
+         */
+        @Label("Fast")
+        public boolean fast;
+    }
+
+    /**
+     * Object counts of the active game, emitted once a second.
+     */
+    @Name("templeengine.ObjectCounts")
+    @Label("Object Counts")
+    @Category("Temple Engine")
+    @Description("Alive objects and colliders, and the objects spawned and despawned since the start of the game.")
+    @Period("1 s")
+    @StackTrace(false)
+    public static class ObjectCounts extends Event {
+
+        /**
+         * Alive objects.
+         */
+        @Label("Objects")
+        public int objects;
+
+        /**
+         * Alive colliders.
+         */
+        @Label("Colliders")
+        public int colliders;
+
+        /**
+         * Objects spawned since the start of the game.
+         */
+        @Label("Spawned")
+        public long spawned;
+
+        /**
+         * Objects despawned since the start of the game.
+         */
+        @Label("Despawned")
+        public long despawned;
+    }
+}
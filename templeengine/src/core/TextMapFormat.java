@@ -0,0 +1,448 @@
+package templeengine.src.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * The {@code TextMapFormat} reads and writes the text .map format.
+ *
+ * <p>
+ * A .map file starts with six lines: the tileset url, the map width, the map height, the tile width, the tile height and the scale.
+ * The image locations of the tiles follow as whitespace separated numbers, a row of the map per line, and after them the collisions
+ * the same way. Named layers follow the collisions, each starting with a line {@code layer name drawOrder parallax}
+ * and followed by its rows. Layer names have no whitespace, so they read back as a single token.
+ * </p>
+ *
+ * <p>
+ * Both ways stream through a fixed size char buffer. Numbers are parsed straight from the buffer into the arrays of the map
+ * and formatted straight into it when writing, so no Strings are made per line or per number,
+ * and maps with millions of tiles load and save in linear time without their memory use growing with the file.
+ * </p>
+ */
+class TextMapFormat {
+
+    /**
+     * Size of the char buffer.
+     */
+    private static final int BUFFER = 8192;
+
+    /**
+     * The reader of the file.
+     */
+    private Reader reader;
+    /**
+     * The writer of the file.
+     */
+    private Writer writer;
+    /**
+     * The char buffer.
+     */
+    private char[] chars = new char[BUFFER];
+    /**
+     * Position in the buffer.
+     */
+    private int position = 0;
+    /**
+     * Amount of chars in the buffer, -1 once the file has ended.
+     */
+    private int limit = 0;
+
+    /**
+     * Constructs a format reading a file.
+     *
+     * @param reader the reader of the file.
+     */
+    private TextMapFormat(Reader reader) {
+
+        this.reader = reader;
+    }
+
+    /**
+     * Constructs a format writing a file.
+     *
+     * @param writer the writer of the file.
+     */
+    private TextMapFormat(Writer writer) {
+
+        this.writer = writer;
+    }
+
+    /**
+     * Reads map data. The reader is left open.
+     *
+     * @param reader the reader of the map.
+     * @return the map data.
+     * @throws IOException if the map couldn't be read or is malformed.
+     */
+    static MapData read(Reader reader) throws IOException {
+
+        TextMapFormat format = new TextMapFormat(reader);
+
+        String url = format.readLine().trim();
+        int mapWidth = format.readInt();
+        int mapHeight = format.readInt();
+        int tileWidth = format.readInt();
+        int tileHeight = format.readInt();
+        double scale = format.readDouble();
+
+        int[] map = new int[mapWidth * mapHeight];
+        int[] collisionMap = new int[mapWidth * mapHeight];
+
+        format.readInts(map);
+        format.readInts(collisionMap);
+
+        MapData data = new MapData(url, mapWidth, mapHeight, tileWidth, tileHeight, scale, map, collisionMap);
+
+        while(format.skipWhitespace()) {
+
+            String keyword = format.readToken();
+
+            if(!keyword.equals("layer"))
+                throw new IOException("unexpected " + keyword + " in map");
+
+            String name = format.readToken();
+            int drawOrder = format.readInt();
+            double parallax = format.readDouble();
+            int[] tiles = new int[mapWidth * mapHeight];
+
+            format.readInts(tiles);
+
+            data.addLayer(new MapData.Layer(name, drawOrder, parallax, tiles));
+        }
+
+        return data;
+    }
+
+    /**
+     * Writes map data. The writer is flushed but left open.
+     *
+     * @param writer the writer of the map.
+     * @param data the map data.
+     * @throws IOException if the map couldn't be written or has a layer name that's empty or contains whitespace.
+     */
+    static void write(Writer writer, MapData data) throws IOException {
+
+        TextMapFormat format = new TextMapFormat(writer);
+        String separator = System.getProperty("line.separator");
+
+        format.write(data.getUrl() == null ? "" : data.getUrl());
+        format.write(separator);
+        format.writeInt(data.getMapWidth());
+        format.write(separator);
+        format.writeInt(data.getMapHeight());
+        format.write(separator);
+        format.writeInt(data.getTileWidth());
+        format.write(separator);
+        format.writeInt(data.getTileHeight());
+        format.write(separator);
+        format.write(Double.toString(data.getScale()));
+        format.write(separator);
+
+        format.writeRows(data.getMap(), data.getMapWidth(), separator);
+        format.writeRows(data.getCollisionMap(), data.getMapWidth(), separator);
+
+        for (MapData.Layer layer : data.getLayers()) {
+
+            if(!TileMap.isLayerName(layer.getName()))
+                throw new IOException("layer name \"" + layer.getName() + "\" can't be written, it's empty or contains whitespace");
+
+            format.write("layer ");
+            format.write(layer.getName());
+            format.writeChar(' ');
+            format.writeInt(layer.getDrawOrder());
+            format.writeChar(' ');
+            format.write(Double.toString(layer.getParallax()));
+            format.write(separator);
+            format.writeRows(layer.getTiles(), data.getMapWidth(), separator);
+        }
+
+        format.flush();
+        writer.flush();
+    }
+
+    /**
+     * Reads the next line without its line break.
+     *
+     * @return the line.
+     * @throws IOException if the file ended.
+     */
+    private String readLine() throws IOException {
+
+        StringBuilder line = new StringBuilder();
+
+        while(fill()) {
+
+            char c = chars[position++];
+
+            if(c == '\n')
+                return line.toString();
+
+            if(c != '\r')
+                line.append(c);
+        }
+
+        if(line.length() == 0)
+            throw new IOException("map ended early");
+
+        return line.toString();
+    }
+
+    /**
+     * Reads the next whitespace separated int.
+     *
+     * @return the int.
+     * @throws IOException if the file ended or the next token isn't a number.
+     */
+    private int readInt() throws IOException {
+
+        if(!skipWhitespace())
+            throw new IOException("map ended early");
+
+        return parseInt();
+    }
+
+    /**
+     * Reads the next whitespace separated double.
+     *
+     * @return the double.
+     * @throws IOException if the file ended or the next token isn't a number.
+     */
+    private double readDouble() throws IOException {
+
+        String token = readToken();
+
+        try {
+
+            return Double.parseDouble(token.toString());
+
+        } catch (NumberFormatException e) {
+
+            throw new IOException("malformed number " + token, e);
+        }
+    }
+
+    /**
+     * Reads the next whitespace separated token.
+     *
+     * @return the token.
+     * @throws IOException if the file ended.
+     */
+    private String readToken() throws IOException {
+
+        if(!skipWhitespace())
+            throw new IOException("map ended early");
+
+        StringBuilder token = new StringBuilder();
+
+        while(fill() && !Character.isWhitespace(chars[position])) {
+            token.append(chars[position++]);
+        }
+
+        return token.toString();
+    }
+
+    /**
+     * Reads whitespace separated ints into an array until it's full or the file ends.
+     * Tiles missing from the end of a file stay 0.
+     *
+     * @param values the array.
+     * @throws IOException if a token isn't a number.
+     */
+    private void readInts(int[] values) throws IOException {
+
+        for(int i = 0; i < values.length && skipWhitespace(); i++) {
+            values[i] = parseInt();
+        }
+    }
+
+    /**
+     * Parses an int starting at the current position.
+     *
+     * @return the int.
+     * @throws IOException if the token isn't a number.
+     */
+    private int parseInt() throws IOException {
+
+        boolean negative = chars[position] == '-';
+
+        if(negative)
+            position++;
+
+        int value = 0;
+        int digits = 0;
+
+        while(fill()) {
+
+            char c = chars[position];
+
+            if(c < '0' || c > '9')
+                break;
+
+            value = value * 10 + (c - '0');
+            digits++;
+            position++;
+        }
+
+        if(digits == 0 || (limit != -1 && !Character.isWhitespace(chars[position])))
+            throw new IOException("malformed number in map");
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Skips whitespace.
+     *
+     * @return false if the file ended.
+     * @throws IOException if the file couldn't be read.
+     */
+    private boolean skipWhitespace() throws IOException {
+
+        while(fill()) {
+
+            if(!Character.isWhitespace(chars[position]))
+                return true;
+
+            position++;
+        }
+
+        return false;
+    }
+
+    /**
+     * Makes sure there is a char to read at the position, reading more of the file if needed.
+     *
+     * @return false if the file ended.
+     * @throws IOException if the file couldn't be read.
+     */
+    private boolean fill() throws IOException {
+
+        if(position < limit)
+            return true;
+
+        if(limit == -1)
+            return false;
+
+        position = 0;
+        limit = reader.read(chars, 0, chars.length);
+
+        while(limit == 0) {
+            limit = reader.read(chars, 0, chars.length);
+        }
+
+        return limit > 0;
+    }
+
+    /**
+     * Writes the values of a layer, a row of the map per line, each value followed by a space.
+     *
+     * @param values the values.
+     * @param width width of the map.
+     * @param separator the line separator.
+     * @throws IOException if the file couldn't be written.
+     */
+    private void writeRows(int[] values, int width, String separator) throws IOException {
+
+        for(int i = 0; i < values.length; i++) {
+
+            writeInt(values[i]);
+            writeChar(' ');
+
+            if((i + 1) % width == 0)
+                write(separator);
+        }
+    }
+
+    /**
+     * Formats an int straight into the buffer.
+     *
+     * @param value the int.
+     * @throws IOException if the file couldn't be written.
+     */
+    private void writeInt(int value) throws IOException {
+
+        if(value == Integer.MIN_VALUE) {
+
+            write(Integer.toString(value));
+            return;
+        }
+
+        if(position + 11 > chars.length)
+            flush();
+
+        if(value < 0) {
+
+            chars[position++] = '-';
+            value = -value;
+        }
+
+        int end = position + digits(value);
+        int i = end;
+
+        do {
+
+            chars[--i] = (char) ('0' + value % 10);
+            value /= 10;
+
+        } while(value != 0);
+
+        position = end;
+    }
+
+    /**
+     * Counts the digits of a positive int.
+     *
+     * @param value the int.
+     * @return amount of digits.
+     */
+    private static int digits(int value) {
+
+        int digits = 1;
+
+        while(value >= 10) {
+
+            value /= 10;
+            digits++;
+        }
+
+        return digits;
+    }
+
+    /**
+     * Writes a char into the buffer.
+     *
+     * @param c the char.
+     * @throws IOException if the file couldn't be written.
+     */
+    private void writeChar(char c) throws IOException {
+
+        if(position == chars.length)
+            flush();
+
+        chars[position++] = c;
+    }
+
+    /**
+     * Writes a String into the buffer.
+     *
+     * @param s the String.
+     * @throws IOException if the file couldn't be written.
+     */
+    private void write(String s) throws IOException {
+
+        for(int i = 0; i < s.length(); i++) {
+            writeChar(s.charAt(i));
+        }
+    }
+
+    /**
+     * Writes the buffer into the file.
+     *
+     * @throws IOException if the file couldn't be written.
+     */
+    private void flush() throws IOException {
+
+        writer.write(chars, 0, position);
+        position = 0;
+    }
+}
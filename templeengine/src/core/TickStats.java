@@ -0,0 +1,244 @@
+package templeengine.src.core;
+
+/**
+ * The {@code TickStats} holds the measurements of the last tick a {@link GameCanvas} ran.
+ *
+ * <p>
+ * The canvas fills these in while running its fixed and normal updates, the numbers are then
+ * picked up by the profiling events in {@link TempleEvents} and can also be read by the user.
+ * Phase durations are in nanoseconds, spawn and despawn counts keep adding up since the start of the game.
+ * </p>
+ */
+public class TickStats {
+
+    /**
+     * Time spent running fixedUpdate() of the objects.
+     */
+    private long fixedUpdateNanos;
+    /**
+     * Time spent rebuilding the QuadTree.
+     */
+    private long broadphaseNanos;
+    /**
+     * Time spent testing collider pairs against each other.
+     */
+    private long narrowphaseNanos;
+    /**
+     * Time spent running update() of the objects.
+     */
+    private long updateNanos;
+    /**
+     * Time spent running postUpdate() of the objects.
+     */
+    private long postUpdateNanos;
+    /**
+     * Time spent delivering events.
+     */
+    private long eventNanos;
+    /**
+     * Events delivered.
+     */
+    private int eventCount;
+
+    /**
+     * Collider pairs tested on the last tick.
+     */
+    private int pairTests;
+    /**
+     * Collider pairs that actually intersected on the last tick.
+     */
+    private int narrowphaseHits;
+    /**
+     * Colliders that were between quadrants and had to be checked against every other collider.
+     */
+    private int straddlers;
+
+    /**
+     * Objects alive after the last tick.
+     */
+    private int objectCount;
+    /**
+     * Colliders alive after the last tick.
+     */
+    private int colliderCount;
+
+    /**
+     * Objects added to the canvas since the start of the game.
+     */
+    private long spawnCount;
+    /**
+     * Objects removed from the canvas since the start of the game.
+     */
+    private long despawnCount;
+
+    /**
+     * Resets the counters of a single collision pass.
+     */
+    void resetCollisionPass() { pairTests = 0; narrowphaseHits = 0; straddlers = 0; }
+
+    /**
+     * Sets the fixedUpdate() duration.
+     *
+     * @param nanos duration in nanoseconds.
+     */
+    void setFixedUpdateNanos(long nanos) { fixedUpdateNanos = nanos; }
+    /**
+     * Sets the QuadTree rebuild duration.
+     *
+     * @param nanos duration in nanoseconds.
+     */
+    void setBroadphaseNanos(long nanos) { broadphaseNanos = nanos; }
+    /**
+     * Sets the pair testing duration.
+     *
+     * @param nanos duration in nanoseconds.
+     */
+    void setNarrowphaseNanos(long nanos) { narrowphaseNanos = nanos; }
+    /**
+     * Sets the update() duration.
+     *
+     * @param nanos duration in nanoseconds.
+     */
+    void setUpdateNanos(long nanos) { updateNanos = nanos; }
+    /**
+     * Sets the postUpdate() duration.
+     *
+     * @param nanos duration in nanoseconds.
+     */
+    void setPostUpdateNanos(long nanos) { postUpdateNanos = nanos; }
+    /**
+     * Sets the event delivery duration and count.
+     *
+     * @param nanos duration in nanoseconds.
+     * @param events delivered.
+     */
+    void setEvents(long nanos, int events) { eventNanos = nanos; eventCount = events; }
+
+    /**
+     * Adds to the tested pair count.
+     *
+     * @param amount of pairs tested.
+     */
+    void addPairTests(int amount) { pairTests += amount; }
+    /**
+     * Counts a pair that intersected.
+     */
+    void addNarrowphaseHit() { narrowphaseHits++; }
+    /**
+     * Counts a collider that was between quadrants.
+     */
+    void addStraddler() { straddlers++; }
+
+    /**
+     * Sets the alive object and collider counts.
+     *
+     * @param objects alive objects.
+     * @param colliders alive colliders.
+     */
+    void setCounts(int objects, int colliders) { objectCount = objects; colliderCount = colliders; }
+    /**
+     * Adds to the spawn count.
+     *
+     * @param amount of objects spawned.
+     */
+    void addSpawns(int amount) { spawnCount += amount; }
+    /**
+     * Adds to the despawn count.
+     *
+     * @param amount of objects despawned.
+     */
+    void addDespawns(int amount) { despawnCount += amount; }
+
+    /**
+     * Gets the fixedUpdate() duration.
+     *
+     * @return duration in nanoseconds.
+     */
+    public long getFixedUpdateNanos() { return fixedUpdateNanos; }
+    /**
+     * Gets the QuadTree rebuild duration.
+     *
+     * @return duration in nanoseconds.
+     */
+    public long getBroadphaseNanos() { return broadphaseNanos; }
+    /**
+     * Gets the pair testing duration.
+     *
+     * @return duration in nanoseconds.
+     */
+    public long getNarrowphaseNanos() { return narrowphaseNanos; }
+    /**
+     * Gets the update() duration.
+     *
+     * @return duration in nanoseconds.
+     */
+    public long getUpdateNanos() { return updateNanos; }
+    /**
+     * Gets the postUpdate() duration.
+     *
+     * @return duration in nanoseconds.
+     */
+    public long getPostUpdateNanos() { return postUpdateNanos; }
+    /**
+     * Gets the event delivery duration.
+     *
+     * @return duration in nanoseconds.
+     */
+    public long getEventNanos() { return eventNanos; }
+    /**
+     * Gets the amount of events delivered.
+     *
+     * @return events delivered on the last tick.
+     */
+    public int getEventCount() { return eventCount; }
+    /**
+     * Gets the duration of the whole tick.
+     *
+     * @return duration in nanoseconds.
+     */
+    public long getTickNanos() { return fixedUpdateNanos + broadphaseNanos + narrowphaseNanos + eventNanos + updateNanos + postUpdateNanos; }
+
+    /**
+     * Gets the tested pair count.
+     *
+     * @return pairs tested on the last tick.
+     */
+    public int getPairTests() { return pairTests; }
+    /**
+     * Gets the intersecting pair count.
+     *
+     * @return pairs that intersected on the last tick.
+     */
+    public int getNarrowphaseHits() { return narrowphaseHits; }
+    /**
+     * Gets the count of colliders between quadrants.
+     *
+     * @return colliders checked against everything on the last tick.
+     */
+    public int getStraddlers() { return straddlers; }
+
+    /**
+     * Gets the alive object count.
+     *
+     * @return object count.
+     */
+    public int getObjectCount() { return objectCount; }
+    /**
+     * Gets the alive collider count.
+     *
+     * @return collider count.
+     */
+    public int getColliderCount() { return colliderCount; }
+    /**
+     * Gets the spawn count.
+     *
+     * @return objects added since the start of the game.
+     */
+    public long getSpawnCount() { return spawnCount; }
+    /**
+     * Gets the despawn count.
+     *
+     * @return objects removed since the start of the game.
+     */
+    public long getDespawnCount() { return despawnCount; }
+}
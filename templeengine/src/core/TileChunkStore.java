@@ -0,0 +1,593 @@
+package templeengine.src.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code TileChunkStore} keeps the cells of a huge {@link TileMap} in a file instead of in arrays, paging chunks in and out.
+ *
+ * <p>
+ * The map is split into square chunks, each stored in the file as its image locations followed by its collisions.
+ * A chunk is read into memory the first time one of its cells is read or written, into one of a pool of buffers as big as the budget.
+ * Once every buffer is in use the least recently used chunk is written back if it changed and its buffer reused,
+ * so the memory a map takes is set by the budget, not by the size of the map. Buffers are used instead of mapping the chunks,
+ * since a mapping is only let go of once the garbage collector gets to it, which would leave the budget up to the collector.
+ * The file is made sparse, so chunks never written take no disk space on most file systems.
+ * </p>
+ *
+ * <p>
+ * Cells are stored as small as they fit: image locations take a byte when the tileset has less than 256 tiles
+ * and two bytes when it has less than 65536, collisions always take a byte. An 8192x8192 map with a 2 byte tileset is then
+ * 192 MB on disk, of which only the chunks in the budget are in memory at a time.
+ * </p>
+ *
+ * <p>
+ * Example code of making a huge map and showing it:
+ * </p>
+ * <pre><code>
+ * TileChunkStore cells = TileChunkStore.create(Paths.get("world.chunks"), 8192, 8192, 64, 1024, 256);
+ * cells.setTile(10, 10, 5);
+ * cells.setCollision(10, 10, 1);
+ *
+ * TileMap map = new TileMap(cells, GameIO.loadImage("res/tileset.png", getClass()), 16, 16, 2, 0, 0);
+ * </code></pre>
+ */
+public class TileChunkStore {
+
+    /**
+     * The magic number, "TCHK".
+     */
+    private static final int MAGIC = 0x4B484354;
+    /**
+     * Size of the header: magic, version, tile bytes, two unused bytes, map width, map height and chunk size.
+     */
+    private static final int HEADER = 20;
+
+    /**
+     * The file of the store.
+     */
+    private FileChannel channel;
+    /**
+     * Width of the map in cells.
+     */
+    private int mapWidth;
+    /**
+     * Height of the map in cells.
+     */
+    private int mapHeight;
+    /**
+     * Width and height of a chunk in cells.
+     */
+    private int chunkSize;
+    /**
+     * Bytes per image location, 1, 2 or 4.
+     */
+    private int tileBytes;
+    /**
+     * Width of the map in chunks.
+     */
+    private int chunksX;
+    /**
+     * Height of the map in chunks.
+     */
+    private int chunksY;
+    /**
+     * Bytes of a chunk in the file.
+     */
+    private long chunkBytes;
+
+    /**
+     * Most chunks in memory at a time.
+     */
+    private int budget;
+    /**
+     * The chunks in memory by index, least recently used first.
+     */
+    private LinkedHashMap<Integer, Chunk> chunks;
+    /**
+     * Buffers of chunks paged out, reused by the next chunks paged in.
+     */
+    private ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+    /**
+     * Index of the chunk used last, kept to skip the lookup when cells are walked in order.
+     */
+    private int lastIndex = -1;
+    /**
+     * The chunk used last.
+     */
+    private Chunk lastChunk;
+    /**
+     * Amount of chunks paged in so far, paged in again included.
+     */
+    private long pageIns = 0;
+
+    /**
+     * Constructs a store on an open file.
+     *
+     * @param channel the file.
+     * @param mapWidth width of the map in cells.
+     * @param mapHeight height of the map in cells.
+     * @param chunkSize width and height of a chunk in cells.
+     * @param tileBytes bytes per image location.
+     * @param budget most chunks in memory at a time.
+     */
+    private TileChunkStore(FileChannel channel, int mapWidth, int mapHeight, int chunkSize, int tileBytes, int budget) {
+
+        this.channel = channel;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.chunkSize = chunkSize;
+        this.tileBytes = tileBytes;
+        this.chunksX = (mapWidth + chunkSize - 1) / chunkSize;
+        this.chunksY = (mapHeight + chunkSize - 1) / chunkSize;
+        this.chunkBytes = (long) chunkSize * chunkSize * (tileBytes + 1);
+        this.budget = Math.max(1, budget);
+
+        this.chunks = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Creates a new empty store, replacing the file if it exists.
+     *
+     * @param path the file of the store.
+     * @param mapWidth width of the map in cells.
+     * @param mapHeight height of the map in cells.
+     * @param chunkSize width and height of a chunk in cells.
+     * @param tileCount amount of tiles in the tileset, sets how many bytes an image location takes.
+     * @param budget most chunks in memory at a time.
+     * @return the store.
+     * @throws IOException if the file couldn't be made.
+     */
+    public static TileChunkStore create(Path path, int mapWidth, int mapHeight, int chunkSize, int tileCount, int budget) throws IOException {
+
+        int tileBytes = tileCount < 256 ? 1 : tileCount < 65536 ? 2 : 4;
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.SPARSE);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+
+        header.putInt(MAGIC);
+        header.put((byte) 1);
+        header.put((byte) tileBytes);
+        header.putShort((short) 0);
+        header.putInt(mapWidth);
+        header.putInt(mapHeight);
+        header.putInt(chunkSize);
+        header.flip();
+
+        while(header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+
+        TileChunkStore store = new TileChunkStore(channel, mapWidth, mapHeight, chunkSize, tileBytes, budget);
+
+        //writing the last byte sets the size of the file without touching the chunks in between
+        channel.write(ByteBuffer.allocate(1), store.offset(store.chunksX * store.chunksY) - 1);
+
+        return store;
+    }
+
+    /**
+     * Creates a new store out of map data.
+     *
+     * @param path the file of the store.
+     * @param data the map data.
+     * @param chunkSize width and height of a chunk in cells.
+     * @param tileCount amount of tiles in the tileset.
+     * @param budget most chunks in memory at a time.
+     * @return the store.
+     * @throws IOException if the file couldn't be made.
+     */
+    public static TileChunkStore create(Path path, MapData data, int chunkSize, int tileCount, int budget) throws IOException {
+
+        TileChunkStore store = create(path, data.getMapWidth(), data.getMapHeight(), chunkSize, tileCount, budget);
+
+        int[] map = data.getMap();
+        int[] collisionMap = data.getCollisionMap();
+
+        for(int y = 0; y < data.getMapHeight(); y++) {
+            for(int x = 0; x < data.getMapWidth(); x++) {
+
+                int i = y * data.getMapWidth() + x;
+
+                if(map[i] != 0)
+                    store.setTile(x, y, map[i]);
+
+                if(collisionMap[i] != 0)
+                    store.setCollision(x, y, collisionMap[i]);
+            }
+        }
+
+        store.flush();
+
+        return store;
+    }
+
+    /**
+     * Opens an existing store.
+     *
+     * @param path the file of the store.
+     * @param budget most chunks in memory at a time.
+     * @return the store.
+     * @throws IOException if the file couldn't be opened or isn't a store.
+     */
+    public static TileChunkStore open(Path path, int budget) throws IOException {
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+
+        while(header.hasRemaining() && channel.read(header, header.position()) > 0);
+
+        header.flip();
+
+        if(header.remaining() < HEADER || header.getInt() != MAGIC || header.get() != 1) {
+
+            channel.close();
+            throw new IOException(path + " is not a tile chunk store");
+        }
+
+        int tileBytes = header.get();
+        header.getShort();
+
+        return new TileChunkStore(channel, header.getInt(), header.getInt(), header.getInt(), tileBytes, budget);
+    }
+
+    /**
+     * Gets the image location of a cell.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return the image location, 0 for an empty cell or one outside the map.
+     */
+    public int getTile(int x, int y) {
+
+        if(!contains(x, y))
+            return 0;
+
+        ByteBuffer chunk = chunk(x, y).data;
+        int cell = cell(x, y);
+
+        switch(tileBytes) {
+            case 1: return chunk.get(cell) & 0xFF;
+            case 2: return chunk.getChar(cell * 2);
+            default: return chunk.getInt(cell * 4);
+        }
+    }
+
+    /**
+     * Sets the image location of a cell. The change is written into the file, and shows on a {@link TileMap}
+     * once the chunk of the cell is built again.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @param tile the image location.
+     */
+    public void setTile(int x, int y, int tile) {
+
+        if(!contains(x, y))
+            throw new IndexOutOfBoundsException("cell " + x + ", " + y + " is outside the map");
+
+        ByteBuffer chunk = changed(x, y);
+        int cell = cell(x, y);
+
+        switch(tileBytes) {
+            case 1: chunk.put(cell, (byte) tile); break;
+            case 2: chunk.putChar(cell * 2, (char) tile); break;
+            default: chunk.putInt(cell * 4, tile);
+        }
+    }
+
+    /**
+     * Gets the collision of a cell.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return the collision, 0 for none or outside the map.
+     */
+    public int getCollision(int x, int y) {
+
+        if(!contains(x, y))
+            return 0;
+
+        return chunk(x, y).data.get(chunkSize * chunkSize * tileBytes + cell(x, y)) & 0xFF;
+    }
+
+    /**
+     * Sets the collision of a cell.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @param collision the collision, 0 to 255.
+     */
+    public void setCollision(int x, int y, int collision) {
+
+        if(!contains(x, y))
+            throw new IndexOutOfBoundsException("cell " + x + ", " + y + " is outside the map");
+
+        changed(x, y).put(chunkSize * chunkSize * tileBytes + cell(x, y), (byte) collision);
+    }
+
+    /**
+     * Checks whether a cell is inside the map.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return true if inside.
+     */
+    public boolean contains(int x, int y) { return x >= 0 && y >= 0 && x < mapWidth && y < mapHeight; }
+
+    /**
+     * Writes the changed chunks into the file and forces it to disk.
+     */
+    public void flush() {
+
+        try {
+
+            for (Map.Entry<Integer, Chunk> chunk : chunks.entrySet()) {
+                writeBack(chunk.getKey(), chunk.getValue());
+            }
+
+            channel.force(false);
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the changes into the file and closes it. The store can't be used after closing.
+     */
+    public void close() {
+
+        flush();
+
+        chunks.clear();
+        pool.clear();
+        lastIndex = -1;
+        lastChunk = null;
+
+        try {
+
+            channel.close();
+
+        } catch (IOException e) {
+
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the chunk of a cell, paging it in if it isn't in memory.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return the chunk.
+     */
+    private Chunk chunk(int x, int y) {
+
+        int index = (y / chunkSize) * chunksX + x / chunkSize;
+
+        if(index == lastIndex)
+            return lastChunk;
+
+        Chunk chunk = chunks.get(index);
+
+        if(chunk == null) {
+
+            //paged out first, so there are never more buffers than the budget
+            while(chunks.size() >= budget) {
+                evictEldest();
+            }
+
+            ByteBuffer data = pool.isEmpty() ? ByteBuffer.allocate((int) chunkBytes).order(ByteOrder.LITTLE_ENDIAN) : pool.pop();
+
+            data.clear();
+
+            try {
+
+                while(data.hasRemaining()) {
+
+                    //parts of the file never written read as zeros, past its end there is nothing to read
+                    if(channel.read(data, offset(index) + data.position()) < 0)
+                        break;
+                }
+
+            } catch (IOException e) {
+
+                throw new IllegalStateException("failed to read chunk " + index, e);
+            }
+
+            while(data.hasRemaining()) {
+                data.put((byte) 0);
+            }
+
+            chunk = new Chunk(data);
+            chunks.put(index, chunk);
+            pageIns++;
+        }
+
+        lastIndex = index;
+        lastChunk = chunk;
+
+        return chunk;
+    }
+
+    /**
+     * Gets the data of the chunk of a cell about to be changed, marking it to be written back.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return data of the chunk.
+     */
+    private ByteBuffer changed(int x, int y) {
+
+        Chunk chunk = chunk(x, y);
+        chunk.dirty = true;
+
+        return chunk.data;
+    }
+
+    /**
+     * Pages out the least recently used chunk.
+     */
+    private void evictEldest() {
+
+        Iterator<Map.Entry<Integer, Chunk>> it = chunks.entrySet().iterator();
+        Map.Entry<Integer, Chunk> eldest = it.next();
+
+        evict(eldest.getKey(), eldest.getValue());
+        it.remove();
+    }
+
+    /**
+     * Pages out a chunk leaving the budget, writing it back if it changed and handing its buffer to the next chunk paged in.
+     *
+     * @param index index of the chunk.
+     * @param chunk the chunk.
+     */
+    private void evict(int index, Chunk chunk) {
+
+        if(index == lastIndex) {
+            lastIndex = -1;
+            lastChunk = null;
+        }
+
+        try {
+
+            writeBack(index, chunk);
+
+        } catch (IOException e) {
+
+            throw new IllegalStateException("failed to write chunk " + index, e);
+        }
+
+        pool.push(chunk.data);
+    }
+
+    /**
+     * Writes a chunk into the file if it changed since it was paged in or last written.
+     *
+     * @param index index of the chunk.
+     * @param chunk the chunk.
+     * @throws IOException if the file couldn't be written.
+     */
+    private void writeBack(int index, Chunk chunk) throws IOException {
+
+        if(!chunk.dirty)
+            return;
+
+        ByteBuffer data = chunk.data.duplicate();
+        data.clear();
+
+        while(data.hasRemaining()) {
+            channel.write(data, offset(index) + data.position());
+        }
+
+        chunk.dirty = false;
+    }
+
+    /**
+     * Gets the index of a cell inside its chunk.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return index inside the chunk.
+     */
+    private int cell(int x, int y) { return (y % chunkSize) * chunkSize + x % chunkSize; }
+
+    /**
+     * Gets the file offset of a chunk.
+     *
+     * @param index index of the chunk.
+     * @return offset in bytes.
+     */
+    private long offset(int index) { return HEADER + index * chunkBytes; }
+
+    /**
+     * Sets the most chunks in memory at a time. Chunks over the budget are paged out right away.
+     *
+     * @param budget chunks, 1 at least.
+     */
+    public void setBudget(int budget) {
+
+        this.budget = Math.max(1, budget);
+
+        while(chunks.size() > this.budget) {
+            evictEldest();
+        }
+
+        //buffers past the budget would never be used again
+        while(pool.size() > this.budget - chunks.size()) {
+            pool.pop();
+        }
+    }
+
+    /**
+     * Gets the most chunks in memory at a time.
+     *
+     * @return budget in chunks.
+     */
+    public int getBudget() { return budget; }
+    /**
+     * Gets the amount of chunks in memory right now.
+     *
+     * @return resident chunks.
+     */
+    public int getResidentChunks() { return chunks.size(); }
+    /**
+     * Gets the amount of chunks paged in so far, counting chunks paged in again after being paged out.
+     *
+     * @return page ins.
+     */
+    public long getPageIns() { return pageIns; }
+    /**
+     * Gets the width of the map.
+     *
+     * @return width in cells.
+     */
+    public int getMapWidth() { return mapWidth; }
+    /**
+     * Gets the height of the map.
+     *
+     * @return height in cells.
+     */
+    public int getMapHeight() { return mapHeight; }
+    /**
+     * Gets the width and height of a chunk.
+     *
+     * @return chunk size in cells.
+     */
+    public int getChunkSize() { return chunkSize; }
+
+    /**
+     * A chunk in memory.
+     */
+    private static class Chunk {
+
+        /**
+         * The cells of the chunk, as stored in the file.
+         */
+        private final ByteBuffer data;
+        /**
+         * Whether the cells changed since they were paged in or last written.
+         */
+        private boolean dirty = false;
+
+        /**
+         * Constructs a chunk.
+         *
+         * @param data the cells of the chunk.
+         */
+        Chunk(ByteBuffer data) { this.data = data; }
+    }
+}
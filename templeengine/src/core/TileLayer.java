@@ -0,0 +1,373 @@
+package templeengine.src.core;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Group;
+import javafx.scene.image.ImageView;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * The {@code TileLayer} is a named visual layer of a {@link TileMap}, like a parallax background or decorations over the level.
+ *
+ * <p>
+ * Cells are stored sparsely in square chunks of {@code CHUNK} cells, and chunks with nothing in them aren't stored at all,
+ * so a layer only costs memory where it has tiles. Layers are only drawn, they never collide: each chunk with tiles is a single
+ * group of image views in the pane rather than a {@link Tile} object per cell, so layers add nothing to the objects
+ * or colliders of the canvas, and chunks outside the camera are hidden.
+ * </p>
+ *
+ * <p>
+ * The draw order sets where the layer is drawn compared to the rest of the game, everything else being drawn at 0:
+ * layers with a negative draw order are drawn behind the objects and layers with a positive draw order in front of them.
+ * The parallax sets how much the layer moves with the camera: 1 moves with the world, 0.5 moves half as much,
+ * which makes it look far away, and 0 doesn't move at all.
+ * </p>
+ *
+ * <p>
+ * Example code of adding a far away background to a map:
+ * </p>
+ * <pre><code>
+ * TileLayer background = map.addLayer("background", -1, 0.5);
+ *
+ * for(int x = 0; x &lt; map.getMapWidth(); x++)
+ *  background.set(x, 0, 12);
+ * </code></pre>
+ */
+public class TileLayer {
+
+    /**
+     * Width and height of a chunk in cells.
+     */
+    public static final int CHUNK = 16;
+
+    /**
+     * The map of the layer.
+     */
+    private TileMap map;
+    /**
+     * The name of the layer.
+     */
+    private String name;
+    /**
+     * Where the layer is drawn compared to everything else, higher on top.
+     */
+    private int drawOrder;
+    /**
+     * How much the layer moves with the camera.
+     */
+    private double parallax;
+
+    /**
+     * Width of the layer in chunks.
+     */
+    private int chunksX;
+    /**
+     * The cells of the chunks with tiles, by chunk index.
+     */
+    private HashMap<Integer, int[]> chunks = new HashMap<>();
+    /**
+     * Amount of tiles in each stored chunk, a chunk is dropped once it reaches 0.
+     */
+    private HashMap<Integer, Integer> counts = new HashMap<>();
+    /**
+     * The nodes of the chunks with tiles, by chunk index.
+     */
+    private HashMap<Integer, Group> nodes = new HashMap<>();
+    /**
+     * Chunks changed since their nodes were built.
+     */
+    private HashSet<Integer> dirty = new HashSet<>();
+
+    /**
+     * The node of the layer, holding the nodes of the chunks.
+     */
+    private Group group = new Group();
+
+    /**
+     * Constructs a layer. Use {@code addLayer()} of the map instead.
+     *
+     * @param map the map of the layer.
+     * @param name the name of the layer.
+     * @param drawOrder where the layer is drawn, higher on top.
+     * @param parallax how much the layer moves with the camera.
+     */
+    TileLayer(TileMap map, String name, int drawOrder, double parallax) {
+
+        this.map = map;
+        this.name = name;
+        this.parallax = parallax;
+        this.chunksX = (map.getMapWidth() + CHUNK - 1) / CHUNK;
+
+        group.setManaged(false);
+
+        setDrawOrder(drawOrder);
+    }
+
+    /**
+     * Gets the image location of a cell.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return the image location, 0 for an empty cell or one outside the map.
+     */
+    public int get(int x, int y) {
+
+        if(x < 0 || y < 0 || x >= map.getMapWidth() || y >= map.getMapHeight())
+            return 0;
+
+        int[] chunk = chunks.get(chunkIndex(x, y));
+
+        return chunk == null ? 0 : chunk[cell(x, y)];
+    }
+
+    /**
+     * Sets the image location of a cell. The change shows on the next update of the canvas.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @param tile the image location, 0 to empty the cell.
+     */
+    public void set(int x, int y, int tile) {
+
+        if(x < 0 || y < 0 || x >= map.getMapWidth() || y >= map.getMapHeight())
+            throw new IndexOutOfBoundsException("cell " + x + ", " + y + " is outside the map");
+
+        int index = chunkIndex(x, y);
+        int[] chunk = chunks.get(index);
+
+        if(chunk == null) {
+
+            if(tile == 0)
+                return;
+
+            chunk = new int[CHUNK * CHUNK];
+            chunks.put(index, chunk);
+            counts.put(index, 0);
+        }
+
+        int cell = cell(x, y);
+
+        if(chunk[cell] == tile)
+            return;
+
+        int count = counts.get(index) + (chunk[cell] == 0 ? 1 : 0) - (tile == 0 ? 1 : 0);
+
+        chunk[cell] = tile;
+
+        if(count == 0) {
+
+            chunks.remove(index);
+            counts.remove(index);
+
+        } else {
+
+            counts.put(index, count);
+        }
+
+        dirty.add(index);
+    }
+
+    /**
+     * Sets every cell of the layer from an array the size of the map, like the image location map.
+     *
+     * @param tiles image locations of the cells.
+     */
+    public void setAll(int[] tiles) {
+
+        for(int i = 0; i < tiles.length; i++) {
+
+            if(tiles[i] != 0 || get(i % map.getMapWidth(), i / map.getMapWidth()) != 0)
+                set(i % map.getMapWidth(), i / map.getMapWidth(), tiles[i]);
+        }
+    }
+
+    /**
+     * Gets every cell of the layer as an array the size of the map.
+     *
+     * @return image locations of the cells.
+     */
+    public int[] toArray() {
+
+        int width = map.getMapWidth();
+        int[] tiles = new int[width * map.getMapHeight()];
+
+        for (Integer index : chunks.keySet()) {
+
+            int[] chunk = chunks.get(index);
+            int x0 = (index % chunksX) * CHUNK;
+            int y0 = (index / chunksX) * CHUNK;
+
+            for(int i = 0; i < chunk.length; i++) {
+
+                int x = x0 + i % CHUNK;
+                int y = y0 + i / CHUNK;
+
+                if(chunk[i] != 0)
+                    tiles[y * width + x] = chunk[i];
+            }
+        }
+
+        return tiles;
+    }
+
+    /**
+     * Rebuilds the nodes of changed chunks, moves the layer by its parallax and hides the chunks outside the camera.
+     * Called by the map every update.
+     *
+     * @param left left of the camera.
+     * @param top top of the camera.
+     * @param width width of the camera.
+     * @param height height of the camera.
+     */
+    void update(double left, double top, double width, double height) {
+
+        if(group.getParent() == null)
+            Temple.getActiveGame().getPane().getChildren().add(group);
+
+        for (Integer index : dirty) {
+
+            Group node = nodes.remove(index);
+
+            if(node != null)
+                group.getChildren().remove(node);
+
+            int[] chunk = chunks.get(index);
+
+            if(chunk != null) {
+
+                node = buildChunk(index, chunk);
+                nodes.put(index, node);
+                group.getChildren().add(node);
+            }
+        }
+
+        dirty.clear();
+
+        double shiftX = left * (1 - parallax);
+        double shiftY = top * (1 - parallax);
+
+        group.setTranslateX(shiftX);
+        group.setTranslateY(shiftY);
+
+        double chunkWidth = CHUNK * map.getTileWidth() * map.getScale();
+        double chunkHeight = CHUNK * map.getTileHeight() * map.getScale();
+        //tiles scale around their centers, so they reach over the edges of their chunk by up to a tile
+        double padX = map.getTileWidth() * map.getScale();
+        double padY = map.getTileHeight() * map.getScale();
+
+        for (Integer index : nodes.keySet()) {
+
+            double x = (index % chunksX) * chunkWidth + map.getXOffset() + shiftX;
+            double y = (index / chunksX) * chunkHeight + map.getYOffset() + shiftY;
+
+            nodes.get(index).setVisible(x - padX < left + width && y - padY < top + height
+                    && x + chunkWidth + padX > left && y + chunkHeight + padY > top);
+        }
+    }
+
+    /**
+     * Marks every chunk to be rebuilt on the next update, like after the tileset of the map changed.
+     */
+    void rebuild() { dirty.addAll(chunks.keySet()); }
+
+    /**
+     * Takes the nodes of the layer out of the pane. The cells are kept, and the nodes come back on the next update.
+     */
+    void detach() {
+
+        if(group.getParent() != null)
+            Temple.getActiveGame().getPane().getChildren().remove(group);
+    }
+
+    /**
+     * Builds the node of a chunk.
+     *
+     * @param index index of the chunk.
+     * @param chunk cells of the chunk.
+     * @return the node.
+     */
+    private Group buildChunk(int index, int[] chunk) {
+
+        Group node = new Group();
+        node.setManaged(false);
+
+        int x0 = (index % chunksX) * CHUNK;
+        int y0 = (index / chunksX) * CHUNK;
+
+        for(int i = 0; i < chunk.length; i++) {
+
+            if(chunk[i] == 0)
+                continue;
+
+            ImageView view = new ImageView(map.getTileSheet());
+            Rectangle2D viewport = map.getViewport(chunk[i]);
+
+            //placed exactly like the tiles of the map, which scale around their center
+            view.setViewport(viewport);
+            view.setScaleX(map.getScale());
+            view.setScaleY(map.getScale());
+            view.setTranslateX((int) ((x0 + i % CHUNK) * map.getTileWidth() * map.getScale()) + map.getXOffset());
+            view.setTranslateY((int) ((y0 + i / CHUNK) * map.getTileHeight() * map.getScale()) + map.getYOffset());
+
+            node.getChildren().add(view);
+        }
+
+        return node;
+    }
+
+    /**
+     * Gets the index of the chunk of a cell.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return index of the chunk.
+     */
+    private int chunkIndex(int x, int y) { return (y / CHUNK) * chunksX + x / CHUNK; }
+
+    /**
+     * Gets the index of a cell inside its chunk.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return index inside the chunk.
+     */
+    private int cell(int x, int y) { return (y % CHUNK) * CHUNK + x % CHUNK; }
+
+    /**
+     * Gets the name of the layer.
+     *
+     * @return the name.
+     */
+    public String getName() { return name; }
+    /**
+     * Gets where the layer is drawn compared to everything else.
+     *
+     * @return the draw order, higher on top.
+     */
+    public int getDrawOrder() { return drawOrder; }
+    /**
+     * Sets where the layer is drawn compared to everything else, which is drawn at 0.
+     *
+     * @param drawOrder the draw order, higher on top.
+     */
+    public void setDrawOrder(int drawOrder) { this.drawOrder = drawOrder; group.setViewOrder(-drawOrder); }
+    /**
+     * Gets how much the layer moves with the camera.
+     *
+     * @return the parallax.
+     */
+    public double getParallax() { return parallax; }
+    /**
+     * Sets how much the layer moves with the camera.
+     *
+     * @param parallax 1 to move with the world, less to look further away.
+     */
+    public void setParallax(double parallax) { this.parallax = parallax; }
+    /**
+     * Gets the amount of chunks with tiles.
+     *
+     * @return stored chunks.
+     */
+    public int getChunkCount() { return chunks.size(); }
+}
@@ -3,6 +3,14 @@ package templeengine.src.core;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 /**
  * The {@code TileMap} is a class used to construct maps out of {@link Tile}s.
  *
@@ -122,6 +130,20 @@ import javafx.scene.image.Image;
  * </code></pre>
  *
  * <p>
+ * Maps too big to keep in arrays, like 8192x8192 tile worlds, can keep their cells in a {@link TileChunkStore} instead.
+ * A chunked TileMap only builds the tiles of the chunks around the camera and the anchors of the {@link WorldStreamer},
+ * and throws the tiles of chunks left behind away, so both the cells and the tiles in memory stay bounded however big the map is. Empty cells of a chunked map get no tile at all.
+ * The image location and collision arrays of a chunked map are null, the cells are read and written through {@code getCells()}.
+ * </p>
+ *
+ * <p>
+ * Besides the image location and collision maps, a TileMap can have any number of named {@link TileLayer}s for backgrounds
+ * and decorations, each with its own draw order and parallax. Layers are stored sparsely and only drawn, so empty parts
+ * of a layer cost nothing. In .map files layers follow the collision map, each starting with a line
+ * {@code layer name drawOrder parallax} followed by the rows of the layer.
+ * </p>
+ *
+ * <p>
  * This TileMap could then be saved in a .map file by utilizing GameIO.saveMap(map);
  * </p>
  */
@@ -158,6 +180,10 @@ public class TileMap {
      * The tileset.
      */
     private Image tileSheet;
+    /**
+     * The location of the tileset as written in map files, null if the map wasn't loaded from one.
+     */
+    private String tileSheetUrl;
 
     /**
      * The number which to scale the resulting map with.
@@ -186,6 +212,46 @@ public class TileMap {
      */
     private int yOffset;
 
+    /**
+     * The cells of a chunked map, null if the map keeps its cells in arrays.
+     */
+    private TileChunkStore cells;
+    /**
+     * The tiles of the built chunks of a chunked map, by chunk index.
+     */
+    private HashMap<Integer, ArrayList<GameObject>> builtChunks = new HashMap<>();
+    /**
+     * Chunks around the ones the camera sees, and around the chunks of streaming anchors, that are built too.
+     */
+    private int chunkRadius = 1;
+    /**
+     * Most chunks built per tick.
+     */
+    private int chunkBudget = 2;
+
+    /**
+     * Width and height in cells of the blocks collisions are baked in, on maps that aren't chunked.
+     */
+    private static final int BAKE_BLOCK = 32;
+    /**
+     * Merges the solid cells into rectangles.
+     */
+    private CollisionBaker baker = new CollisionBaker();
+    /**
+     * The objects holding the baked colliders of each block with solid cells, by block index.
+     */
+    private HashMap<Integer, ArrayList<GameObject>> collisionBlocks = new HashMap<>();
+
+    /**
+     * The named visual layers of the map.
+     */
+    private ArrayList<TileLayer> layers = new ArrayList<>();
+
+    /**
+     * Classpath location of the file the map was loaded from, null if it was built in code.
+     */
+    private String source;
+
     /**
      * Constructs a TileMap with the given parameters.
      *
@@ -214,6 +280,28 @@ public class TileMap {
         this.scale = scale;
     }
 
+    /**
+     * Constructs a chunked TileMap with its cells in a store.
+     * The tiles of the chunks around the camera are built and added to the active game as the camera moves,
+     * there is no need to set the map or the collision map.
+     *
+     * @param cells the cells of the map.
+     * @param tileSheet tileset of the map.
+     * @param tileWidth width of the tiles.
+     * @param tileHeight height of the tiles.
+     * @param scale number to scale the map with.
+     * @param xOffset number to offset the map in x direction.
+     * @param yOffset number to offset the map in y direction.
+     */
+    public TileMap(TileChunkStore cells, Image tileSheet, int tileWidth, int tileHeight, double scale, int xOffset, int yOffset) {
+
+        this(cells.getMapWidth(), cells.getMapHeight(), tileWidth, tileHeight, tileSheet, scale, xOffset, yOffset);
+
+        this.cells = cells;
+
+        register();
+    }
+
     /**
      * Sets the image location map of the map.
      *
@@ -227,47 +315,573 @@ public class TileMap {
 
         for(int i = 0; i < this.mapObjects.length; i++) {
 
-            this.mapObjects[i] = new Tile(this.tileSheet);
+            this.mapObjects[i] = buildTile(this.map[i], i % mapWidth, i / mapWidth);
 
-            int x = (this.map[i] % sheetWidth == 0 ? sheetWidth : this.map[i] % sheetWidth) - 1;
-            int y = (int) Math.floor(this.map[i] / sheetWidth) - (this.map[i] % sheetWidth == 0 ? 1 : 0);
+            Temple.getActiveGame().addObject(this.mapObjects[i]);
+        }
+    }
 
-            this.mapObjects[i].setViewport(new Rectangle2D(x * tileWidth, y * tileHeight, tileWidth, tileHeight));
+    /**
+     * Sets the collision map of the map.
+     *
+     * Solid cells are merged into as few rectangle colliders as possible, in blocks of {@code BAKE_BLOCK} cells,
+     * held by static objects of their own instead of by the tiles.
+     *
+     * @param map array of collisions.
+     */
+    public void setCollisionMap(int[] map) {
 
-            x = i % mapWidth;
-            y = (int) Math.floor(i / mapWidth);
+        this.collisionMap = map;
 
-            this.mapObjects[i].setScaleX(scale);
-            this.mapObjects[i].setScaleY(scale);
+        int blocksX = (mapWidth + BAKE_BLOCK - 1) / BAKE_BLOCK;
+        int blocksY = (mapHeight + BAKE_BLOCK - 1) / BAKE_BLOCK;
 
-            this.mapObjects[i].setXY((int) (x * tileWidth * scale), (int) (y * tileHeight * scale));
+        for(int by = 0; by < blocksY; by++) {
+            for(int bx = 0; bx < blocksX; bx++) {
+                bakeBlock(bx, by);
+            }
+        }
+    }
 
-            //TODO: but why
-            this.mapObjects[i].setX(this.mapObjects[i].getX() + xOffset);
-            this.mapObjects[i].setY(this.mapObjects[i].getY() + yOffset);
+    /**
+     * Sets the image location of a single cell, changing only its tile. On a chunked map the chunk of the cell is rebuilt if it's built.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @param tile the image location.
+     */
+    public void setTile(int x, int y, int tile) {
 
-            Temple.getActiveGame().addObject(this.mapObjects[i]);
+        if(cells != null) {
+
+            cells.setTile(x, y, tile);
+
+            int chunkSize = cells.getChunkSize();
+            int index = (y / chunkSize) * ((mapWidth + chunkSize - 1) / chunkSize) + x / chunkSize;
+            ArrayList<GameObject> tiles = builtChunks.get(index);
+
+            if(tiles != null) {
+
+                for (GameObject o : tiles) {
+                    Temple.getActiveGame().removeObject(o);
+                }
+
+                builtChunks.put(index, buildChunk(x / chunkSize, y / chunkSize));
+            }
+
+            return;
         }
+
+        map[y * mapWidth + x] = tile;
+        mapObjects[y * mapWidth + x].setViewport(getViewport(tile));
     }
 
     /**
-     * Sets the collision map of the map.
+     * Updates the map to new data of its file, changing only the cells that differ. Tiles of changed cells get their new image,
+     * only the collision blocks with changed cells are rebaked, and layers are matched by name.
+     * Only maps of the same size can be reloaded this way, and chunked maps not at all.
      *
-     * @param map array of collisions.
+     * @param data the new data of the map.
+     * @return the amount of cells changed, -1 if the map couldn't be reloaded.
      */
-    public void setCollisionMap(int[] map) {
+    int reload(MapData data) {
 
-        this.collisionMap = map;
+        if(cells != null || data.getMapWidth() != mapWidth || data.getMapHeight() != mapHeight)
+            return -1;
+
+        int changed = 0;
+        int[] tiles = data.getMap();
+        int[] collisions = data.getCollisionMap();
+
+        for(int i = 0; i < map.length; i++) {
+
+            if(tiles[i] != map[i]) {
+
+                setTile(i % mapWidth, i / mapWidth, tiles[i]);
+                changed++;
+            }
+        }
+
+        int blocksX = (mapWidth + BAKE_BLOCK - 1) / BAKE_BLOCK;
+        HashSet<Integer> blocks = new HashSet<>();
+
+        for(int i = 0; i < collisionMap.length; i++) {
+
+            if(collisions[i] != collisionMap[i]) {
+
+                collisionMap[i] = collisions[i];
+                blocks.add((i / mapWidth / BAKE_BLOCK) * blocksX + (i % mapWidth) / BAKE_BLOCK);
+                changed++;
+            }
+        }
+
+        for (int block : blocks) {
+            bakeBlock(block % blocksX, block / blocksX);
+        }
+
+        ArrayList<TileLayer> kept = new ArrayList<>();
+
+        for (MapData.Layer l : data.getLayers()) {
+
+            TileLayer layer = getLayer(l.getName());
+
+            if(layer == null) {
+
+                layer = addLayer(l.getName(), l.getDrawOrder(), l.getParallax());
+
+            } else {
+
+                layer.setDrawOrder(l.getDrawOrder());
+                layer.setParallax(l.getParallax());
+            }
+
+            //set() skips the cells that didn't change, so only chunks with changes get rebuilt
+            layer.setAll(l.getTiles());
+            kept.add(layer);
+        }
+
+        for (TileLayer layer : new ArrayList<>(layers)) {
+
+            if(!kept.contains(layer))
+                removeLayer(layer);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Sets the collision of a single cell, rebaking only the colliders of the block around it.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @param collision the collision, 0 for none.
+     */
+    public void setCollision(int x, int y, int collision) {
+
+        if(cells != null) {
+
+            cells.setCollision(x, y, collision);
+
+            int chunkSize = cells.getChunkSize();
+
+            //chunks not built are baked once they are
+            if(builtChunks.containsKey((y / chunkSize) * ((mapWidth + chunkSize - 1) / chunkSize) + x / chunkSize))
+                bakeBlock(x / chunkSize, y / chunkSize);
+
+            return;
+        }
+
+        collisionMap[y * mapWidth + x] = collision;
+
+        bakeBlock(x / BAKE_BLOCK, y / BAKE_BLOCK);
+    }
+
+    /**
+     * Gets the collision of a cell.
+     *
+     * @param x column of the cell.
+     * @param y row of the cell.
+     * @return the collision, 0 for none or outside the map.
+     */
+    public int getCollision(int x, int y) {
+
+        if(x < 0 || y < 0 || x >= mapWidth || y >= mapHeight)
+            return 0;
+
+        return cells != null ? cells.getCollision(x, y) : collisionMap[y * mapWidth + x];
+    }
+
+    /**
+     * Bakes the colliders of a block, replacing the ones it had.
+     * Blocks are the chunks on a chunked map and {@code BAKE_BLOCK} cells wide otherwise.
+     *
+     * Each rectangle is held by a static object of its own at its top left corner, the same way every solid tile used to hold
+     * its own collider, so collisions keep resolving against the corner of what was hit.
+     *
+     * @param bx column of the block.
+     * @param by row of the block.
+     * @return the objects holding the colliders.
+     */
+    private ArrayList<GameObject> bakeBlock(int bx, int by) {
+
+        int size = cells != null ? cells.getChunkSize() : BAKE_BLOCK;
+        int index = by * ((mapWidth + size - 1) / size) + bx;
+        int x0 = bx * size;
+        int y0 = by * size;
+
+        ArrayList<GameObject> holders = collisionBlocks.remove(index);
+
+        if(holders != null) {
+            for (GameObject holder : holders) {
+                Temple.getActiveGame().removeObject(holder);
+            }
+        }
+
+        int count = baker.bake(this::getCollision, x0, y0, Math.min(size, mapWidth - x0), Math.min(size, mapHeight - y0));
+        int[] rectangles = baker.getRectangles();
+
+        holders = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++) {
+
+            int r = i * 4;
+
+            GameObject holder = new Tile(null);
+            holder.isStatic = true;
+            holder.isCollidable = true;
+            //at the grid position of the tiles, the offset of the map only moves the images of the tiles
+            holder.setXY((int) (rectangles[r] * tileWidth * scale), (int) (rectangles[r + 1] * tileHeight * scale));
+            holder.addCollider(new CollisionRectangle(holder, 0, 0, rectangles[r + 2] * tileWidth * scale, rectangles[r + 3] * tileHeight * scale));
+            holder.alignColliders();
+
+            holders.add(Temple.getActiveGame().addObject(holder));
+        }
+
+        if(count > 0)
+            collisionBlocks.put(index, holders);
+
+        return holders;
+    }
+
+    /**
+     * Gets the amount of colliders the collisions of the map were baked into.
+     *
+     * @return baked colliders.
+     */
+    public int getBakedColliders() {
+
+        int colliders = 0;
+
+        for (ArrayList<GameObject> holders : collisionBlocks.values()) {
+            colliders += holders.size();
+        }
+
+        return colliders;
+    }
+
+    /**
+     * Adds a named visual layer to the map. The layer is drawn from the next update of the canvas on.
+     * The name can't be empty or contain whitespace, since map files separate it from the rest of the layer by spaces.
+     *
+     * @param name the name of the layer.
+     * @param drawOrder where the layer is drawn compared to everything else, which is drawn at 0. Higher is on top.
+     * @param parallax how much the layer moves with the camera, 1 moves with the world.
+     * @return the layer, empty.
+     * @throws IllegalArgumentException if the name is empty or contains whitespace.
+     */
+    public TileLayer addLayer(String name, int drawOrder, double parallax) {
+
+        if(!isLayerName(name))
+            throw new IllegalArgumentException("layer name \"" + name + "\" can't be empty or contain whitespace");
+
+        TileLayer layer = new TileLayer(this, name, drawOrder, parallax);
+
+        layers.add(layer);
+
+        register();
+
+        return layer;
+    }
+
+    /**
+     * Checks if a name can be used for a layer, which means it isn't empty and has no whitespace.
+     *
+     * @param name the name.
+     * @return true if the name can be used.
+     */
+    static boolean isLayerName(String name) {
+
+        if(name == null || name.isEmpty())
+            return false;
 
-        for(int i = 0; i < this.collisionMap.length; i++) {
+        for(int i = 0; i < name.length(); i++) {
 
-            if(this.collisionMap[i] != 0) {
+            if(Character.isWhitespace(name.charAt(i)))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes a named layer from the map.
+     *
+     * @param layer the layer.
+     */
+    public void removeLayer(TileLayer layer) {
+
+        layer.detach();
+        layers.remove(layer);
+    }
+
+    /**
+     * Gets a layer by name.
+     *
+     * @param name the name of the layer.
+     * @return the layer, null if there is none by the name.
+     */
+    public TileLayer getLayer(String name) {
+
+        for (TileLayer layer : layers) {
+
+            if(layer.getName().equals(name))
+                return layer;
+        }
+
+        return null;
+    }
+
+    /**
+     * Pages the chunks of a chunked map and updates the layers. Called by the canvas every update.
+     */
+    void update() {
+
+        if(cells != null)
+            pageChunks();
+
+        if(layers.isEmpty())
+            return;
+
+        double left = 0;
+        double top = 0;
+
+        if(GameCamera.getCamera() != null) {
+            left = GameCamera.getCamera().getTranslateX();
+            top = GameCamera.getCamera().getTranslateY();
+        }
+
+        GameCanvas canvas = Temple.getActiveGame();
+
+        for (TileLayer layer : layers) {
+            layer.update(left, top, canvas.getCameraWidth(), canvas.getCameraHeight());
+        }
+    }
+
+    /**
+     * Has the canvas update the map every update. A map built by a preload is only registered once swapped in,
+     * so the canvas's list of maps is never touched from the building thread, and survives the clear of the swap.
+     */
+    private void register() {
+
+        if(!CommandBuffer.addTileMap(this))
+            Temple.getActiveGame().addTileMap(this);
+    }
+
+    /**
+     * Takes the layers out of the pane and forgets the built chunks, for when the canvas has removed every object.
+     */
+    void detach() {
+
+        for (TileLayer layer : layers) {
+            layer.detach();
+        }
+
+        builtChunks.clear();
+        collisionBlocks.clear();
+    }
+
+    /**
+     * Gets the part of the tileset an image location points to.
+     *
+     * @param tile the image location.
+     * @return the viewport of the tile.
+     */
+    Rectangle2D getViewport(int tile) {
+
+        int x = (tile % sheetWidth == 0 ? sheetWidth : tile % sheetWidth) - 1;
+        int y = (int) Math.floor(tile / sheetWidth) - (tile % sheetWidth == 0 ? 1 : 0);
+
+        return new Rectangle2D(x * tileWidth, y * tileHeight, tileWidth, tileHeight);
+    }
+
+    /**
+     * Builds the chunks of a chunked map around the camera and throws away the tiles of the chunks left behind,
+     * at most the chunk budget built per tick. Called by the canvas every update.
+     *
+     * The chunks around the anchors of the {@link WorldStreamer} are built too, so objects kept active off screen
+     * have the collisions of the map under them. Chunks the camera sees are built first.
+     */
+    void pageChunks() {
+
+        int chunkSize = cells.getChunkSize();
+        double chunkWidth = chunkSize * tileWidth * scale;
+        double chunkHeight = chunkSize * tileHeight * scale;
+
+        double left = 0;
+        double top = 0;
+
+        if(GameCamera.getCamera() != null) {
+            left = GameCamera.getCamera().getTranslateX();
+            top = GameCamera.getCamera().getTranslateY();
+        }
+
+        GameCanvas canvas = Temple.getActiveGame();
+
+        List<GameObject> anchors = canvas.getStreamer() != null ? canvas.getStreamer().getAnchors() : Collections.<GameObject>emptyList();
+
+        //chunk rectangles x0, y0, x1, y1 to keep built, the camera's first
+        int[] regions = new int[4 * (1 + anchors.size())];
+
+        regions[0] = (int) Math.floor((left - xOffset) / chunkWidth) - chunkRadius;
+        regions[1] = (int) Math.floor((top - yOffset) / chunkHeight) - chunkRadius;
+        regions[2] = (int) Math.floor((left + canvas.getCameraWidth() - xOffset) / chunkWidth) + chunkRadius;
+        regions[3] = (int) Math.floor((top + canvas.getCameraHeight() - yOffset) / chunkHeight) + chunkRadius;
+
+        for(int i = 0; i < anchors.size(); i++) {
+
+            int ax = (int) Math.floor((anchors.get(i).getWorldX() - xOffset) / chunkWidth);
+            int ay = (int) Math.floor((anchors.get(i).getWorldY() - yOffset) / chunkHeight);
+
+            regions[4 * i + 4] = ax - chunkRadius;
+            regions[4 * i + 5] = ay - chunkRadius;
+            regions[4 * i + 6] = ax + chunkRadius;
+            regions[4 * i + 7] = ay + chunkRadius;
+        }
+
+        int chunksX = (mapWidth + chunkSize - 1) / chunkSize;
+        int chunksY = (mapHeight + chunkSize - 1) / chunkSize;
+
+        Iterator<Map.Entry<Integer, ArrayList<GameObject>>> it = builtChunks.entrySet().iterator();
+
+        while(it.hasNext()) {
+
+            Map.Entry<Integer, ArrayList<GameObject>> chunk = it.next();
+
+            int cx = chunk.getKey() % chunksX;
+            int cy = chunk.getKey() / chunksX;
+
+            //a chunk is kept until it's a chunk further than where it would be built, so it isn't rebuilt on every step back and forth
+            if(!inRegions(regions, cx, cy, 1)) {
+
+                for (GameObject tile : chunk.getValue()) {
+                    canvas.removeObject(tile);
+                }
+
+                ArrayList<GameObject> holders = collisionBlocks.remove(chunk.getKey());
+
+                if(holders != null) {
+                    for (GameObject holder : holders) {
+                        canvas.removeObject(holder);
+                    }
+                }
+
+                it.remove();
+            }
+        }
+
+        int built = 0;
+
+        for(int r = 0; r < regions.length && built < chunkBudget; r += 4) {
+            for(int cy = Math.max(0, regions[r + 1]); cy <= Math.min(chunksY - 1, regions[r + 3]) && built < chunkBudget; cy++) {
+                for(int cx = Math.max(0, regions[r]); cx <= Math.min(chunksX - 1, regions[r + 2]) && built < chunkBudget; cx++) {
+
+                    int index = cy * chunksX + cx;
+
+                    if(!builtChunks.containsKey(index)) {
+
+                        builtChunks.put(index, buildChunk(cx, cy));
+                        built++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether a chunk is inside any of the chunk rectangles.
+     *
+     * @param regions the rectangles, x0, y0, x1 and y1 of each.
+     * @param cx column of the chunk.
+     * @param cy row of the chunk.
+     * @param margin chunks the rectangles are grown by.
+     * @return true if inside one.
+     */
+    private static boolean inRegions(int[] regions, int cx, int cy, int margin) {
+
+        for(int r = 0; r < regions.length; r += 4) {
+
+            if(cx >= regions[r] - margin && cy >= regions[r + 1] - margin && cx <= regions[r + 2] + margin && cy <= regions[r + 3] + margin)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Builds the tiles of a chunk and adds them to the active game.
+     *
+     * @param cx column of the chunk.
+     * @param cy row of the chunk.
+     * @return the tiles built.
+     */
+    private ArrayList<GameObject> buildChunk(int cx, int cy) {
+
+        int chunkSize = cells.getChunkSize();
+        ArrayList<GameObject> tiles = new ArrayList<>();
+
+        for(int y = cy * chunkSize; y < Math.min(mapHeight, (cy + 1) * chunkSize); y++) {
+            for(int x = cx * chunkSize; x < Math.min(mapWidth, (cx + 1) * chunkSize); x++) {
+
+                int tile = cells.getTile(x, y);
+
+                if(tile == 0)
+                    continue;
+
+                tiles.add(Temple.getActiveGame().addObject(buildTile(tile, x, y)));
+            }
+        }
 
-                this.mapObjects[i].addCollider(new CollisionRectangle(this.mapObjects[i], 0, 0, tileWidth * scale, tileHeight * scale));
-                this.mapObjects[i].isStatic = true;
-                this.mapObjects[i].isCollidable = true;
+        bakeBlock(cx, cy);
+
+        return tiles;
+    }
+
+    /**
+     * Builds the tile of a cell.
+     *
+     * @param tile image location of the cell.
+     * @param column column of the cell.
+     * @param row row of the cell.
+     * @return the tile.
+     */
+    private GameObject buildTile(int tile, int column, int row) {
+
+        GameObject o = new Tile(this.tileSheet);
+
+        o.setViewport(getViewport(tile));
+
+        o.setScaleX(scale);
+        o.setScaleY(scale);
+
+        o.setXY((int) (column * tileWidth * scale), (int) (row * tileHeight * scale));
+
+        //TODO: but why
+        o.setX(o.getX() + xOffset);
+        o.setY(o.getY() + yOffset);
+
+        return o;
+    }
+
+    /**
+     * Stops paging a chunked map, removes the tiles and baked colliders it built and takes its layers out of the pane. The store of the map is left open.
+     */
+    public void dispose() {
+
+        for (ArrayList<GameObject> tiles : builtChunks.values()) {
+            for (GameObject tile : tiles) {
+                Temple.getActiveGame().removeObject(tile);
             }
         }
+
+        for (ArrayList<GameObject> holders : collisionBlocks.values()) {
+            for (GameObject holder : holders) {
+                Temple.getActiveGame().removeObject(holder);
+            }
+        }
+
+        detach();
+
+        Temple.getActiveGame().removeTileMap(this);
     }
 
     /**
@@ -327,6 +941,44 @@ public class TileMap {
      * @return the tileset.
      */
     public Image getTileSheet() { return  tileSheet; }
+    /**
+     * Gets the location of the tileset as written in map files.
+     *
+     * @return location of the tileset, or the url of the image if the map wasn't loaded from a file.
+     */
+    public String getTileSheetUrl() { return tileSheetUrl != null ? tileSheetUrl : tileSheet.getUrl(); }
+    /**
+     * Sets the location of the tileset as written in map files.
+     *
+     * @param tileSheetUrl location of the tileset.
+     */
+    public void setTileSheetUrl(String tileSheetUrl) { this.tileSheetUrl = tileSheetUrl; }
+    /**
+     * Swaps the tileset image of the map. Tiles showing the old image are swapped by whoever swaps the image,
+     * the map only makes its layers and the tiles it builds from now on use the new one.
+     *
+     * @param tileSheet the new tileset.
+     */
+    void swapTileSheet(Image tileSheet) {
+
+        this.tileSheet = tileSheet;
+
+        for (TileLayer layer : layers) {
+            layer.rebuild();
+        }
+    }
+    /**
+     * Gets the classpath location of the file the map was loaded from.
+     *
+     * @return the location, null if the map was built in code.
+     */
+    public String getSource() { return source; }
+    /**
+     * Sets the classpath location of the file the map was loaded from. Set by {@link GameIO} when loading.
+     *
+     * @param source the location.
+     */
+    void setSource(String source) { this.source = source; }
     /**
      * Gets scale of the map.
      *
@@ -345,4 +997,46 @@ public class TileMap {
      * @return the collision map array.
      */
     public int[] getCollisionMap() { return collisionMap; }
+    /**
+     * Gets the cells of a chunked map.
+     *
+     * @return the store of the cells, null if the map isn't chunked.
+     */
+    public TileChunkStore getCells() { return cells; }
+    /**
+     * Gets the named layers of the map.
+     *
+     * @return the layers, in the order added.
+     */
+    public List<TileLayer> getLayers() { return Collections.unmodifiableList(layers); }
+    /**
+     * Gets the x offset of the map.
+     *
+     * @return the x offset.
+     */
+    public int getXOffset() { return xOffset; }
+    /**
+     * Gets the y offset of the map.
+     *
+     * @return the y offset.
+     */
+    public int getYOffset() { return yOffset; }
+    /**
+     * Gets the amount of chunks built right now.
+     *
+     * @return built chunks.
+     */
+    public int getBuiltChunks() { return builtChunks.size(); }
+    /**
+     * Sets the chunks around the ones the camera sees, and around the chunks of streaming anchors, that are built too.
+     *
+     * @param chunkRadius radius in chunks.
+     */
+    public void setChunkRadius(int chunkRadius) { this.chunkRadius = Math.max(0, chunkRadius); }
+    /**
+     * Sets the most chunks built per tick.
+     *
+     * @param chunkBudget chunks per tick, 1 at least.
+     */
+    public void setChunkBudget(int chunkBudget) { this.chunkBudget = Math.max(1, chunkBudget); }
 }
@@ -1,10 +1,40 @@
 package templeengine.src.core;
 
+import java.util.Random;
+
 /**
  * The {@code Utilities} class has handy functions for things one might find useful in games.
+ *
+ * <p>
+ * The random numbers come from a single seeded generator, so setting the same seed before
+ * starting the game gives the same numbers again. {@link InputRecorder} uses this for replays.
+ * </p>
  */
 public class Utilities {
 
+    /**
+     * The seed of the random generator.
+     */
+    private static long seed = System.nanoTime();
+    /**
+     * The random generator.
+     */
+    private static Random random = new Random(seed);
+
+    /**
+     * Sets the seed of the random generator and restarts it.
+     *
+     * @param s the seed.
+     */
+    public static void setSeed(long s) { seed = s; random = new Random(s); }
+
+    /**
+     * Gets the seed the random generator was last started with.
+     *
+     * @return the seed.
+     */
+    public static long getSeed() { return seed; }
+
     /**
      * Generates a random integer between min and max.
      *
@@ -16,6 +46,6 @@ public class Utilities {
      */
     public static int randInt(int min, int max) {
 
-        return min + (int)(Math.random() * ((max - min) + 1));
+        return min + (int)(random.nextDouble() * ((max - min) + 1));
     }
 }
@@ -0,0 +1,412 @@
+package templeengine.src.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code WorldStreamer} partitions the world of a {@link GameCanvas} into square cells and only keeps the cells
+ * near the camera simulated.
+ *
+ * <p>
+ * Cells within a radius of the cells the camera sees are active, and so are the cells within the same radius of
+ * every anchor object. Objects in the other cells are frozen: they are taken out of the objects and colliders of the canvas
+ * and their nodes are detached from the pane, so they cost nothing until the camera comes near them again.
+ * Frozen objects keep all their state, and thaw exactly as they were frozen.
+ * </p>
+ *
+ * <p>
+ * Freezing and thawing is spread over ticks, at most {@code budget} objects per tick, so moving into a crowded part
+ * of the world doesn't stall a single frame. Anchors are never frozen, which makes them the place for the player
+ * and anything else that has to keep running wherever it is.
+ * </p>
+ *
+ * <p>
+ * Example code of streaming a big level in cells of two screens, keeping the cells next to the seen ones active:
+ * </p>
+ * <pre><code>
+ * //in load()
+ * WorldStreamer streamer = setStreaming(1440, 1);
+ * streamer.addAnchor(player);
+ * </code></pre>
+ */
+public class WorldStreamer {
+
+    /**
+     * The canvas being streamed.
+     */
+    private GameCanvas canvas;
+    /**
+     * Width and height of a cell.
+     */
+    private double cellSize;
+    /**
+     * Cells around the seen cells that are also active.
+     */
+    private int radius;
+    /**
+     * Most objects frozen and thawed per tick.
+     */
+    private int budget = 32;
+
+    /**
+     * Objects always kept active, and keeping the cells around them active.
+     */
+    private ArrayList<GameObject> anchors = new ArrayList<>();
+    /**
+     * The anchors by identity, for checking every object against them without searching the list.
+     */
+    private Set<GameObject> anchorSet = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Frozen objects by cell.
+     */
+    private HashMap<Long, ArrayList<GameObject>> cells = new HashMap<>();
+    /**
+     * The cell of each frozen object.
+     */
+    private IdentityHashMap<GameObject, Long> frozenCells = new IdentityHashMap<>();
+
+    /**
+     * Active regions in cell coordinates, 4 values per region: min x, min y, max x and max y.
+     */
+    private int[] regions = new int[4];
+    /**
+     * Amount of active regions.
+     */
+    private int regionCount = 0;
+    /**
+     * Whether active cells might still have frozen objects, because the regions moved or the budget ran out.
+     */
+    private boolean thawPending = true;
+
+    /**
+     * Reused list of objects to freeze.
+     */
+    private ArrayList<GameObject> toFreeze = new ArrayList<>();
+
+    /**
+     * Constructs a streamer. Use {@code setStreaming()} of the canvas instead.
+     *
+     * @param canvas the canvas to stream.
+     * @param cellSize width and height of a cell.
+     * @param radius cells around the seen cells that are also active.
+     */
+    WorldStreamer(GameCanvas canvas, double cellSize, int radius) {
+
+        this.canvas = canvas;
+        this.cellSize = cellSize;
+        this.radius = radius;
+    }
+
+    /**
+     * Freezes objects that left the active cells and thaws objects in active cells, within the budget.
+     * Called by the canvas every update.
+     */
+    void update() {
+
+        if(computeRegions())
+            thawPending = true;
+
+        int work = budget;
+
+        if(thawPending)
+            work = thaw(work);
+
+        EntityRegistry<GameObject> objects = canvas.getObjectRegistry();
+
+        toFreeze.clear();
+
+        for(int i = 0; i < objects.size() && toFreeze.size() < work; i++) {
+
+            GameObject o = objects.get(i);
+
+            if(!anchorSet.contains(o) && !isActive(cellX(o), cellY(o)))
+                toFreeze.add(o);
+        }
+
+        for (GameObject o : toFreeze) {
+
+            canvas.freeze(o);
+
+            long cell = key(cellX(o), cellY(o));
+
+            cells.computeIfAbsent(cell, k -> new ArrayList<>()).add(o);
+            frozenCells.put(o, cell);
+        }
+
+        toFreeze.clear();
+    }
+
+    /**
+     * Thaws the frozen objects in active cells.
+     *
+     * @param work most objects to thaw.
+     * @return the work left.
+     */
+    private int thaw(int work) {
+
+        for(int r = 0; r < regionCount; r++) {
+
+            for(int cx = regions[r * 4]; cx <= regions[r * 4 + 2]; cx++) {
+
+                for(int cy = regions[r * 4 + 1]; cy <= regions[r * 4 + 3]; cy++) {
+
+                    ArrayList<GameObject> frozen = cells.get(key(cx, cy));
+
+                    if(frozen == null)
+                        continue;
+
+                    while(!frozen.isEmpty()) {
+
+                        if(work == 0)
+                            return 0;
+
+                        GameObject o = frozen.remove(frozen.size() - 1);
+
+                        frozenCells.remove(o);
+                        canvas.thaw(o);
+                        work--;
+                    }
+
+                    cells.remove(key(cx, cy));
+                }
+            }
+        }
+
+        thawPending = false;
+
+        return work;
+    }
+
+    /**
+     * Computes the active regions around the camera and anchors.
+     *
+     * @return true if the regions changed since the last update.
+     */
+    private boolean computeRegions() {
+
+        int count = anchors.size() + 1;
+
+        if(regions.length < count * 4)
+            regions = new int[count * 4];
+
+        boolean changed = count != regionCount;
+
+        double left = 0;
+        double top = 0;
+
+        if(GameCamera.getCamera() != null) {
+            left = GameCamera.getCamera().getTranslateX();
+            top = GameCamera.getCamera().getTranslateY();
+        }
+
+        changed |= setRegion(0, left, top, left + canvas.getCameraWidth(), top + canvas.getCameraHeight());
+
+        for(int i = 0; i < anchors.size(); i++) {
+
+            GameObject anchor = anchors.get(i);
+
+            double x = anchor.getWorldX();
+            double y = anchor.getWorldY();
+
+            //anchors attached to another object, like a camera rig, are placed by their world position
+            changed |= setRegion(i + 1, x, y, x, y);
+        }
+
+        regionCount = count;
+
+        return changed;
+    }
+
+    /**
+     * Sets an active region from an area of the world, grown by the radius.
+     *
+     * @param r index of the region.
+     * @param minX left of the area.
+     * @param minY top of the area.
+     * @param maxX right of the area.
+     * @param maxY bottom of the area.
+     * @return true if the region changed.
+     */
+    private boolean setRegion(int r, double minX, double minY, double maxX, double maxY) {
+
+        int x0 = cell(minX) - radius;
+        int y0 = cell(minY) - radius;
+        int x1 = cell(maxX) + radius;
+        int y1 = cell(maxY) + radius;
+
+        int i = r * 4;
+        boolean changed = regions[i] != x0 || regions[i + 1] != y0 || regions[i + 2] != x1 || regions[i + 3] != y1;
+
+        regions[i] = x0;
+        regions[i + 1] = y0;
+        regions[i + 2] = x1;
+        regions[i + 3] = y1;
+
+        return changed;
+    }
+
+    /**
+     * Checks whether a cell is in an active region.
+     *
+     * @param cx cell x.
+     * @param cy cell y.
+     * @return true if active.
+     */
+    public boolean isActive(int cx, int cy) {
+
+        for(int r = 0; r < regionCount; r++) {
+
+            int i = r * 4;
+
+            if(cx >= regions[i] && cy >= regions[i + 1] && cx <= regions[i + 2] && cy <= regions[i + 3])
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Takes a frozen object out of the streamer. Called by the canvas when a frozen object gets removed.
+     *
+     * @param o the object.
+     * @return true if the object was frozen.
+     */
+    boolean forget(GameObject o) {
+
+        Long cell = frozenCells.remove(o);
+
+        if(cell == null)
+            return false;
+
+        ArrayList<GameObject> frozen = cells.get(cell);
+        frozen.remove(o);
+
+        if(frozen.isEmpty())
+            cells.remove(cell);
+
+        return true;
+    }
+
+    /**
+     * Thaws every frozen object at once. Called by the canvas when streaming stops.
+     */
+    void thawAll() {
+
+        for (GameObject o : frozenCells.keySet()) {
+            canvas.thaw(o);
+        }
+
+        frozenCells.clear();
+        cells.clear();
+    }
+
+    /**
+     * Adds every frozen object to a collection.
+     *
+     * @param collection the collection to add to.
+     */
+    void copyTo(Collection<? super GameObject> collection) { collection.addAll(frozenCells.keySet()); }
+
+    /**
+     * Checks whether an object is frozen.
+     *
+     * @param o the object.
+     * @return true if frozen.
+     */
+    public boolean isFrozen(GameObject o) { return frozenCells.containsKey(o); }
+
+    /**
+     * Adds an anchor. Anchors are never frozen and keep the cells around them active.
+     *
+     * @param anchor the object.
+     */
+    public void addAnchor(GameObject anchor) { if(anchorSet.add(anchor)) anchors.add(anchor); }
+
+    /**
+     * Removes an anchor.
+     *
+     * @param anchor the object.
+     */
+    public void removeAnchor(GameObject anchor) { if(anchorSet.remove(anchor)) anchors.remove(anchor); }
+
+    /**
+     * Gets the anchors, for chunked maps to build the chunks around them.
+     *
+     * @return the anchors.
+     */
+    List<GameObject> getAnchors() { return anchors; }
+
+    /**
+     * Sets the most objects frozen and thawed per tick.
+     *
+     * @param budget objects per tick, 1 at least.
+     */
+    public void setBudget(int budget) { this.budget = Math.max(1, budget); }
+
+    /**
+     * Gets the most objects frozen and thawed per tick.
+     *
+     * @return objects per tick.
+     */
+    public int getBudget() { return budget; }
+
+    /**
+     * Gets the amount of frozen objects.
+     *
+     * @return frozen object count.
+     */
+    public int getFrozenCount() { return frozenCells.size(); }
+
+    /**
+     * Gets the amount of cells with frozen objects.
+     *
+     * @return frozen cell count.
+     */
+    public int getFrozenCellCount() { return cells.size(); }
+
+    /**
+     * Gets the size of a cell.
+     *
+     * @return width and height of a cell.
+     */
+    public double getCellSize() { return cellSize; }
+
+    /**
+     * Gets the cell x of an object, by its world position so attached objects land in the cell they're seen in.
+     *
+     * @param o the object.
+     * @return cell x.
+     */
+    private int cellX(GameObject o) { return cell(o.getWorldX()); }
+
+    /**
+     * Gets the cell y of an object.
+     *
+     * @param o the object.
+     * @return cell y.
+     */
+    private int cellY(GameObject o) { return cell(o.getWorldY()); }
+
+    /**
+     * Gets the cell of a position on one axis.
+     *
+     * @param position the position.
+     * @return the cell.
+     */
+    private int cell(double position) { return (int) Math.floor(position / cellSize); }
+
+    /**
+     * Combines cell coordinates into a key.
+     *
+     * @param cx cell x.
+     * @param cy cell y.
+     * @return the key.
+     */
+    private static long key(int cx, int cy) { return ((long) cx << 32) | (cy & 0xffffffffL); }
+}
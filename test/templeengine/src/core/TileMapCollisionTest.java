@@ -0,0 +1,163 @@
+package templeengine.src.core;
+
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The {@code TileMapCollisionTest} checks that the baked colliders of a {@link TileMap} sit exactly where the colliders
+ * of the single tiles used to, with the tiles of the puzzle example: 32 pixels, scaled by 2 and offset by 16.
+ *
+ * <p>
+ * Every solid cell used to get a collider of its own at the position of its tile. Baked rectangles have to start at
+ * the position of the tile of their top left cell, and between them cover every solid cell once and nothing else.
+ * Runs without a window, and exits with an error if a check fails:
+ * </p>
+ * <pre><code>
+ * java templeengine.src.core.TileMapCollisionTest
+ * </code></pre>
+ */
+public class TileMapCollisionTest {
+
+    /**
+     * Width of the map in cells, more than a bake block so rectangles get cut at the block edge.
+     */
+    private static final int WIDTH = 40;
+    /**
+     * Height of the map in cells.
+     */
+    private static final int HEIGHT = 36;
+    /**
+     * Width and height of the tiles.
+     */
+    private static final int TILE = 32;
+    /**
+     * Scale of the map.
+     */
+    private static final double SCALE = 2;
+    /**
+     * Offset of the map.
+     */
+    private static final int OFFSET = 16;
+
+    /**
+     * Runs the checks.
+     *
+     * @param args not used.
+     * @throws Exception if the canvas couldn't be set up.
+     */
+    public static void main(String... args) throws Exception {
+
+        GameCanvas canvas = new GameCanvas("test", 640, 480, WIDTH * TILE * SCALE, HEIGHT * TILE * SCALE) {
+
+            @Override
+            public void load() {}
+        };
+
+        //entering the Temple would open a window
+        java.lang.reflect.Field active = Temple.class.getDeclaredField("activeGame");
+        active.setAccessible(true);
+        active.set(null, canvas);
+
+        canvas.load(new Pane());
+
+        int[] tiles = new int[WIDTH * HEIGHT];
+        int[] collisions = new int[WIDTH * HEIGHT];
+
+        for(int i = 0; i < collisions.length; i++) {
+
+            int x = i % WIDTH;
+            int y = i / WIDTH;
+
+            tiles[i] = 1;
+            //walls around the edges, a platform crossing the block edge and a few loose cells
+            collisions[i] = x == 0 || y == 0 || x == WIDTH - 1 || y == HEIGHT - 1 || (y == 20 && x > 25 && x < 38) || (x * 7 + y * 3) % 23 == 0 ? 1 : 0;
+        }
+
+        TileMap map = new TileMap(WIDTH, HEIGHT, TILE, TILE, new WritableImage(TILE * 4, TILE * 4), SCALE, OFFSET, OFFSET);
+        map.setMap(tiles);
+        map.setCollisionMap(collisions);
+
+        canvas.update();
+
+        ArrayList<GameObject> objects = new ArrayList<>();
+        canvas.getObjectRegistry().copyTo(objects);
+
+        //where each cell's own collider used to be: at the position of its tile
+        HashMap<Long, GameObject> tileAt = new HashMap<>();
+        ArrayList<CollisionInterface> baked = new ArrayList<>();
+
+        for (GameObject o : objects) {
+
+            if(o.getImage() != null)
+                tileAt.put(key(o.getX2(), o.getY2()), o);
+            else
+                baked.addAll(o.getColliders());
+        }
+
+        check(tileAt.size() == WIDTH * HEIGHT, "expected a tile per cell, got " + tileAt.size());
+
+        int[] covered = new int[WIDTH * HEIGHT];
+        double size = TILE * SCALE;
+
+        for (CollisionInterface c : baked) {
+
+            GameObject corner = tileAt.get(key(c.getCX(), c.getCY()));
+
+            check(corner != null, "rectangle at " + c.getCX() + ", " + c.getCY() + " doesn't start at a tile");
+
+            int x0 = (int) Math.round(c.getCX() / size);
+            int y0 = (int) Math.round(c.getCY() / size);
+            int w = (int) Math.round(c.getCWidth() / size);
+            int h = (int) Math.round(c.getCHeight() / size);
+
+            for(int y = y0; y < y0 + h; y++) {
+                for(int x = x0; x < x0 + w; x++) {
+
+                    GameObject tile = tileAt.get(key(x * size, y * size));
+
+                    check(tile != null && tile.getX2() >= c.getCX() && tile.getX2() + size <= c.getCX() + c.getCWidth()
+                            && tile.getY2() >= c.getCY() && tile.getY2() + size <= c.getCY() + c.getCHeight(),
+                            "cell " + x + ", " + y + " isn't inside its rectangle");
+
+                    covered[y * WIDTH + x]++;
+                }
+            }
+        }
+
+        int solid = 0;
+
+        for(int i = 0; i < collisions.length; i++) {
+
+            solid += collisions[i];
+
+            check(covered[i] == collisions[i], "cell " + (i % WIDTH) + ", " + (i / WIDTH) + " is covered " + covered[i]
+                    + " times but has collision " + collisions[i]);
+        }
+
+        System.out.println("ok: " + solid + " solid cells baked into " + baked.size() + " rectangles at their tiles");
+    }
+
+    /**
+     * Makes a key of a position.
+     *
+     * @param x the x position.
+     * @param y the y position.
+     * @return the key.
+     */
+    private static long key(double x, double y) { return ((long) Math.round(x) << 32) ^ (Math.round(y) & 0xFFFFFFFFL); }
+
+    /**
+     * Fails the test if a condition doesn't hold.
+     *
+     * @param condition the condition.
+     * @param message what went wrong.
+     */
+    private static void check(boolean condition, String message) {
+
+        if(!condition)
+            throw new AssertionError(message);
+    }
+}